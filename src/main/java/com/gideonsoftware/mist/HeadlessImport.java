@@ -0,0 +1,176 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gideonsoftware.mist.model.EmailModel;
+import com.gideonsoftware.mist.model.HistoryModel;
+import com.gideonsoftware.mist.model.MessageModel;
+import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.ConsoleReporter;
+
+/**
+ * Runs a single import from all enabled email accounts without a user interface (e.g. from a scheduled task), then
+ * prints a summary.
+ *
+ * @see MIST#OPTION_HEADLESS
+ */
+public class HeadlessImport implements PropertyChangeListener {
+    private static Logger log = LogManager.getLogger();
+
+    /**
+     * The import ran without errors
+     */
+    public final static int EXIT_SUCCESS = 0;
+
+    /**
+     * The import ran, but errors were reported along the way
+     */
+    public final static int EXIT_ERRORS = 1;
+
+    /**
+     * The import could not run (e.g. MIST is not configured or the TntConnect database could not be opened)
+     */
+    public final static int EXIT_FAILED = 2;
+
+    private static final int[] SUMMARY_STATUSES = {
+        History.STATUS_ADDED,
+        History.STATUS_EXISTS,
+        History.STATUS_CONTACT_NOT_FOUND,
+        History.STATUS_MULTIPLE_CONTACTS_FOUND,
+        History.STATUS_ERROR };
+
+    private final ConsoleReporter reporter;
+    private final PrintStream out;
+    private final boolean restart;
+    private final Map<Integer, AtomicInteger> statusCounts = new ConcurrentHashMap<Integer, AtomicInteger>();
+    private final AtomicInteger ignoredCount = new AtomicInteger();
+    private final AtomicInteger journaledCount = new AtomicInteger();
+
+    /**
+     * @param restart
+     *            true to import from the first message on every server; false to resume interrupted imports
+     *            (see {@link MIST#OPTION_RESTART})
+     */
+    public HeadlessImport(ConsoleReporter reporter, PrintStream out, boolean restart) {
+        log.trace("HeadlessImport({},{},{})", reporter, out, restart);
+        this.reporter = reporter;
+        this.out = out;
+        this.restart = restart;
+    }
+
+    private static void waitWhile(BooleanSupplier condition) {
+        while (condition.getAsBoolean()) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int getStatusCount(int status) {
+        AtomicInteger count = statusCounts.get(status);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Prints the import summary.
+     */
+    private void printSummary() {
+        out.println(String.format("%s import summary", MIST.getAppNameWithVersion()));
+        out.println(String.format("  Messages examined: %d", HistoryModel.getExaminedEmailsCount()));
+        out.println(String.format("  Messages ignored: %d", ignoredCount.get()));
+        if (journaledCount.get() > 0)
+            out.println(String.format("  Messages saved until TntConnect is closed: %d", journaledCount.get()));
+        for (int status : SUMMARY_STATUSES) {
+            out.println(String.format("  History - %s: %d", History.getStatusString(status), getStatusCount(status)));
+        }
+        out.println(String.format("  Errors reported: %d", reporter.getErrorCount()));
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent event) {
+        if (TntDb.PROP_HISTORY_PROCESSED.equals(event.getPropertyName())) {
+            History history = (History) event.getNewValue();
+            statusCounts.computeIfAbsent(history.getStatus(), s -> new AtomicInteger()).incrementAndGet();
+        } else if (HistoryModel.PROP_MESSAGE_IGNORED.equals(event.getPropertyName())) {
+            ignoredCount.incrementAndGet();
+        } else if (TntDb.PROP_MESSAGE_JOURNALED.equals(event.getPropertyName())) {
+            journaledCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the import and waits for it to complete.
+     *
+     * @return the exit status ({@link #EXIT_SUCCESS}, {@link #EXIT_ERRORS} or {@link #EXIT_FAILED})
+     */
+    public int run() {
+        log.trace("run()");
+
+        if (!MIST.getPrefs().isConfigured()) {
+            reporter.reportError(
+                "MIST is not configured",
+                "Run MIST with its user interface to set up a TntConnect database and an email account first.",
+                null);
+            return EXIT_FAILED;
+        }
+
+        TntDb.addPropertyChangeListener(this);
+        HistoryModel.addPropertyChangeListener(this);
+        try {
+            // Start Tnt import service (which journals messages if TntConnect is open)
+            if (!TntDb.startImportService())
+                return EXIT_FAILED;
+
+            // Start email import service & wait until all messages are retrieved and processed
+            EmailModel.startImportService(restart);
+            waitWhile(() -> EmailModel.isImporting() || MessageModel.hasMessages());
+
+            // The Tnt import service finishes the message in progress before stopping
+            TntDb.stopImportService();
+            waitWhile(() -> TntDb.isImporting());
+        } finally {
+            TntDb.removePropertyChangeListener(this);
+            HistoryModel.removePropertyChangeListener(this);
+        }
+
+        printSummary();
+
+        if (reporter.getErrorCount() > 0 || getStatusCount(History.STATUS_ERROR) > 0)
+            return EXIT_ERRORS;
+        return EXIT_SUCCESS;
+    }
+
+}
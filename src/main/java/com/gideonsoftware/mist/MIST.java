@@ -20,6 +20,8 @@
 
 package com.gideonsoftware.mist;
 
+import static com.gideonsoftware.mist.util.Util.setReporter;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -56,11 +58,14 @@ import com.gideonsoftware.mist.model.UpdateModel;
 import com.gideonsoftware.mist.preferences.MistPreferenceManager;
 import com.gideonsoftware.mist.preferences.Preferences;
 import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.TntDbWriter;
+import com.gideonsoftware.mist.util.ConsoleReporter;
 import com.gideonsoftware.mist.util.ui.Images;
 import com.gideonsoftware.mist.util.ui.SmartWizardDialog;
 import com.gideonsoftware.mist.views.MainWindowView;
 import com.gideonsoftware.mist.wizards.firsttimesetup.FirstTimeSetupWizard;
 
+import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import net.htmlparser.jericho.LoggerProvider;
@@ -86,6 +91,9 @@ public class MIST {
     public final static String REGEX_EMAILADDRESS = "([a-zA-Z0-9+._-]+@[a-zA-Z0-9._-]+\\.[a-zA-Z0-9_-]+)";
 
     public final static String OPTION_PROFILE = "profile";
+    public final static String OPTION_IMPORT = "import";
+    public final static String OPTION_HEADLESS = "headless";
+    public final static String OPTION_RESTART = "restart";
 
     // Preferences
     public final static String PREF_LOGFILE_LOGLEVEL = "mist.logfile.loglevel";
@@ -262,6 +270,13 @@ public class MIST {
         return Files.exists(Path.of("devel"));
     }
 
+    /**
+     * Returns true if MIST is running without a user interface (see {@link #OPTION_HEADLESS}).
+     */
+    public static boolean isHeadless() {
+        return options != null && options.has(OPTION_HEADLESS);
+    }
+
     public static void main(String[] args) {
 
         //
@@ -269,7 +284,12 @@ public class MIST {
         //
 
         // Command-line arguments
-        parseOptions(args);
+        try {
+            parseOptions(args);
+        } catch (OptionException e) {
+            System.err.println(e.getMessage());
+            System.exit(HeadlessImport.EXIT_FAILED);
+        }
 
         // User settings
         configureUserSettings();
@@ -284,6 +304,10 @@ public class MIST {
         MIST.getPrefs().setDefault(PREF_LOGFILE_LOGLEVEL, Level.WARN.name()); // If changed, see LoggingPreferencePage
         setLogfileLogLevel(MIST.getPrefs().getString(PREF_LOGFILE_LOGLEVEL));
 
+        // Headless import (no display)
+        if (isHeadless())
+            System.exit(runHeadlessImport());
+
         // Display & images
         Display.setAppName(APP_NAME);
         display = new Display(); // Needed for ImageManager::init()
@@ -313,9 +337,31 @@ public class MIST {
     public static void parseOptions(String[] opts) {
         OptionParser parser = new OptionParser();
         parser.accepts(OPTION_PROFILE).withRequiredArg();
+        parser.accepts(OPTION_HEADLESS);
+        parser.accepts(OPTION_IMPORT).requiredIf(OPTION_HEADLESS).availableIf(OPTION_HEADLESS);
+        parser.accepts(OPTION_RESTART).availableIf(OPTION_IMPORT);
         options = parser.parse(opts);
     }
 
+    /**
+     * Runs a single import without a user interface, reporting errors and a summary to the console.
+     *
+     * @return the process exit status
+     * @see HeadlessImport
+     */
+    private static int runHeadlessImport() {
+        log.trace("runHeadlessImport()");
+        ConsoleReporter reporter = new ConsoleReporter();
+        setReporter(reporter);
+
+        initModel();
+        int exitStatus = new HeadlessImport(reporter, System.out, options.has(OPTION_RESTART)).run();
+
+        shutdown();
+        log.info("Headless import finished with exit status {}", exitStatus);
+        return exitStatus;
+    }
+
     public static void securePath(String dir) {
         if (log != null)
             log.trace("securePath({})", dir);
@@ -393,6 +439,10 @@ public class MIST {
             }
         }
 
+        // Finish saving edits made in the UI (e.g. to history subjects)
+        log.trace("shutdown: Finishing Tnt database edits...");
+        TntDbWriter.waitForWrites();
+
         // Shut down Tnt import service
         if (TntDb.isImporting()) {
             log.trace("shutdown: Shutting down TntConnect import service...");
@@ -20,19 +20,24 @@
 
 package com.gideonsoftware.mist.controllers;
 
+import java.util.Arrays;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jface.window.Window;
 import org.eclipse.jface.wizard.WizardDialog;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.MessageBox;
 
 import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.HistoryModel;
-import com.gideonsoftware.mist.model.MessageModel;
-import com.gideonsoftware.mist.model.data.MessageSource;
+import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.entities.Contact;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
 import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.EmailAddressMatcher;
 import com.gideonsoftware.mist.views.ContactDetailsView;
 import com.gideonsoftware.mist.wizards.ignorecontact.IgnoreContactWizard;
 import com.gideonsoftware.mist.wizards.matchcontact.MatchContactWizard;
@@ -56,22 +61,34 @@ public class ContactDetailsController {
                 ContactInfo matchedContactInfo = new ContactInfo(view.getContactInfo());
                 WizardDialog dlg = new WizardDialog(view.getShell(), new MatchContactWizard(matchedContactInfo));
                 if (dlg.open() == Window.OK) {
-                    // The view still contains old info; get associated history now
-                    History[] historyArr = HistoryModel.getAllHistoryWithContactInfo(view.getContactInfo());
-
-                    // Remove the history
-                    HistoryModel.removeAllHistoryWithContactInfo(view.getContactInfo());
-
-                    for (History history : historyArr) {
-                        MessageSource msgSource = history.getMessageSource();
-                        // Don't put existing history into our model a second time. Otherwise, a message to multiple
-                        // contacts could show duplicates in the model (though not in the DB)
-                        msgSource.setAddExistingHistory(false);
+                    // The view still contains old info; point its history at the matched contact and add it to Tnt
+                    // (rather than reprocessing its messages, which would look up every other recipient again)
+                    History[] historyArr = HistoryModel.resolveHistoryWithContactInfo(
+                        view.getContactInfo(),
+                        matchedContactInfo);
+                    TntDb.addResolvedHistory(historyArr);
+                    // (Older emails can be found with Find Older Emails; searching now would just download and process
+                    // these messages again)
+                }
+            }
+        });
 
-                        // Add the message back into the queue for reprocessing
-                        MessageModel.addMessage(msgSource);
-                    }
+        view.getFindEmailsButton().addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                log.trace("findEmailsButton.widgetSelected({})", event);
+                Contact contact = view.getContact();
+                if (contact == null)
+                    return;
+                if (EmailModel.isImporting()) {
+                    String msg = "Emails may not be searched for while import is running.";
+                    log.debug(msg);
+                    MessageBox msgBox = new MessageBox(view.getShell(), SWT.ICON_INFORMATION | SWT.OK);
+                    msgBox.setMessage(msg);
+                    msgBox.open();
+                    return;
                 }
+                startBackfill(contact.getEmails(true, true));
             }
         });
 
@@ -80,22 +97,40 @@ public class ContactDetailsController {
             public void widgetSelected(SelectionEvent event) {
                 log.trace("ignoreContactButton.widgetSelected({})", event);
                 ContactInfo contactInfo = new ContactInfo(view.getContactInfo());
-                WizardDialog dlg = new WizardDialog(view.getShell(), new IgnoreContactWizard(contactInfo));
+                IgnoreContactWizard wizard = new IgnoreContactWizard(contactInfo);
+                WizardDialog dlg = new WizardDialog(view.getShell(), wizard);
                 if (dlg.open() == Window.OK) {
-                    // Check all unknown history to see if anything there should be ignored now
+                    // Check each unknown contact to see if it matches what was just ignored
                     // This must be done because of wildcards
-                    for (History history : HistoryModel.getUnknownHistory()) {
-                        ContactInfo ci = history.getContactInfo();
-                        String email = ci.getInfo();
-                        int serverId = history.getMessageSource().getSourceId();
-                        if (EmailModel.isEmailInIgnoreList(email)) {
+                    EmailAddressMatcher matcher = new EmailAddressMatcher(new String[] { wizard.getIgnoredEmail() });
+                    for (ContactInfo ci : HistoryModel.getUnknownContacts()) {
+                        if (!matcher.matches(ci.getInfo()))
+                            continue;
+                        if (wizard.isIgnoredGlobally()) {
                             HistoryModel.removeAllHistoryWithContactInfo(ci);
-                        } else if (EmailModel.getEmailServer(serverId).isEmailInIgnoreList(email)) {
-                            HistoryModel.removeAllHistoryWithContactInfo(ci, serverId);
+                        } else {
+                            for (int serverId : wizard.getIgnoredServerIds())
+                                HistoryModel.removeAllHistoryWithContactInfo(ci, serverId);
                         }
                     }
                 }
             }
         });
     }
+
+    /**
+     * Imports only the messages from or to the specified email addresses, using each email server's own search rather
+     * than re-importing every message. Messages that have already been imported are skipped as usual.
+     */
+    private static void startBackfill(String[] addresses) {
+        log.trace("startBackfill({})", Arrays.toString(addresses));
+        if (addresses.length == 0)
+            return;
+
+        // Start Tnt import service in case it isn't running (if TntConnect is open, it journals messages instead)
+        if (!TntDb.startImportService())
+            return;
+
+        EmailModel.startBackfillService(addresses);
+    }
 }
@@ -54,12 +54,12 @@ public class ImportButtonController {
                     MessageModel.init();
 
                     // Start Tnt import service (which runs until MIST closes or Tnt settings change)
-                    TntDb.startImportService();
-                    if (!TntDb.isConnected())
+                    // If TntConnect is open, it journals messages to add to Tnt next time
+                    if (!TntDb.startImportService())
                         return;
 
-                    // Start email import service
-                    EmailModel.startImportService();
+                    // Start email import service (resuming interrupted imports unless asked to start over)
+                    EmailModel.startImportService(view.getRestartButton().getSelection());
                 }
             }
         });
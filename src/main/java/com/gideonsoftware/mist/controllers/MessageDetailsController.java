@@ -21,6 +21,7 @@
 package com.gideonsoftware.mist.controllers;
 
 import java.sql.SQLException;
+import java.util.function.BiConsumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -30,13 +31,28 @@ import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
 
 import com.gideonsoftware.mist.tntapi.HistoryManager;
+import com.gideonsoftware.mist.tntapi.TntDbWriter;
 import com.gideonsoftware.mist.tntapi.entities.History;
 import com.gideonsoftware.mist.util.Util;
 import com.gideonsoftware.mist.views.MessageDetailsView;
 
+/**
+ * Saves edits made in the message details view to Tnt. The history (and view) show each edit right away, while it's
+ * written to the Tnt database in the background by {@link TntDbWriter}; if the write fails, the edit is undone.
+ */
 public class MessageDetailsController {
+    /**
+     * Writes one of a history's checkbox fields to Tnt (e.g. {@link HistoryManager#updateIsChallenge(int, boolean)})
+     */
+    @FunctionalInterface
+    private interface CheckBoxUpdate {
+        void update(int historyId, boolean selection) throws SQLException;
+    }
+
     private static Logger log = LogManager.getLogger();
 
     private MessageDetailsView view;
@@ -71,6 +87,12 @@ public class MessageDetailsController {
             @Override
             public void modifyText(ModifyEvent event) {
                 if (view != null && !view.isDisposed()) {
+                    // Only the user's edits are saved (not e.g. a newly-selected history's body, or a blank one while
+                    // it's loading)
+                    if (view.isSettingMessageText()) {
+                        msgStr = null;
+                        return;
+                    }
                     msgStr = view.getMessageText().getText();
                     if (view.getHistory() != null)
                         historyId = view.getHistory().getHistoryId(); // Keep our cached copy in case view gets disposed
@@ -98,16 +120,12 @@ public class MessageDetailsController {
             @Override
             public void widgetSelected(SelectionEvent event) {
                 log.trace("challengeCheckBox.widgetSelected({})", event);
-                // Don't need our cached copy since a checkbox selection requires an enabled view
-                History history = view.getHistory();
-                boolean selection = view.getChallengeCheckBox().getSelection();
-                history.setChallenge(selection);
-                try {
-                    HistoryManager.updateIsChallenge(history.getHistoryId(), selection);
-                } catch (SQLException e) {
-                    String msg = "Could not update Partnership Challenge status";
-                    Util.reportError("Update error", msg, e);
-                }
+                updateCheckBox(
+                    "IsChallenge",
+                    view.getChallengeCheckBox(),
+                    History::setChallenge,
+                    HistoryManager::updateIsChallenge,
+                    "Could not update Partnership Challenge status");
             }
         });
 
@@ -115,16 +133,12 @@ public class MessageDetailsController {
             @Override
             public void widgetSelected(SelectionEvent event) {
                 log.trace("thankCheckBox.widgetSelected({})", event);
-                // Don't need our cached copy since a checkbox selection requires an enabled view
-                History history = view.getHistory();
-                boolean selection = view.getThankCheckBox().getSelection();
-                history.setThank(selection);
-                try {
-                    HistoryManager.updateIsThank(history.getHistoryId(), selection);
-                } catch (SQLException e) {
-                    String msg = "Could not update Thank status";
-                    Util.reportError("Update error", msg, e);
-                }
+                updateCheckBox(
+                    "IsThank",
+                    view.getThankCheckBox(),
+                    History::setThank,
+                    HistoryManager::updateIsThank,
+                    "Could not update Thank status");
             }
         });
 
@@ -132,48 +146,94 @@ public class MessageDetailsController {
             @Override
             public void widgetSelected(SelectionEvent event) {
                 log.trace("massMailingCheckBox.widgetSelected({})", event);
-                // Don't need our cached copy since a checkbox selection requires an enabled view
-                History history = view.getHistory();
-                boolean selection = view.getMassMailingCheckBox().getSelection();
-                history.setMassMailing(selection);
-                try {
-                    HistoryManager.updateIsMassMailing(history.getHistoryId(), selection);
-                } catch (SQLException e) {
-                    String msg = "Could not update Mass Mailing status";
-                    Util.reportError("Update error", msg, e);
-                }
+                updateCheckBox(
+                    "IsMassMailing",
+                    view.getMassMailingCheckBox(),
+                    History::setMassMailing,
+                    HistoryManager::updateIsMassMailing,
+                    "Could not update Mass Mailing status");
             }
         });
 
     }
 
+    /**
+     * Saves the edited history body to Tnt (in the background). If that fails, the history's body is put back.
+     */
     public void commitMessageToTntDb() {
         log.trace("commitMessageToTntDb");
         if (historyId == null || msgStr == null)
             return;
 
-        if (view != null && !view.isDisposed() & view.getHistory() != null)
-            view.getHistory().setNotes(msgStr);
+        int id = historyId;
+        String notes = msgStr;
+        History history = getViewHistory();
+        String oldNotes = history == null ? null : history.getNotes();
+        if (history != null)
+            history.setNotes(notes);
 
-        try {
-            HistoryManager.updateNotes(historyId, msgStr);
-        } catch (SQLException e) {
+        TntDbWriter.submit("Notes." + id, () -> HistoryManager.updateNotes(id, notes), e -> {
+            if (history != null)
+                history.setNotes(oldNotes);
             Util.reportError("Update error", "Could not update history body", e);
-        }
+        });
     }
 
+    /**
+     * Saves the edited history subject to Tnt (in the background). If that fails, the history's subject is put back.
+     */
     public void commitSubjectToTntDb() {
         log.trace("commitSubjectToTntDb");
         if (historyId == null || subjectStr == null)
             return;
 
-        if (view != null && !view.isDisposed() & view.getHistory() != null)
-            view.getHistory().setDescription(subjectStr);
+        int id = historyId;
+        String description = subjectStr;
+        History history = getViewHistory();
+        String oldDescription = history == null ? null : history.getDescription();
+        if (history != null)
+            history.setDescription(description);
 
-        try {
-            HistoryManager.updateDescription(historyId, subjectStr);
-        } catch (SQLException e) {
+        TntDbWriter.submit("Description." + id, () -> HistoryManager.updateDescription(id, description), e -> {
+            if (history != null)
+                history.setDescription(oldDescription);
             Util.reportError("Update error", "Could not update history subject", e);
-        }
+        });
+    }
+
+    /**
+     * Returns the history shown in the view, or null if there's none (or the view has been disposed).
+     */
+    private History getViewHistory() {
+        if (view == null || view.isDisposed())
+            return null;
+        return view.getHistory();
+    }
+
+    /**
+     * Applies a checkbox change to the view's history right away, and saves it to Tnt (in the background). If that
+     * fails, the history (and the checkbox, if it's still showing the same history) is put back.
+     */
+    private void updateCheckBox(
+        String field,
+        Button checkBox,
+        BiConsumer<History, Boolean> setter,
+        CheckBoxUpdate update,
+        String errorMsg) {
+        // Don't need our cached copy since a checkbox selection requires an enabled view
+        History history = view.getHistory();
+        int id = history.getHistoryId();
+        boolean selection = checkBox.getSelection();
+        setter.accept(history, selection);
+
+        // If a change to the same checkbox is still waiting, this replaces it (so rapid toggles are written once)
+        TntDbWriter.submit(field + "." + id, () -> update.update(id, selection), e -> {
+            setter.accept(history, !selection);
+            Display.getDefault().asyncExec(() -> {
+                if (!view.isDisposed() && view.getHistory() == history)
+                    checkBox.setSelection(!selection);
+            });
+            Util.reportError("Update error", errorMsg, e);
+        });
     }
 }
@@ -22,18 +22,22 @@ package com.gideonsoftware.mist.model;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.eclipse.jface.dialogs.MessageDialog;
-import org.eclipse.swt.widgets.Display;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.model.data.GmailServer;
 import com.gideonsoftware.mist.model.data.ImapServer;
+import com.gideonsoftware.mist.model.data.LocalServer;
+import com.gideonsoftware.mist.model.data.MessageCache;
+import com.gideonsoftware.mist.util.EmailAddressMatcher;
+import com.gideonsoftware.mist.util.Util;
 
 public class EmailModel {
     private static Logger log = LogManager.getLogger();
@@ -42,12 +46,16 @@ public class EmailModel {
     public final static String PREF_ADDRESSES_IGNORE = "email.addresses.ignore";
     public final static String PREF_AUTOTHANK_ENABLED = "email.autothank.enabled";
     public final static String PREF_AUTOTHANK_SUBJECTS = "email.autothank.subjects";
+    public final static String PREF_CACHE_ENABLED = "email.cache.enabled";
+    public final static String PREF_CACHE_SIZE = "email.cache.size";
     public final static String PREF_EMAILSERVERS_COUNT = "email.emailservers.count";
 
     // Default values
     private final static String[] DEFAULT_ADDRESSES_IGNORE = new String[] { "mailer-daemon@*" };
     private final static boolean DEFAULT_AUTOTHANK_ENABLED = true;
     private final static String[] DEFAULT_AUTOTHANK_SUBJECTS = new String[] { "Thank" };
+    private final static boolean DEFAULT_CACHE_ENABLED = false;
+    private final static int DEFAULT_CACHE_SIZE = 256; // MB
 
     // Property change values
     private final static PropertyChangeSupport pcs = new PropertyChangeSupport(EmailModel.class);
@@ -59,14 +67,35 @@ public class EmailModel {
 
     private static List<EmailServer> emailServers = new ArrayList<EmailServer>();
 
-    private static boolean importing = false;
+    private static volatile boolean importing = false;
     private static boolean messagesLoading = false;
 
+    /**
+     * Compiled global ignore list; rebuilt whenever the preference changes
+     */
+    private static volatile EmailAddressMatcher ignoreMatcher;
+
+    /**
+     * Cache of downloaded messages; see getMessageCache()
+     */
+    private static MessageCache messageCache = null;
+
     static {
         // Set default preferences
         MIST.getPrefs().setDefault(PREF_AUTOTHANK_ENABLED, DEFAULT_AUTOTHANK_ENABLED);
         MIST.getPrefs().setDefault(PREF_AUTOTHANK_SUBJECTS, DEFAULT_AUTOTHANK_SUBJECTS);
         MIST.getPrefs().setDefault(PREF_ADDRESSES_IGNORE, DEFAULT_ADDRESSES_IGNORE);
+        MIST.getPrefs().setDefault(PREF_CACHE_ENABLED, DEFAULT_CACHE_ENABLED);
+        MIST.getPrefs().setDefault(PREF_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+
+        // Compile the ignore list now and again whenever it's changed (e.g. via preferences or "Ignore Contact")
+        ignoreMatcher = new EmailAddressMatcher(MIST.getPrefs().getStrings(PREF_ADDRESSES_IGNORE));
+        MIST.getPrefs().addPropertyChangeListener(event -> {
+            if (PREF_ADDRESSES_IGNORE.equals(event.getProperty()))
+                ignoreMatcher = new EmailAddressMatcher(MIST.getPrefs().getStrings(PREF_ADDRESSES_IGNORE));
+            else if (PREF_CACHE_SIZE.equals(event.getProperty()))
+                updateMessageCacheSize();
+        });
     }
 
     /**
@@ -121,6 +150,18 @@ public class EmailModel {
         return emailServers.get(serverId);
     }
 
+    /**
+     * Returns the email server with the specified ledger ID, or null if there isn't one.
+     *
+     * @see EmailServer#getLedgerId()
+     */
+    public static EmailServer getEmailServerByLedgerId(String ledgerId) {
+        for (EmailServer emailServer : emailServers)
+            if (emailServer != null && emailServer.getLedgerId().equals(ledgerId))
+                return emailServer;
+        return null;
+    }
+
     public static int getEmailServerCount() {
         return emailServers.size();
     }
@@ -147,6 +188,21 @@ public class EmailModel {
         return count;
     }
 
+    /**
+     * Returns the cache of downloaded messages, or null if message caching is turned off.
+     */
+    public static synchronized MessageCache getMessageCache() {
+        if (!MIST.getPrefs().getBoolean(PREF_CACHE_ENABLED))
+            return null;
+        if (messageCache == null)
+            messageCache = new MessageCache(Paths.get(MIST.getAppConfDir(), "cache"), getMessageCacheMaxBytes());
+        return messageCache;
+    }
+
+    private static long getMessageCacheMaxBytes() {
+        return Math.max(MIST.getPrefs().getInt(PREF_CACHE_SIZE), 0) * 1024L * 1024L;
+    }
+
     public static int getMessageCountTotal() {
         int totalMessages = 0;
         for (EmailServer emailServer : emailServers)
@@ -155,35 +211,38 @@ public class EmailModel {
         return totalMessages;
     }
 
+    /**
+     * Returns a short description of how far the current import from each connected server has got (one per line).
+     */
+    public static String getProgressDescription() {
+        List<String> lines = new ArrayList<String>();
+        for (EmailServer emailServer : emailServers)
+            if (emailServer.isConnected())
+                lines.add(emailServer.getProgressDescription());
+        return String.join("\n", lines);
+    }
+
     public static void init() {
         log.trace("init()");
         // Load email servers
         loadEmailServers();
     }
 
-    public static boolean isEmailInIgnoreList(String email) {
-        log.trace("isEmailInList({})", email);
-        String[] ignoreList = MIST.getPrefs().getStrings(PREF_ADDRESSES_IGNORE);
-        return isEmailInList(email, ignoreList);
-    }
-
-    public static boolean isEmailInList(String email, String[] list) {
-        log.trace("isEmailInList({},{})", email, list);
-        for (String entry : list) {
-            if (entry.contains("*") || entry.contains("?")) {
-                // Wildcard match
-                String regex = entry.toLowerCase().replace(".", "\\.").replace("*", ".*").replace('?', '.');
-                if (email.toLowerCase().matches(regex))
-                    return true;
-            } else {
-                // Standard string match
-                if (entry.equalsIgnoreCase(email))
-                    return true;
-            }
-        }
+    /**
+     * Returns true if an enabled server has an import checkpoint (i.e. its last import was interrupted).
+     */
+    public static boolean hasImportCheckpoint() {
+        for (EmailServer emailServer : emailServers)
+            if (emailServer != null && emailServer.isEnabled() && emailServer.getImportCheckpoint().get() != null)
+                return true;
         return false;
     }
 
+    public static boolean isEmailInIgnoreList(String email) {
+        log.trace("isEmailInIgnoreList({})", email);
+        return ignoreMatcher.matches(email);
+    }
+
     public static boolean isImporting() {
         return importing;
     }
@@ -215,6 +274,8 @@ public class EmailModel {
                 server = new ImapServer(i);
             else if (EmailServer.TYPE_GMAIL.equals(type))
                 server = new GmailServer(i);
+            else if (EmailServer.TYPE_LOCAL.equals(type))
+                server = new LocalServer(i);
             addEmailServer(server);
         }
         pcs.firePropertyChange(PROP_EMAILSERVERS_INIT, null, emailServers.size());
@@ -234,6 +295,8 @@ public class EmailModel {
         emailServers.remove(server);
         MIST.getPrefs().setValue(PREF_EMAILSERVERS_COUNT, emailServers.size());
 
+        server.getImportLedger().clear(); // Deletes the ledger file
+        server.getImportCheckpoint().clear(); // Deletes the checkpoint file
         server.clearPreferences(); // So the server is no longer stored in preferences
         pcs.firePropertyChange(PROP_EMAILSERVER_REMOVED, null, id);
         server = null; // Needed?
@@ -271,10 +334,7 @@ public class EmailModel {
         // If we're done importing and there were no messages, tell the user
         if (getMessageCountTotal() == 0) {
             String msg = "There were no messages to import.";
-            log.info(msg);
-            Display.getDefault().asyncExec(() -> {
-                MessageDialog.openInformation(MIST.getView().getShell(), "Import complete", msg);
-            });
+            Util.reportInfo("Import complete", msg);
         }
     }
 
@@ -309,14 +369,49 @@ public class EmailModel {
     }
 
     /**
-     * Starts the master email import service.
+     * Starts the email import service on every enabled server, importing only messages from, to or copied to any of
+     * the specified email addresses (on servers that can search by address; see
+     * {@link EmailServer#startBackfillService(String[])}). This finds a contact's messages without re-importing every
+     * message.
+     *
+     * @param addresses
+     *            the email addresses to search for
+     * @return true if the backfill was started; false if an import is already running
+     */
+    public static boolean startBackfillService(String[] addresses) {
+        log.trace("startBackfillService({})", Arrays.toString(addresses));
+        if (isImporting())
+            return false;
+        setImporting(true);
+        MetricsModel.startRun();
+        HistoryModel.clearMessageIdentities();
+        for (EmailServer emailServer : emailServers)
+            if (emailServer.isEnabled())
+                emailServer.startBackfillService(addresses);
+        return true;
+    }
+
+    /**
+     * Starts the master email import service, resuming interrupted imports where they left off.
      */
     public static void startImportService() {
-        log.trace("startImportService()");
+        startImportService(false);
+    }
+
+    /**
+     * Starts the master email import service.
+     *
+     * @param restart
+     *            true to import from the first message on every server; false to resume interrupted imports
+     */
+    public static void startImportService(boolean restart) {
+        log.trace("startImportService({})", restart);
         setImporting(true);
+        MetricsModel.startRun(); // Once importing, so the Tnt import service doesn't finish the run right away
+        HistoryModel.clearMessageIdentities();
         for (EmailServer emailServer : emailServers)
             if (emailServer.isEnabled())
-                emailServer.startImportService();
+                emailServer.startImportService(restart);
     }
 
     public static void stopImportService() {
@@ -326,4 +421,9 @@ public class EmailModel {
         // setImporting(false) will eventually be called once all servers have completed
     }
 
+    private static synchronized void updateMessageCacheSize() {
+        if (messageCache != null)
+            messageCache.setMaxBytes(getMessageCacheMaxBytes());
+    }
+
 }
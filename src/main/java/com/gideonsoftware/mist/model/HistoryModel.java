@@ -24,9 +24,15 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,13 +40,18 @@ import org.apache.logging.log4j.Logger;
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.HistoryException;
 import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.model.MetricsModel.Count;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
 import com.gideonsoftware.mist.model.data.EmailMessage;
+import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.model.data.MessageSource;
-import com.gideonsoftware.mist.tntapi.ContactManager;
+import com.gideonsoftware.mist.tntapi.ContactDirectory;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
+import com.gideonsoftware.mist.tntapi.entities.ContactMatch;
 import com.gideonsoftware.mist.tntapi.entities.History;
 import com.gideonsoftware.mist.tntapi.entities.TaskType;
-import com.gideonsoftware.mist.util.Util;
 
 import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
@@ -60,14 +71,16 @@ public class HistoryModel {
     public final static String PROP_MESSAGE_IGNORED = "historymodel.message.ignored";
 
     /**
-     * A list of all history added to Tnt (including errors)
-     */
-    private static volatile ArrayList<History> historyArr = new ArrayList<History>();
-
-    /**
-     * Number of examined emails since init
+     * All history added to Tnt (including errors), indexed by message unique ID, by contact, and by whether the
+     * contact is unknown. Each index keeps its history in the order it was added.
+     * <p>
+     * History is added by the import thread and read by the views, so all access to these indexes is synchronized on
+     * historyLock. Property change events are fired outside of the lock.
      */
-    private static int examinedEmailsCount;
+    private final static Object historyLock = new Object();
+    private final static Map<String, List<History>> historyByMessage = new HashMap<String, List<History>>();
+    private final static Map<ContactInfo, List<History>> historyByContact = new HashMap<ContactInfo, List<History>>();
+    private final static Set<History> unknownHistory = new LinkedHashSet<History>();
 
     /**
      * Map of the count of distinct history associated with each message.
@@ -75,7 +88,18 @@ public class HistoryModel {
      * This is needed particularly for tracking when a message has been fully processed (e.g. all its history items are
      * successfully processed) so that post-processing of message can take place (e.g. Gmail auto-label removal)
      */
-    private static HashMap<String, Integer> messageHistoryCountMap = null;
+    private static Map<String, Integer> messageHistoryCountMap = null;
+
+    /**
+     * Map of each message identity examined in the current import run to the ID of the email server it first came
+     * from.
+     * <p>
+     * The same message can arrive through more than one email account (e.g. Gmail and an IMAP alias); only the first
+     * copy is processed.
+     *
+     * @see MessageSource#getIdentity()
+     */
+    private static Map<UUID, Integer> messageIdentityMap = null;
 
     /**
      * No instantiation allowed!
@@ -90,38 +114,88 @@ public class HistoryModel {
      * @param history
      *            the history to add contact info to
      * @throws HistoryException
-     *             TODO
+     *             if there is a problem looking up the contact in Tnt
      */
     public static void addContactInfoFromTnt(History history) throws HistoryException {
         log.trace("{{}} addContactInfoFromTnt()", history);
+        String email = history.getContactInfo().getInfo();
+        addContactInfoFromTnt(history, resolveEmails(Collections.singletonList(email)).get(email));
+    }
 
-        try {
-            int numMatches = ContactManager.getContactsByEmailCount(history.getContactInfo().getInfo());
-            if (numMatches == 0) {
-                log.debug(
-                    "Contact not found in Tnt for '{}'. Skipping message for this contact.",
-                    history.getContactInfo().getInfo());
-                if (history.getStatus() == History.STATUS_NONE)
-                    history.setStatus(History.STATUS_CONTACT_NOT_FOUND);
-            } else if (numMatches > 1) {
-                log.warn(
-                    "Multiple contacts found in Tnt for '{}'. Skipping message for these contacts.",
-                    history.getContactInfo().getInfo());
-                if (history.getStatus() == History.STATUS_NONE)
-                    history.setStatus(History.STATUS_MULTIPLE_CONTACTS_FOUND);
-            } else {
-                history.getContactInfo().setId(ContactManager.getContactIdByEmail(history.getContactInfo().getInfo()));
-                history.getContactInfo().setName(ContactManager.getFileAs(history.getContactInfo().getId()));
-            }
-        } catch (TntDbException | SQLException e) {
-            throw new HistoryException("There was a problem finding a contact for this message.", e);
+    /**
+     * Add in contact info from an already-resolved contact match. Change status if there are no associated contacts
+     * or multiple contacts.
+     * 
+     * @param history
+     *            the history to add contact info to
+     * @param match
+     *            the contact match for the history's email address
+     */
+    private static void addContactInfoFromTnt(History history, ContactMatch match) {
+        log.trace("{{}} addContactInfoFromTnt({})", history, match);
+
+        if (match.getMatchCount() == 0) {
+            log.debug(
+                "Contact not found in Tnt for '{}'. Skipping message for this contact.",
+                history.getContactInfo().getInfo());
+            if (history.getStatus() == History.STATUS_NONE)
+                history.setStatus(History.STATUS_CONTACT_NOT_FOUND);
+        } else if (match.getMatchCount() > 1) {
+            log.warn(
+                "Multiple contacts found in Tnt for '{}'. Skipping message for these contacts.",
+                history.getContactInfo().getInfo());
+            if (history.getStatus() == History.STATUS_NONE)
+                history.setStatus(History.STATUS_MULTIPLE_CONTACTS_FOUND);
+        } else {
+            history.getContactInfo().setId(match.getContactId());
+            history.getContactInfo().setName(match.getFileAs());
         }
     }
 
     public static void addHistory(History history) {
         log.trace("addHistory({})", history);
-        // Add to history list
-        historyArr.add(history);
+
+        // History that's in Tnt doesn't need its body in memory (it's loaded from Tnt when the history is shown)
+        boolean compacted = history.compact();
+
+        // Add to history indexes
+        boolean messageInTnt;
+        List<History> replacedList = new ArrayList<History>();
+        synchronized (historyLock) {
+            String uniqueId = history.getMessageSource().getUniqueId();
+            List<History> messageHistory = historyByMessage.computeIfAbsent(uniqueId, k -> new ArrayList<History>());
+
+            // History from an earlier copy of the message (i.e. one that's being processed again) is replaced
+            for (Iterator<History> it = messageHistory.iterator(); it.hasNext();) {
+                History earlier = it.next();
+                if (earlier.getMessageSource() != history.getMessageSource()) {
+                    it.remove();
+                    replacedList.add(earlier);
+                    ContactInfo info = earlier.getContactInfo();
+                    List<History> contactList = historyByContact.get(info);
+                    if (contactList != null) {
+                        contactList.remove(earlier);
+                        if (contactList.isEmpty())
+                            historyByContact.remove(info);
+                    }
+                    unknownHistory.remove(earlier);
+                }
+            }
+
+            messageHistory.add(history);
+            messageInTnt = compacted && isInTnt(messageHistory, getHistoryCountForMessage(uniqueId));
+            historyByContact
+                .computeIfAbsent(new ContactInfo(history.getContactInfo()), k -> new ArrayList<History>())
+                .add(history);
+            if (history.getContactInfo().getId() == null)
+                unknownHistory.add(history);
+        }
+
+        // The message's content is shared by all of its history, so it's only dropped once all of that is in Tnt
+        if (messageInTnt)
+            history.getMessageSource().compact();
+        for (History replaced : replacedList)
+            pcs.firePropertyChange(PROP_HISTORY_REMOVE, null, replaced);
         pcs.firePropertyChange(PROP_HISTORY_ADD, null, history);
     }
 
@@ -130,30 +204,36 @@ public class HistoryModel {
         pcs.addPropertyChangeListener(listener);
     }
 
+    /**
+     * Forgets which email account each message was first processed from, so a new import run processes each message
+     * from the first account it arrives through (messages whose history is all in Tnt are still skipped).
+     */
+    public static void clearMessageIdentities() {
+        log.trace("clearMessageIdentities()");
+        messageIdentityMap.clear();
+    }
+
     public static History[] getAllHistoryFromMessageSource(MessageSource msg) {
         log.trace("getAllHistoryFromMessageSource({})", msg);
-        ArrayList<History> retArr = new ArrayList<History>();
-        for (Iterator<History> it = historyArr.iterator(); it.hasNext();) {
-            History history = it.next();
-            if (history.getMessageSource().getUniqueId().equals(msg.getUniqueId()))
-                retArr.add(history);
+        synchronized (historyLock) {
+            List<History> historyList = historyByMessage.get(msg.getUniqueId());
+            return historyList == null ? new History[0] : historyList.toArray(new History[0]);
         }
-        return retArr.toArray(new History[0]);
     }
 
     public static History[] getAllHistoryWithContactInfo(ContactInfo info) {
         log.trace("getAllHistoryWithContactInfo({})", info);
-        ArrayList<History> retArr = new ArrayList<History>();
-        for (Iterator<History> it = historyArr.iterator(); it.hasNext();) {
-            History history = it.next();
-            if (history.getContactInfo().equals(info))
-                retArr.add(history);
+        synchronized (historyLock) {
+            List<History> historyList = historyByContact.get(info);
+            return historyList == null ? new History[0] : historyList.toArray(new History[0]);
         }
-        return retArr.toArray(new History[0]);
     }
 
+    /**
+     * Returns the number of emails examined in the current (or last) import run.
+     */
     public static int getExaminedEmailsCount() {
-        return examinedEmailsCount;
+        return (int) MetricsModel.getMetrics().getCount(Count.EXAMINED);
     }
 
     /**
@@ -164,21 +244,37 @@ public class HistoryModel {
     public static History[] getHistory(EmailMessage msg) {
         log.trace("getHistory({})", msg);
 
-        // Increment counters
-        examinedEmailsCount++;
-        Util.incPrefCounter(MIST.PREF_TOTAL_EXAMINED_EMAILS, 1);
+        MetricsModel.count(Count.EXAMINED, msg.getSourceId());
+
+        // Have we already processed this message from another email account in this run?
+        Integer firstSourceId = messageIdentityMap.putIfAbsent(msg.getIdentity(), msg.getSourceId());
+        if (firstSourceId != null && !firstSourceId.equals(msg.getSourceId())) {
+            log.debug(
+                "Message was already processed from another email account ('{}'); skipping.",
+                EmailModel.getEmailServer(firstSourceId).getNickname());
+            messageIgnored(msg);
+            return null;
+        }
+
+        // Is all of this message's history already in Tnt (e.g. from an earlier run, before a backfill)?
+        // Otherwise (e.g. if it had errors) it's processed again, and its new history replaces the old
+        if (isMessageInTnt(msg.getUniqueId())) {
+            log.debug("Message was already added to Tnt; skipping.");
+            messageIgnored(msg);
+            return null;
+        }
 
         // Is the email from someone on the ignore lists?
         if (EmailModel.isEmailInIgnoreList(msg.getFromId())) {
             log.debug("Sender is in the global ignore list ({}); skipping.", msg.getFromId());
-            pcs.firePropertyChange(PROP_MESSAGE_IGNORED, null, msg);
+            messageIgnored(msg);
             return null;
         } else if (EmailModel.getEmailServer(msg.getSourceId()).isEmailInIgnoreList(msg.getFromId())) {
             log.debug(
                 "Sender is in the server ignore list ({} on '{}'); skipping.",
                 msg.getFromId(),
                 msg.getSourceName());
-            pcs.firePropertyChange(PROP_MESSAGE_IGNORED, null, msg);
+            messageIgnored(msg);
             return null;
         }
 
@@ -195,8 +291,7 @@ public class HistoryModel {
         history.setLoggedByUserId(EmailModel.getEmailServer(msg.getSourceId()).getTntUserId());
 
         History[] historyArr = null;
-        String[] myAddrList = EmailModel.getEmailServer(msg.getSourceId()).getMyAddresses();
-        if (EmailModel.isEmailInList(msg.getFromId(), myAddrList)) {
+        if (EmailModel.getEmailServer(msg.getSourceId()).isEmailInMyList(msg.getFromId())) {
             // If the message is TO one or more contacts, we may need multiple history entries
             historyArr = getHistoryToContact(msg, history);
         } else {
@@ -230,7 +325,9 @@ public class HistoryModel {
         history.getContactInfo().setInfo(msg.getFromId());
 
         try {
+            long start = System.nanoTime();
             addContactInfoFromTnt(history);
+            MetricsModel.record(Stage.RESOLVE, msg.getSourceId(), start);
         } catch (HistoryException e) {
             // Something's busted... Not good. Continue in error state.
             history.setStatus(History.STATUS_ERROR);
@@ -255,6 +352,7 @@ public class HistoryModel {
         List<History> historyList = new ArrayList<History>();
 
         // We need to add history for each recipient
+        EmailServer server = EmailModel.getEmailServer(msg.getSourceId());
         for (int r = 0; r < msg.getRecipients().length; r++) {
 
             History history = new History(his);
@@ -275,38 +373,29 @@ public class HistoryModel {
 
             log.trace("Recipient {}/{}: {}", r + 1, msg.getRecipients().length, recipientEmail);
 
-            String[] myAddrList = EmailModel.getEmailServer(msg.getSourceId()).getMyAddresses();
-            if (EmailModel.isEmailInList(recipientEmail, myAddrList)) {
+            if (server.isEmailInMyList(recipientEmail)) {
                 // This address is also me; skip it
                 log.debug("Message is from me to me ({}); skipping", recipientEmail);
-                pcs.firePropertyChange(PROP_MESSAGE_IGNORED, null, msg);
+                messageIgnored(msg);
                 continue;
             } else if (EmailModel.isEmailInIgnoreList(recipientEmail)) {
                 // This address is globally-ignored; skip it
                 log.debug("Message is from me to a globally-ignored address ({}); skipping", recipientEmail);
-                pcs.firePropertyChange(PROP_MESSAGE_IGNORED, null, msg);
+                messageIgnored(msg);
                 continue;
-            } else if (EmailModel.getEmailServer(msg.getSourceId()).isEmailInIgnoreList(recipientEmail)) {
+            } else if (server.isEmailInIgnoreList(recipientEmail)) {
                 // This address is server-ignored; skip it
                 log.debug(
                     "Message is from me to a server-ignored address ({} on '{}'); skipping",
                     recipientEmail,
                     msg.getSourceName());
-                pcs.firePropertyChange(PROP_MESSAGE_IGNORED, null, msg);
+                messageIgnored(msg);
                 continue;
             }
 
             // This message is from me to one or more people
             log.debug("Processing message from me to {}", recipientEmail);
 
-            try {
-                addContactInfoFromTnt(history);
-            } catch (HistoryException e) {
-                history.setStatus(History.STATUS_ERROR);
-                history.setStatusException(e);
-                log.error(e);
-            }
-
             // If autoThank is enabled, check for thank here
             if (useAutoThank && EmailModel.doesSubjectStartWithPhraseInList(msg.getSubject(), autoThankSubjectArr))
                 history.setThank(true);
@@ -315,31 +404,93 @@ public class HistoryModel {
 
         } // for r in recipients
 
+        // Look up all recipients in Tnt at once
+        List<String> recipientEmails = new ArrayList<String>(historyList.size());
+        for (History history : historyList)
+            recipientEmails.add(history.getContactInfo().getInfo());
+        try {
+            long start = System.nanoTime();
+            Map<String, ContactMatch> matches = resolveEmails(recipientEmails);
+            MetricsModel.record(Stage.RESOLVE, msg.getSourceId(), start);
+            for (History history : historyList)
+                addContactInfoFromTnt(history, matches.get(history.getContactInfo().getInfo()));
+        } catch (HistoryException e) {
+            for (History history : historyList) {
+                history.setStatus(History.STATUS_ERROR);
+                history.setStatusException(e);
+            }
+            log.error(e);
+        }
+
         return historyList.toArray(new History[0]);
     }
 
+    /**
+     * Returns the distinct contact info (i.e. email addresses) of all history whose contact is unknown.
+     */
+    public static ContactInfo[] getUnknownContacts() {
+        log.trace("getUnknownContacts()");
+        List<ContactInfo> contacts = new ArrayList<ContactInfo>();
+        synchronized (historyLock) {
+            for (ContactInfo info : historyByContact.keySet())
+                if (info.getId() == null)
+                    contacts.add(new ContactInfo(info));
+        }
+        return contacts.toArray(new ContactInfo[0]);
+    }
+
     public static History[] getUnknownHistory() {
         log.trace("getUnknownHistory()");
-        ArrayList<History> retArr = new ArrayList<History>();
-        for (Iterator<History> it = historyArr.iterator(); it.hasNext();) {
-            History history = it.next();
-            if (history.getContactInfo().getId() == null)
-                retArr.add(history);
+        synchronized (historyLock) {
+            return unknownHistory.toArray(new History[0]);
         }
-        return retArr.toArray(new History[0]);
     }
 
     public static void init() {
         log.trace("init()");
-        historyArr.clear();
-        examinedEmailsCount = 0;
-        messageHistoryCountMap = new HashMap<String, Integer>();
+        synchronized (historyLock) {
+            historyByMessage.clear();
+            historyByContact.clear();
+            unknownHistory.clear();
+        }
+        messageHistoryCountMap = new ConcurrentHashMap<String, Integer>();
+        messageIdentityMap = new ConcurrentHashMap<UUID, Integer>();
         pcs.firePropertyChange(PROP_HISTORY_INIT, false, true);
 
         useAutoThank = MIST.getPrefs().getBoolean(EmailModel.PREF_AUTOTHANK_ENABLED);
         autoThankSubjectArr = MIST.getPrefs().getStrings(EmailModel.PREF_AUTOTHANK_SUBJECTS);
     }
 
+    /**
+     * Returns whether all of a message's history (the expected count of it) is in Tnt, i.e. added or already existing.
+     */
+    private static boolean isInTnt(List<History> messageHistory, Integer historyCount) {
+        if (historyCount == null || messageHistory.size() != historyCount)
+            return false;
+        for (History history : messageHistory)
+            if (history.getStatus() != History.STATUS_ADDED && history.getStatus() != History.STATUS_EXISTS)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns whether all of the message's history is in Tnt.
+     */
+    private static boolean isMessageInTnt(String uniqueId) {
+        synchronized (historyLock) {
+            List<History> messageHistory = historyByMessage.get(uniqueId);
+            return messageHistory != null && isInTnt(messageHistory, getHistoryCountForMessage(uniqueId));
+        }
+    }
+
+    /**
+     * Counts the ignored message (or recipient) and tells listeners about it.
+     */
+    private static void messageIgnored(EmailMessage msg) {
+        MetricsModel.count(Count.IGNORED, msg.getSourceId());
+        pcs.firePropertyChange(PROP_MESSAGE_IGNORED, null, msg);
+    }
+
     /**
      * 
      * @param info
@@ -356,20 +507,35 @@ public class HistoryModel {
      */
     public static void removeAllHistoryWithContactInfo(ContactInfo info, int serverId) {
         log.trace("removeAllHistoryWithContactInfo({}, {})", info, serverId);
-        for (Iterator<History> it = historyArr.iterator(); it.hasNext();) {
-            History history = it.next();
-            if (history.getContactInfo().equals(info)
-                && (serverId == -1 || history.getMessageSource().getSourceId().equals(serverId))) {
-                it.remove();
-
-                // Update messageHistoryCountMap
-                String uniqueId = history.getMessageSource().getUniqueId();
-                Integer count = messageHistoryCountMap.get(uniqueId);
-                messageHistoryCountMap.put(uniqueId, count - 1);
-
-                pcs.firePropertyChange(PROP_HISTORY_REMOVE, null, history);
+        List<History> removedList = new ArrayList<History>();
+        synchronized (historyLock) {
+            List<History> historyList = historyByContact.get(info);
+            if (historyList != null) {
+                for (Iterator<History> it = historyList.iterator(); it.hasNext();) {
+                    History history = it.next();
+                    if (serverId == -1 || history.getMessageSource().getSourceId().equals(serverId)) {
+                        it.remove();
+                        removedList.add(history);
+
+                        // Update other indexes
+                        String uniqueId = history.getMessageSource().getUniqueId();
+                        List<History> messageList = historyByMessage.get(uniqueId);
+                        messageList.remove(history);
+                        if (messageList.isEmpty())
+                            historyByMessage.remove(uniqueId);
+                        unknownHistory.remove(history);
+
+                        // Update messageHistoryCountMap
+                        messageHistoryCountMap.merge(uniqueId, -1, Integer::sum);
+                    }
+                }
+                if (historyList.isEmpty())
+                    historyByContact.remove(info);
             }
         }
+
+        for (History history : removedList)
+            pcs.firePropertyChange(PROP_HISTORY_REMOVE, null, history);
         pcs.firePropertyChange(PROP_CONTACT_REMOVE, null, info);
     }
 
@@ -378,4 +544,64 @@ public class HistoryModel {
         pcs.removePropertyChangeListener(listener);
     }
 
+    /**
+     * Looks up the specified email addresses in Tnt.
+     * 
+     * @param emails
+     *            the email addresses to look up
+     * @return a map of each email address to its contact match
+     * @throws HistoryException
+     *             if there is a problem looking up the contacts in Tnt
+     */
+    private static Map<String, ContactMatch> resolveEmails(List<String> emails) throws HistoryException {
+        try {
+            return TntDbExecutor.callRead(Priority.BACKGROUND, () -> ContactDirectory.resolveEmails(emails));
+        } catch (TntDbException | SQLException e) {
+            throw new HistoryException("There was a problem finding a contact for this message.", e);
+        }
+    }
+
+    /**
+     * Updates all history with the specified unknown contact info in place to belong to a Tnt contact (e.g. after the
+     * contact has been matched), so it can be added to Tnt without reprocessing the rest of each message's history.
+     * The history is removed from the model until it's added again (once it has been added to Tnt).
+     * <p>
+     * Unlike {@link #removeAllHistoryWithContactInfo(ContactInfo)}, messages' history counts are left alone and no
+     * history remove events are fired, since the history will be added back.
+     *
+     * @param info
+     *            the unknown contact info
+     * @param contact
+     *            the Tnt contact's ID and name
+     * @return the updated history, ready to be added to Tnt
+     * @see com.gideonsoftware.mist.tntapi.TntDb#addResolvedHistory(History[])
+     */
+    public static History[] resolveHistoryWithContactInfo(ContactInfo info, ContactInfo contact) {
+        log.trace("resolveHistoryWithContactInfo({},{})", info, contact);
+        List<History> historyList;
+        synchronized (historyLock) {
+            historyList = historyByContact.remove(info);
+            if (historyList == null)
+                historyList = new ArrayList<History>();
+            for (History history : historyList) {
+                // Update other indexes
+                String uniqueId = history.getMessageSource().getUniqueId();
+                List<History> messageList = historyByMessage.get(uniqueId);
+                messageList.remove(history);
+                if (messageList.isEmpty())
+                    historyByMessage.remove(uniqueId);
+                unknownHistory.remove(history);
+            }
+        }
+        pcs.firePropertyChange(PROP_CONTACT_REMOVE, null, info);
+
+        for (History history : historyList) {
+            history.getContactInfo().setId(contact.getId());
+            history.getContactInfo().setName(contact.getName());
+            history.setStatus(History.STATUS_NONE);
+            history.setStatusException(null);
+        }
+        return historyList.toArray(new History[0]);
+    }
+
 }
@@ -0,0 +1,374 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.model.data.EmailServer;
+import com.gideonsoftware.mist.util.LatencyHistogram;
+import com.gideonsoftware.mist.util.Util;
+
+/**
+ * Counts what happens to imported email and times each stage of importing it, in total and for each email account,
+ * so the numbers can be shown while importing and saved as a summary afterwards.
+ * <p>
+ * The numbers cover an import run, which starts with the email import service and finishes once every message it
+ * retrieved has been processed (or once the Tnt import service stops). They're updated by the import threads without
+ * locking. The running totals kept in preferences ({@link MIST#PREF_TOTAL_EXAMINED_EMAILS} and
+ * {@link MIST#PREF_TOTAL_IMPORTED_EMAILS}) are saved once a run has finished rather than for every message.
+ */
+public class MetricsModel {
+    /**
+     * A stage of importing email, whose latency is recorded
+     */
+    public enum Stage {
+        FETCH("fetch", "Fetch"),
+        PARSE("parse", "Parse"),
+        RESOLVE("resolve", "Contact lookup"),
+        DUPLICATE_CHECK("duplicateCheck", "Duplicate check"),
+        INSERT("insert", "Insert"),
+        COMMIT("commit", "Commit");
+
+        private final String key;
+        private final String label;
+
+        Stage(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        /**
+         * Returns the stage's name in the import summary.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Something that's counted while importing email
+     */
+    public enum Count {
+        EXAMINED("examined", "Examined"),
+        IGNORED("ignored", "Ignored"),
+        JOURNALED("journaled", "Saved for later"),
+        ADDED("added", "Added"),
+        EXISTING("existing", "Already in Tnt"),
+        ERRORS("errors", "Errors");
+
+        private final String key;
+        private final String label;
+
+        Count(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        /**
+         * Returns the count's name in the import summary.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Counts and stage latencies, either in total or for one email account
+     */
+    public static class Metrics {
+        private final Map<Count, LongAdder> counts = new EnumMap<Count, LongAdder>(Count.class);
+        private final Map<Stage, LatencyHistogram> latencies = new EnumMap<Stage, LatencyHistogram>(Stage.class);
+
+        private Metrics() {
+            for (Count count : Count.values())
+                counts.put(count, new LongAdder());
+            for (Stage stage : Stage.values())
+                latencies.put(stage, new LatencyHistogram());
+        }
+
+        public long getCount(Count count) {
+            return counts.get(count).sum();
+        }
+
+        /**
+         * Returns the stage's latencies, in microseconds.
+         */
+        public LatencyHistogram getLatency(Stage stage) {
+            return latencies.get(stage);
+        }
+
+        /**
+         * Returns the counts and the latencies of the stages that have been timed, for the import summary.
+         */
+        private Map<String, Object> getSummary() {
+            Map<String, Object> countSummary = new LinkedHashMap<String, Object>();
+            for (Count count : Count.values())
+                countSummary.put(count.getKey(), getCount(count));
+
+            Map<String, Object> stageSummary = new LinkedHashMap<String, Object>();
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram latency = getLatency(stage);
+                if (latency.getCount() == 0)
+                    continue;
+                Map<String, Object> latencySummary = new LinkedHashMap<String, Object>();
+                latencySummary.put("count", latency.getCount());
+                latencySummary.put("meanMicros", Math.round(latency.getMean()));
+                latencySummary.put("p50Micros", latency.getValueAtPercentile(50));
+                latencySummary.put("p95Micros", latency.getValueAtPercentile(95));
+                latencySummary.put("p99Micros", latency.getValueAtPercentile(99));
+                latencySummary.put("maxMicros", latency.getMax());
+                stageSummary.put(stage.getKey(), latencySummary);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<String, Object>();
+            summary.put("counts", countSummary);
+            summary.put("stages", stageSummary);
+            return summary;
+        }
+    }
+
+    private static Logger log = LogManager.getLogger();
+
+    // Property change values
+    private final static PropertyChangeSupport pcs = new PropertyChangeSupport(MetricsModel.class);
+    public final static String PROP_RUN_FINISHED = "metricsmodel.run.finished";
+    public final static String PROP_RUN_STARTED = "metricsmodel.run.started";
+
+    /**
+     * Name of the file (in the configuration directory) that the last run's summary is saved to
+     */
+    public final static String SUMMARY_FILENAME = "import-summary.json";
+
+    /**
+     * Metrics for email accounts that haven't imported anything this run
+     */
+    private final static Metrics NO_METRICS = new Metrics();
+
+    private static volatile Metrics totalMetrics = new Metrics();
+    private static volatile Map<Integer, Metrics> serverMetrics = new ConcurrentHashMap<Integer, Metrics>();
+    private static volatile boolean running = false;
+    private static LocalDateTime runStarted = LocalDateTime.now().withNano(0);
+
+    /**
+     * Counts that haven't been added to the running totals in preferences yet (these aren't reset with each run)
+     */
+    private final static AtomicLong unsavedExaminedCount = new AtomicLong();
+    private final static AtomicLong unsavedAddedCount = new AtomicLong();
+
+    /**
+     * No instantiation allowed!
+     */
+    private MetricsModel() {
+    }
+
+    public static void addPropertyChangeListener(PropertyChangeListener listener) {
+        log.trace("addPropertyChangeListener({})", listener);
+        pcs.addPropertyChangeListener(listener);
+    }
+
+    /**
+     * Counts something that happened while importing email.
+     *
+     * @param count
+     *            what happened
+     * @param serverId
+     *            the ID of the email server the message came from; null if it isn't known
+     */
+    public static void count(Count count, Integer serverId) {
+        totalMetrics.counts.get(count).increment();
+        if (serverId != null)
+            serverMetrics.computeIfAbsent(serverId, id -> new Metrics()).counts.get(count).increment();
+        if (count == Count.EXAMINED)
+            unsavedExaminedCount.incrementAndGet();
+        else if (count == Count.ADDED)
+            unsavedAddedCount.incrementAndGet();
+    }
+
+    /**
+     * Finishes the import run (if one is running), saving its summary, and adds this run's counts to the running
+     * totals in preferences. The totals are saved even if no run is in progress (e.g. when history that was matched
+     * to a contact after an import has been added).
+     */
+    public static void finishRun() {
+        log.trace("finishRun()");
+        boolean finished;
+        synchronized (MetricsModel.class) {
+            finished = running;
+            running = false;
+            saveTotals();
+            if (finished)
+                saveSummary();
+        }
+        if (finished)
+            pcs.firePropertyChange(PROP_RUN_FINISHED, null, totalMetrics);
+    }
+
+    /**
+     * Returns the current (or last) run's metrics for all email accounts.
+     */
+    public static Metrics getMetrics() {
+        return totalMetrics;
+    }
+
+    /**
+     * Returns the current (or last) run's metrics for the specified email account.
+     */
+    public static Metrics getMetrics(int serverId) {
+        return serverMetrics.getOrDefault(serverId, NO_METRICS);
+    }
+
+    public static synchronized LocalDateTime getRunStarted() {
+        return runStarted;
+    }
+
+    /**
+     * Returns the path of the file that the last run's summary is saved to.
+     */
+    public static Path getSummaryPath() {
+        return Paths.get(MIST.getAppConfDir(), SUMMARY_FILENAME);
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Records how long a stage of importing email took.
+     *
+     * @param stage
+     *            the stage
+     * @param serverId
+     *            the ID of the email server the message came from; null if the stage isn't specific to a message (or
+     *            the message's server isn't known)
+     * @param startNanos
+     *            the value of {@link System#nanoTime()} when the stage started
+     */
+    public static void record(Stage stage, Integer serverId, long startNanos) {
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        totalMetrics.latencies.get(stage).record(micros);
+        if (serverId != null)
+            serverMetrics.computeIfAbsent(serverId, id -> new Metrics()).latencies.get(stage).record(micros);
+    }
+
+    public static void removePropertyChangeListener(PropertyChangeListener listener) {
+        log.trace("removePropertyChangeListener({})", listener);
+        pcs.removePropertyChangeListener(listener);
+    }
+
+    /**
+     * Saves the run's summary as JSON, replacing the last run's.
+     */
+    private static void saveSummary() {
+        LocalDateTime runFinished = LocalDateTime.now().withNano(0);
+        Metrics metrics = totalMetrics;
+        log.info(
+            "Import finished: {} email(s) examined, {} added, {} error(s)",
+            metrics.getCount(Count.EXAMINED),
+            metrics.getCount(Count.ADDED),
+            metrics.getCount(Count.ERRORS));
+
+        Map<String, Object> summary = new LinkedHashMap<String, Object>();
+        summary.put("version", MIST.getAppVersion());
+        summary.put("started", runStarted.toString());
+        summary.put("finished", runFinished.toString());
+        summary.put("seconds", Duration.between(runStarted, runFinished).getSeconds());
+        summary.putAll(metrics.getSummary());
+
+        List<Map<String, Object>> serverSummaries = new ArrayList<Map<String, Object>>();
+        for (Map.Entry<Integer, Metrics> entry : new TreeMap<Integer, Metrics>(serverMetrics).entrySet()) {
+            Map<String, Object> serverSummary = new LinkedHashMap<String, Object>();
+            serverSummary.put("id", entry.getKey());
+            if (entry.getKey() < EmailModel.getEmailServerCount()) {
+                EmailServer server = EmailModel.getEmailServer(entry.getKey());
+                if (server != null)
+                    serverSummary.put("nickname", server.getNickname());
+            }
+            serverSummary.putAll(entry.getValue().getSummary());
+            serverSummaries.add(serverSummary);
+        }
+        summary.put("servers", serverSummaries);
+
+        Path path = getSummaryPath();
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), summary);
+        } catch (IOException e) {
+            // Not fatal; the summary is only for reference
+            log.warn("Could not save import summary '{}'", path, e);
+        }
+    }
+
+    /**
+     * Adds the counts since they were last saved to the running totals in preferences.
+     */
+    private static void saveTotals() {
+        long examined = unsavedExaminedCount.getAndSet(0);
+        long added = unsavedAddedCount.getAndSet(0);
+        if (examined > 0)
+            Util.incPrefCounter(MIST.PREF_TOTAL_EXAMINED_EMAILS, (int) examined);
+        if (added > 0)
+            Util.incPrefCounter(MIST.PREF_TOTAL_IMPORTED_EMAILS, (int) added);
+    }
+
+    /**
+     * Starts a new import run, clearing the last run's metrics.
+     */
+    public static void startRun() {
+        log.trace("startRun()");
+        synchronized (MetricsModel.class) {
+            if (running)
+                log.debug("Last import run hadn't finished; starting a new one anyway");
+            totalMetrics = new Metrics();
+            serverMetrics = new ConcurrentHashMap<Integer, Metrics>();
+            runStarted = LocalDateTime.now().withNano(0);
+            running = true;
+        }
+        pcs.firePropertyChange(PROP_RUN_STARTED, null, totalMetrics);
+    }
+
+}
@@ -28,9 +28,23 @@ import com.gideonsoftware.mist.exceptions.EmailMessageException;
 public class EmailMessage extends MessageSource {
     private static Logger log = LogManager.getLogger();
 
+    /**
+     * This message's position on its email server; see EmailServer.getNextMessagePosition()
+     */
+    private String position = null;
+
     public EmailMessage(EmailMessage emailMessage) {
         super(emailMessage);
         // We need this for property inheritance & copy constructor functionality
+        this.position = emailMessage.getPosition();
+    }
+
+    /**
+     * Creates an email message with the content of the specified message source (e.g. one read back from the import
+     * journal).
+     */
+    public EmailMessage(MessageSource messageSource) {
+        super(messageSource);
     }
 
     public EmailMessage(EmailServer server) {
@@ -70,4 +84,12 @@ public class EmailMessage extends MessageSource {
         return getAddrFormatted(getFromName(), getFromId());
     }
 
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
 }
@@ -20,15 +20,24 @@
 
 package com.gideonsoftware.mist.model.data;
 
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.UUID;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.eclipse.swt.widgets.Display;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.EmailServerException;
 import com.gideonsoftware.mist.model.EmailModel;
+import com.gideonsoftware.mist.model.HistoryModel;
 import com.gideonsoftware.mist.model.MessageModel;
 import com.gideonsoftware.mist.preferences.Preferences;
+import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.EmailAddressMatcher;
 import com.gideonsoftware.mist.util.Util;
 
 public abstract class EmailServer implements Cloneable {
@@ -39,7 +48,11 @@ public abstract class EmailServer implements Cloneable {
     public final static String PREF_ADDRESSES_IGNORE = "addresses.ignore";
     public final static String PREF_ADDRESSES_MY = "addresses.my";
     public final static String PREF_ENABLED = "enabled";
+    public final static String PREF_LAST_IMPORT = "lastimport";
+    public final static String PREF_LEDGER_ID = "ledger.id";
     public final static String PREF_NICKNAME = "nickname";
+    public final static String PREF_SINCE = "since";
+    public final static String PREF_SINCE_DATE = "since.date";
     public final static String PREF_USERNAME = "username";
     public final static String PREF_TNT_USERID = "tnt.user.id";
     public final static String PREF_TNT_USERNAME = "tnt.user.username";
@@ -50,12 +63,18 @@ public abstract class EmailServer implements Cloneable {
 
     public final static String TYPE_IMAP = "imap";
     public final static String TYPE_GMAIL = "gmail";
+    public final static String TYPE_LOCAL = "local";
+
+    // Which messages to list from the server (see getSinceDate())
+    public final static String SINCE_ALL = "all";
+    public final static String SINCE_DATE = "date";
+    public final static String SINCE_LAST_IMPORT = "lastimport";
 
     // Defaults
     public static final String NEW_NICKNAME = "New Email Server";
 
     // Import controls
-    private boolean stopImporting;
+    private volatile boolean stopImporting;
     /**
      * True if an import has been started via startImportService() and completed (whether it "worked" or not.)
      * False otherwise.
@@ -78,6 +97,21 @@ public abstract class EmailServer implements Cloneable {
     protected String type;
     protected String[] ignoreAddresses;
     protected String[] myAddresses;
+    /**
+     * Compiled copies of ignoreAddresses and myAddresses; rebuilt whenever those change.
+     */
+    private volatile EmailAddressMatcher ignoreMatcher;
+    private volatile EmailAddressMatcher myMatcher;
+
+    /**
+     * Identities of messages from this server that have been fully imported; see getImportLedger()
+     */
+    private ImportLedger importLedger = null;
+
+    /**
+     * How far the last import got; see getImportCheckpoint()
+     */
+    private ImportCheckpoint importCheckpoint = null;
 
     protected boolean loadingMessages;
     protected int currentMessageNumber;
@@ -102,6 +136,7 @@ public abstract class EmailServer implements Cloneable {
 
         Preferences prefs = MIST.getPrefs();
         prefs.setDefault(getPrefName(PREF_ENABLED), true);
+        prefs.setDefault(getPrefName(PREF_SINCE), SINCE_ALL);
 
         enabled = prefs.getBoolean(getPrefName(PREF_ENABLED));
         username = prefs.getString(getPrefName(PREF_USERNAME));
@@ -110,6 +145,8 @@ public abstract class EmailServer implements Cloneable {
         tntUsername = prefs.getString(getPrefName(PREF_TNT_USERNAME));
         ignoreAddresses = prefs.getStrings(getPrefName(PREF_ADDRESSES_IGNORE));
         myAddresses = prefs.getStrings(getPrefName(PREF_ADDRESSES_MY));
+        ignoreMatcher = new EmailAddressMatcher(ignoreAddresses);
+        myMatcher = new EmailAddressMatcher(myAddresses);
 
         String prefType = prefs.getString(getPrefName(PREF_TYPE));
         if (!type.equals(prefType)) {
@@ -127,6 +164,8 @@ public abstract class EmailServer implements Cloneable {
                 return "IMAP";
             case TYPE_GMAIL:
                 return "Gmail";
+            case TYPE_LOCAL:
+                return "Local files";
             default:
                 return "Email";
         }
@@ -140,6 +179,44 @@ public abstract class EmailServer implements Cloneable {
         return String.format("%s.%s", PREF_PREFIX, id);
     }
 
+    /**
+     * Returns true if there is no history associated with this message source, or if:
+     * <ol>
+     * <li>all history from the associated email message has been added to our model -and-</li>
+     * <li>all history from the associated email message is added or exists (e.g. no errors, "contact not found",
+     * etc).</li>
+     * </ol>
+     * Otherwise returns false. Servers use this to decide when a message can be tidied away on the server (e.g. its
+     * Gmail label removed).
+     */
+    protected static boolean isMessageProcessed(MessageSource msg) {
+        log.trace("isMessageProcessed({})", msg);
+        History[] historyArr = HistoryModel.getAllHistoryFromMessageSource(msg);
+
+        // If there is no history
+        if (historyArr.length == 0)
+            return true;
+
+        // If all history from the associated email message has not yet been added to our model,
+        // we're not ready to consider tidying it away. Return false.
+        if (historyArr.length != HistoryModel.getHistoryCountForMessage(msg.getUniqueId()))
+            return false;
+
+        // If any history from the associated email message remains unprocessed,
+        // we're not ready to tidy it away. Return false.
+        for (History his : historyArr) {
+            switch (his.getStatus()) {
+                case History.STATUS_CONTACT_NOT_FOUND:
+                case History.STATUS_ERROR:
+                case History.STATUS_MULTIPLE_CONTACTS_FOUND:
+                case History.STATUS_NONE:
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
     public void addIgnoreAddress(String email) {
         log.trace("addIgnoreAddress({})", email);
         String[] newIgnoreAddresses = new String[ignoreAddresses.length + 1];
@@ -183,18 +260,96 @@ public abstract class EmailServer implements Cloneable {
         return id;
     }
 
+    /**
+     * Returns when the last import from this server that ran to completion (every message listed, retrieved and
+     * committed to Tnt without errors) started, or null if there hasn't been one.
+     */
+    public LocalDateTime getLastImportDate() {
+        try {
+            String lastImport = MIST.getPrefs().getString(getPrefName(PREF_LAST_IMPORT));
+            return lastImport.isEmpty() ? null : LocalDateTime.parse(lastImport);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     public String[] getIgnoreAddresses() {
         return ignoreAddresses;
     }
 
+    /**
+     * Returns the checkpoint that records how far the last import from this server got, so an interrupted import can
+     * resume where it left off. Like the import ledger, it's named by this server's ledger ID.
+     */
+    public synchronized ImportCheckpoint getImportCheckpoint() {
+        if (importCheckpoint == null)
+            importCheckpoint = new ImportCheckpoint(
+                Paths.get(MIST.getAppConfDir(), String.format("checkpoint-%s.txt", getLedgerId())));
+        return importCheckpoint;
+    }
+
     protected abstract String getImportCompleteTipMessage();
 
+    /**
+     * Returns the ledger of messages from this server that have been fully imported into Tnt.
+     * <p>
+     * The ledger file lives in the app conf dir and is named by this server's ledger ID, so it stays with the server
+     * even if server IDs are reassigned.
+     */
+    public synchronized ImportLedger getImportLedger() {
+        if (importLedger == null)
+            importLedger = new ImportLedger(
+                Paths.get(MIST.getAppConfDir(), String.format("ledger-%s.dat", getLedgerId())));
+        return importLedger;
+    }
+
+    /**
+     * Returns the random ID stored in this server's preferences that identifies its import ledger, cached messages and
+     * journaled messages. Unlike the server ID, it doesn't change when other servers are removed.
+     */
+    public synchronized String getLedgerId() {
+        String ledgerId = MIST.getPrefs().getString(getPrefName(PREF_LEDGER_ID));
+        if (ledgerId.isEmpty()) {
+            ledgerId = UUID.randomUUID().toString();
+            MIST.getPrefs().setValue(getPrefName(PREF_LEDGER_ID), ledgerId);
+        }
+        return ledgerId;
+    }
+
+    /**
+     * Returns the key under which a message from this server is stored in the message cache.
+     *
+     * @param messageKey
+     *            identifies the message on this server (e.g. its UID)
+     * @see EmailModel#getMessageCache()
+     */
+    protected String getMessageCacheKey(String messageKey) {
+        return String.format("%s/%s", getLedgerId(), messageKey);
+    }
+
     public String[] getMyAddresses() {
         return myAddresses;
     }
 
     public abstract EmailMessage getNextMessage() throws EmailServerException;
 
+    /**
+     * Returns the Message-ID header of the next message (or null if it has none), retrieving as little of the message
+     * as possible. This does not advance to the next message.
+     */
+    public abstract String getNextMessageId() throws EmailServerException;
+
+    /**
+     * Returns a string that identifies the next message's position on this server, so an import can later resume after
+     * it (see {@link #resumeAfter(String)}). Positions must be unique, and later messages must always come after
+     * earlier ones, even if messages are added in the meantime. Returns null if the position can't be determined.
+     * <p>
+     * By default, resuming isn't supported, so this returns null.
+     */
+    protected String getNextMessagePosition() {
+        return null;
+    }
+
     public String getNickname() {
         // This should never be null, as it's used even in logging for the email server
         if (nickname != null)
@@ -206,6 +361,39 @@ public abstract class EmailServer implements Cloneable {
         return getPrefName(name, id);
     }
 
+    /**
+     * Returns a short description of how far the current import from this server has got, for showing to the user.
+     */
+    public String getProgressDescription() {
+        return String.format("%s: %d of %d", getNickname(), getCurrentMessageNumber(), getTotalMessages());
+    }
+
+    /**
+     * Returns the date of the oldest messages to list from this server, or null to list every message. Servers pass
+     * this on to the server's own search, so older messages aren't even listed.
+     * <p>
+     * In "since last import" mode, this is the day before the last completed import started, which allows for time
+     * zone differences (messages that were already imported are skipped as usual).
+     *
+     * @see #PREF_SINCE
+     */
+    public LocalDate getSinceDate() {
+        switch (MIST.getPrefs().getString(getPrefName(PREF_SINCE))) {
+            case SINCE_DATE:
+                try {
+                    return LocalDate.parse(MIST.getPrefs().getString(getPrefName(PREF_SINCE_DATE)));
+                } catch (DateTimeParseException e) {
+                    log.warn("{{}} Invalid 'since' date; listing all messages", getNickname());
+                    return null;
+                }
+            case SINCE_LAST_IMPORT:
+                LocalDateTime lastImport = getLastImportDate();
+                return lastImport == null ? null : lastImport.toLocalDate().minusDays(1);
+            default:
+                return null;
+        }
+    }
+
     public Integer getTntUserId() {
         return tntUserId;
     }
@@ -228,12 +416,29 @@ public abstract class EmailServer implements Cloneable {
 
     public abstract boolean hasNextMessage();
 
+    /**
+     * Returns true if this server can list just the messages from or to particular email addresses (see
+     * {@link #loadMessageList(String[])}), so a contact's messages can be imported without a full import.
+     * <p>
+     * By default, this isn't supported, so this returns false.
+     */
+    public boolean isBackfillSupported() {
+        return false;
+    }
+
     public abstract boolean isConnected();
 
     public boolean isEmailInIgnoreList(String email) {
         log.trace("isEmailInIgnoreList({})", email);
-        String[] ignoreList = MIST.getPrefs().getStrings(getPrefName(PREF_ADDRESSES_IGNORE));
-        return EmailModel.isEmailInList(email, ignoreList);
+        return ignoreMatcher.matches(email);
+    }
+
+    /**
+     * Returns true if the email address is one of "my" addresses for this server.
+     */
+    public boolean isEmailInMyList(String email) {
+        log.trace("isEmailInMyList({})", email);
+        return myMatcher.matches(email);
     }
 
     public boolean isEnabled() {
@@ -248,8 +453,90 @@ public abstract class EmailServer implements Cloneable {
         return loadingMessages;
     }
 
+    /**
+     * Returns true if the next message is in the import ledger. If the ledger can't be checked, returns false (so the
+     * message is imported as usual).
+     */
+    private boolean isNextMessageInLedger(ImportLedger ledger) {
+        try {
+            return ledger.contains(MessageSource.getIdentity(getNextMessageId()));
+        } catch (EmailServerException e) {
+            log.warn("{{}} Could not check import ledger for message {}", nickname, currentMessageNumber + 1, e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if the import service has been asked to stop.
+     */
+    protected boolean isStopImporting() {
+        return stopImporting;
+    }
+
     public abstract void loadMessageList() throws EmailServerException;
 
+    /**
+     * Lists only the messages from, to or copied to any of the specified email addresses, using the server's own
+     * search. The "since" window doesn't apply, since the point is to find older messages.
+     * <p>
+     * By default, this isn't supported (see {@link #isBackfillSupported()}), so this throws an exception.
+     *
+     * @param addresses
+     *            the email addresses to search for
+     * @throws EmailServerException
+     *             if the server couldn't be searched
+     */
+    public void loadMessageList(String[] addresses) throws EmailServerException {
+        throw new EmailServerException(String.format("{%s} Searching by address isn't supported", getNickname()));
+    }
+
+    /**
+     * Clears the import ledger, so that every message is checked against Tnt again on the next import. Messages whose
+     * history is all found in (or added to) Tnt are then recorded in the ledger again.
+     */
+    public void resetImportLedger() {
+        log.trace("{{}} resetImportLedger()", getNickname());
+        getImportLedger().clear();
+    }
+
+    /**
+     * Sets up the message list so the next message is the one after the specified position.
+     * <p>
+     * By default, resuming isn't supported, so this returns false.
+     *
+     * @param position
+     *            a position returned by {@link #getNextMessagePosition()} during an earlier import
+     * @return true if the import will resume after the position; false if the position wasn't found (so the import
+     *         starts from the first message)
+     * @throws EmailServerException
+     *             if the server couldn't be searched for the position
+     */
+    protected boolean resumeAfter(String position) throws EmailServerException {
+        return false;
+    }
+
+    /**
+     * Skips to the message after the checkpoint, if there is one.
+     */
+    private void resumeFromCheckpoint(ImportCheckpoint checkpoint) {
+        String position = checkpoint.get();
+        if (position == null)
+            return;
+        try {
+            if (resumeAfter(position))
+                log.info(
+                    "{{}} Resuming import at message {} (after '{}')",
+                    nickname,
+                    currentMessageNumber + 1,
+                    position);
+            else
+                log.info("{{}} Checkpoint '{}' not found; starting from the first message", nickname, position);
+        } catch (EmailServerException e) {
+            log.warn("{{}} Could not resume after '{}'; starting from the first message", nickname, position, e);
+            currentMessageNumber = 0;
+        }
+    }
+
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
         MIST.getPrefs().setValue(getPrefName(PREF_ENABLED), enabled);
@@ -261,6 +548,7 @@ public abstract class EmailServer implements Cloneable {
 
     public void setIgnoreAddresses(String[] ignoreAddresses) {
         this.ignoreAddresses = ignoreAddresses;
+        ignoreMatcher = new EmailAddressMatcher(ignoreAddresses);
         if (ignoreAddresses != null)
             MIST.getPrefs().setValues(getPrefName(PREF_ADDRESSES_IGNORE), ignoreAddresses);
     }
@@ -282,8 +570,14 @@ public abstract class EmailServer implements Cloneable {
         EmailModel.serverMessagesLoaded();
     }
 
+    private void setLastImportDate(LocalDateTime lastImportDate) {
+        log.trace("{{}} setLastImportDate({})", getNickname(), lastImportDate);
+        MIST.getPrefs().setValue(getPrefName(PREF_LAST_IMPORT), lastImportDate.toString());
+    }
+
     public void setMyAddresses(String[] myAddresses) {
         this.myAddresses = myAddresses;
+        myMatcher = new EmailAddressMatcher(myAddresses);
         if (myAddresses != null)
             MIST.getPrefs().setValues(getPrefName(PREF_ADDRESSES_MY), myAddresses);
     }
@@ -362,19 +656,63 @@ public abstract class EmailServer implements Cloneable {
         MIST.getView().getTipManager().addTip(getPrefName(SHOWTIP_IMPORT_COMPLETE), title, message);
     }
 
+    /**
+     * Advances past the next message without retrieving it (e.g. because it has already been imported).
+     */
+    public abstract void skipNextMessage() throws EmailServerException;
+
+    /**
+     * Starts the email import service for this server, importing only messages from, to or copied to any of the
+     * specified email addresses (e.g. a newly matched contact's messages that were left out of earlier imports).
+     * Messages in the import ledger are skipped as usual, but the import checkpoint and last import date are left
+     * alone, since only some messages are imported.
+     * <p>
+     * If this server doesn't support backfilling, the import completes immediately.
+     *
+     * @param addresses
+     *            the email addresses to search for
+     */
+    public void startBackfillService(String[] addresses) {
+        log.trace("{{}} startBackfillService({})", getNickname(), Arrays.toString(addresses));
+        startImportService(false, addresses);
+    }
+
     /**
      * Starts the email import service for this server.
+     *
+     * @param restart
+     *            true to start from the first message; false to resume after the last import's checkpoint (if any)
      */
-    public void startImportService() {
-        log.trace("{{}} startImportService()", getNickname());
+    public void startImportService(boolean restart) {
+        log.trace("{{}} startImportService({})", getNickname(), restart);
+        startImportService(restart, null);
+    }
 
+    /**
+     * Starts the email import service for this server.
+     *
+     * @param restart
+     *            true to start from the first message; false to resume after the last import's checkpoint (if any)
+     * @param backfillAddresses
+     *            the email addresses to import messages for (see {@link #startBackfillService(String[])}); null to
+     *            import all messages
+     */
+    private void startImportService(boolean restart, String[] backfillAddresses) {
         if (!isEnabled()) {
             log.warn("{{}} Cannot start import - server is disabled!");
             setImportComplete(true); // Debatable whether this should be set here...
             return;
         }
 
+        boolean backfill = backfillAddresses != null;
+        if (backfill && !isBackfillSupported()) {
+            log.debug("{{}} Server can't search by address; skipping backfill", nickname);
+            setImportComplete(true);
+            return;
+        }
+
         log.trace("{{}} === Email Server Import Service Started ===", nickname);
+        LocalDateTime importStarted = LocalDateTime.now().withNano(0);
 
         // Make sure we're in the proper state
         stopImporting = false;
@@ -382,6 +720,11 @@ public abstract class EmailServer implements Cloneable {
         loadingMessages = false;
 
         Thread importThread = new Thread() {
+            /**
+             * False if any messages couldn't be listed or retrieved
+             */
+            private boolean complete = true;
+
             @Override
             public void run() {
                 Util.connectToEmailServer(EmailServer.this);
@@ -393,34 +736,85 @@ public abstract class EmailServer implements Cloneable {
 
                 setLoadingMessages(true);
                 try {
-                    EmailServer.this.loadMessageList();
+                    if (backfill)
+                        EmailServer.this.loadMessageList(backfillAddresses);
+                    else
+                        EmailServer.this.loadMessageList();
                 } catch (EmailServerException e) {
-                    Display.getDefault().syncExec(() -> {
-                        String msg = String.format("Can't load messages on server '%s'", nickname);
-                        Util.reportError("Email server error", msg, e);
-                    });
+                    String msg = String.format("Can't load messages on server '%s'", nickname);
+                    Util.reportError("Email server error", msg, e);
+                    complete = false;
                 } finally {
                     setLoadingMessages(false);
                 }
 
-                while (!stopImporting && hasNextMessage()) {
-                    if (hasNextMessage()) {
-                        log.debug("{{}} Processing message {}", nickname, currentMessageNumber + 1);
-                        try {
-                            // Add Message to message queue
-                            MessageModel.addMessage(getNextMessage());
-                        } catch (EmailServerException e) {
-                            Display.getDefault().syncExec(() -> {
+                // Pick up where the last import left off (unless we've been asked to start over)
+                // Backfills don't use the checkpoint, since they only list some messages
+                ImportCheckpoint checkpoint = backfill ? null : getImportCheckpoint();
+                if (checkpoint != null) {
+                    if (restart)
+                        checkpoint.clear();
+                    checkpoint.start();
+                    resumeFromCheckpoint(checkpoint);
+                }
+
+                // Import messages; in continuous mode, keep the connection open and import new messages as they arrive
+                boolean watching = true;
+                while (watching) {
+                    ImportLedger ledger = getImportLedger();
+                    boolean useLedger = ledger.size() > 0;
+                    while (!stopImporting && hasNextMessage()) {
+                        if (hasNextMessage()) {
+                            log.debug("{{}} Processing message {}", nickname, currentMessageNumber + 1);
+                            String position = null;
+                            if (checkpoint != null) {
+                                position = getNextMessagePosition();
+                                if (position == null) // Still hold the checkpoint back until this message is committed
+                                    position = String.format("#%d", currentMessageNumber + 1);
+                                checkpoint.dispatch(position);
+                            }
+                            try {
+                                // Skip messages that have already been fully imported
+                                if (useLedger && isNextMessageInLedger(ledger)) {
+                                    log.debug(
+                                        "{{}} Message {} already imported; skipping",
+                                        nickname,
+                                        currentMessageNumber + 1);
+                                    skipNextMessage();
+                                    if (checkpoint != null)
+                                        checkpoint.commit(position);
+                                    continue;
+                                }
+
+                                // Add Message to message queue
+                                EmailMessage message = getNextMessage();
+                                message.setPosition(position);
+                                MessageModel.addMessage(message);
+                            } catch (EmailServerException e) {
                                 String msg = String.format(
                                     "Can't retrieve message %s on server '%s'",
                                     currentMessageNumber,
                                     nickname);
                                 Util.reportError("Email server error", msg, e);
-                            });
+                                complete = false;
+                            }
                         }
                     }
+
+                    try {
+                        watching = !stopImporting && !backfill && waitForNewMessages();
+                    } catch (EmailServerException e) {
+                        String msg = String.format("Stopped waiting for new messages on server '%s'", nickname);
+                        Util.reportError("Email server error", msg, e);
+                        watching = false;
+                    }
                 }
 
+                // If every message was dispatched, the checkpoint is cleared once they've all been committed
+                // (and then this import becomes the last import, for "since last import" mode)
+                if (!stopImporting && checkpoint != null)
+                    checkpoint.finish(complete ? () -> setLastImportDate(importStarted) : null);
+
                 // We're done with this server for now, but don't disconnect yet in case we want to make changes
                 // to folders/labels, etc.
 
@@ -428,7 +822,7 @@ public abstract class EmailServer implements Cloneable {
                 log.trace("{{}} === Email Server Import Service Stopped ===", nickname);
                 setImportComplete(true);
 
-                if (totalMessages > 0) {
+                if (totalMessages > 0 && !backfill && !MIST.isHeadless()) {
                     // There were messages; show the import complete tip
                     showImportCompleteTip();
                 }
@@ -449,4 +843,18 @@ public abstract class EmailServer implements Cloneable {
         return String.format("EmailServer {%s}", getNickname());
     }
 
+    /**
+     * Called by the import service once all messages have been processed. In continuous mode, blocks until new
+     * messages arrive (returning true so they're imported) or the import service is stopped (returning false).
+     * <p>
+     * By default, continuous mode isn't supported, so this returns false immediately.
+     *
+     * @return true if there are new messages to import; false if the import is finished
+     * @throws EmailServerException
+     *             if the server can no longer be watched for new messages
+     */
+    protected boolean waitForNewMessages() throws EmailServerException {
+        return false;
+    }
+
 }
@@ -97,6 +97,12 @@ public class GmailMessage extends EmailMessage {
         if (messagePart != null) {
             List<MessagePartHeader> headers = messagePart.getHeaders();
             for (MessagePartHeader header : headers) {
+                // Message-ID (header names are case-insensitive, and Gmail capitalizes this one differently)
+                if ("Message-ID".equalsIgnoreCase(header.getName())) {
+                    setMessageId(header.getValue());
+                    continue;
+                }
+
                 switch (header.getName()) {
 
                     // Subject
@@ -188,6 +194,16 @@ public class GmailMessage extends EmailMessage {
         return new GmailMessage(this);
     }
 
+    /**
+     * Also drops the Gmail message, keeping only its ID and thread ID (which are needed to remove its label).
+     */
+    @Override
+    public void compact() {
+        super.compact();
+        if (message != null)
+            message = new Message().setId(message.getId()).setThreadId(message.getThreadId());
+    }
+
     public Message getMessage() {
         return message;
     }
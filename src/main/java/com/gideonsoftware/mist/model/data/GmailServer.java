@@ -22,14 +22,19 @@ package com.gideonsoftware.mist.model.data;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -40,7 +45,10 @@ import org.apache.logging.log4j.Logger;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.EmailServerException;
+import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.HistoryModel;
+import com.gideonsoftware.mist.model.MetricsModel;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
 import com.gideonsoftware.mist.preferences.Preferences;
 import com.gideonsoftware.mist.tntapi.TntDb;
 import com.gideonsoftware.mist.tntapi.entities.History;
@@ -69,6 +77,7 @@ import com.google.api.services.gmail.model.LabelColor;
 import com.google.api.services.gmail.model.ListLabelsResponse;
 import com.google.api.services.gmail.model.ListThreadsResponse;
 import com.google.api.services.gmail.model.Message;
+import com.google.api.services.gmail.model.MessagePartHeader;
 import com.google.api.services.gmail.model.ModifyThreadRequest;
 import com.google.api.services.oauth2.Oauth2Scopes;
 
@@ -183,43 +192,6 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
         }
     }
 
-    /**
-     * Returns true if there is no history associated with this message source, or if:
-     * <ol>
-     * <li>all history from the associated gmail message has been added to our model -and-</li>
-     * <li>all history from the associated gmail message is added or exists (e.g. no errors, "contact not found",
-     * etc).</li>
-     * </ol>
-     * Otherwise returns false.
-     */
-    private static boolean canLabelBeRemoved(MessageSource msg) {
-        log.trace("canLabelBeRemoved({})", msg);
-        History[] historyArr = HistoryModel.getAllHistoryFromMessageSource(msg);
-
-        // If there is no history
-        if (historyArr.length == 0)
-            return true;
-
-        // If all history from the associated gmail message has not yet been added to our model,
-        // we're not ready to consider removing the label. Return false.
-        if (historyArr.length != HistoryModel.getHistoryCountForMessage(msg.getUniqueId()))
-            return false;
-
-        // If any history from the associated gmail message remains unprocessed,
-        // we're not ready to remove the label. Return false.
-        for (History his : historyArr) {
-            switch (his.getStatus()) {
-                case History.STATUS_CONTACT_NOT_FOUND:
-                case History.STATUS_ERROR:
-                case History.STATUS_MULTIPLE_CONTACTS_FOUND:
-                case History.STATUS_NONE:
-                    return false;
-            }
-        }
-
-        return true;
-    }
-
     // @see https://stackoverflow.com/questions/49354891/how-do-i-get-the-user-id-token-from-a-credential-object
     // @see https://stackoverflow.com/a/13016081/1307022
     private Credential authorize() throws IOException {
@@ -350,6 +322,48 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
         HistoryModel.removePropertyChangeListener(this);
     }
 
+    /**
+     * Returns the message with the specified ID from the message cache, or null if it isn't cached.
+     */
+    private Message getCachedMessage(MessageCache cache, String messageId) {
+        byte[] bytes = cache.get(getMessageCacheKey(messageId));
+        if (bytes == null)
+            return null;
+        try {
+            return JSON_FACTORY.fromInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, Message.class);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("{{}} Could not read cached message '{}'; downloading it again", getNickname(), messageId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the full message with the specified ID, from the message cache if possible.
+     * <p>
+     * Messages are cached as the Gmail API returns them in "full" format (i.e. with the message text but without
+     * attachments), since that's what GmailMessage parses.
+     */
+    private Message getFullMessage(String messageId) throws EmailServerException {
+        MessageCache cache = EmailModel.getMessageCache();
+        Message message = cache == null ? null : getCachedMessage(cache, messageId);
+        if (message != null)
+            return message;
+
+        try {
+            message = gmailService.users().messages().get("me", messageId).setFormat("full").execute();
+        } catch (IOException e) {
+            throw new EmailServerException(e);
+        }
+        if (cache != null) {
+            try {
+                cache.put(getMessageCacheKey(messageId), JSON_FACTORY.toByteArray(message));
+            } catch (IOException e) {
+                log.warn("{{}} Could not cache message '{}'", getNickname(), messageId, e);
+            }
+        }
+        return message;
+    }
+
     @Override
     protected String getImportCompleteTipMessage() {
         log.trace("getImportCompleteTipMessage()");
@@ -399,17 +413,45 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
     public EmailMessage getNextMessage() throws EmailServerException {
         log.trace("{{}} getNextMessage()", getNickname());
 
-        Message message = messages.get(currentMessageNumber++);
-
         // First load the full message, as we've thus far we only have a snippet
-        try {
-            message = gmailService.users().messages().get("me", message.getId()).setFormat("full").execute();
-        } catch (IOException e) {
-            throw new EmailServerException(e);
-        }
+        long start = System.nanoTime();
+        Message message = getFullMessage(messages.get(currentMessageNumber++).getId());
+        MetricsModel.record(Stage.FETCH, getId(), start);
 
         // Use the GmailMessage class to parse the message
-        return new GmailMessage(GmailServer.this, message);
+        start = System.nanoTime();
+        GmailMessage gmailMessage = new GmailMessage(GmailServer.this, message);
+        MetricsModel.record(Stage.PARSE, getId(), start);
+        return gmailMessage;
+    }
+
+    @Override
+    public String getNextMessageId() throws EmailServerException {
+        log.trace("{{}} getNextMessageId()", getNickname());
+
+        // Use the cached message if there is one; otherwise only retrieve the Message-ID header
+        String messageId = messages.get(currentMessageNumber).getId();
+        MessageCache cache = EmailModel.getMessageCache();
+        Message message = cache == null ? null : getCachedMessage(cache, messageId);
+        if (message == null) {
+            try {
+                message = gmailService.users().messages().get("me", messageId).setFormat("metadata")
+                    .setMetadataHeaders(Arrays.asList("Message-ID")).execute();
+            } catch (IOException e) {
+                throw new EmailServerException(e);
+            }
+        }
+
+        if (message.getPayload() != null && message.getPayload().getHeaders() != null)
+            for (MessagePartHeader header : message.getPayload().getHeaders())
+                if ("Message-ID".equalsIgnoreCase(header.getName()))
+                    return header.getValue();
+        return null;
+    }
+
+    @Override
+    protected String getNextMessagePosition() {
+        return messages.get(currentMessageNumber).getId();
     }
 
     public String getUniqueId() {
@@ -423,6 +465,11 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
         return currentMessageNumber < messages.size();
     }
 
+    @Override
+    public boolean isBackfillSupported() {
+        return true;
+    }
+
     @Override
     public boolean isConnected() {
         return gmailService != null;
@@ -436,8 +483,43 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
     public void loadMessageList() throws EmailServerException {
         log.trace("{{}} loadMessageList()", getNickname());
 
+        // If there's a "since" window, let Gmail pick out the threads in it (q=after:)
+        LocalDate since = getSinceDate();
+        Long sinceMillis = since == null ? null : since.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String query = sinceMillis == null ? null : String.format("after:%d", sinceMillis / 1000);
+        if (query != null)
+            log.debug("{{}} Searching for messages since {} ({})", getNickname(), since, query);
+        loadMessageList(query, sinceMillis);
+    }
+
+    @Override
+    public void loadMessageList(String[] addresses) throws EmailServerException {
+        log.trace("{{}} loadMessageList({})", getNickname(), Arrays.toString(addresses));
+
+        // Let Gmail pick out the threads with these addresses (q=from:x OR to:x OR cc:x)
+        List<String> terms = new ArrayList<String>();
+        for (String address : addresses) {
+            terms.add(String.format("from:%s", address));
+            terms.add(String.format("to:%s", address));
+            terms.add(String.format("cc:%s", address));
+        }
+        String query = String.join(" OR ", terms);
+        log.debug("{{}} Searching for messages from or to {} ({})", getNickname(), Arrays.toString(addresses), query);
+        loadMessageList(query, null);
+    }
+
+    /**
+     * Lists the messages in threads with this server's label that match the specified Gmail search query.
+     *
+     * @param query
+     *            the Gmail search query; null to list every thread with the label
+     * @param sinceMillis
+     *            if not null, messages received before this time (in epoch milliseconds) are left out
+     */
+    private void loadMessageList(String query, Long sinceMillis) throws EmailServerException {
         log.debug("{{}} Retrieving messages with label '{}'", getNickname(), getLabelName());
         List<String> labelIds = Arrays.asList(getLabelId());
+
         List<com.google.api.services.gmail.model.Thread> threads = new ArrayList<com.google.api.services.gmail.model.Thread>();
         messages = new ArrayList<Message>();
         try {
@@ -450,13 +532,13 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
 
             // Get all threads with this label
             ListThreadsResponse listThreadsResponse = gmailService.users().threads().list("me").setLabelIds(labelIds)
-                .execute();
+                .setQ(query).execute();
             while (listThreadsResponse.getThreads() != null) {
                 threads.addAll(listThreadsResponse.getThreads());
                 String pageToken = listThreadsResponse.getNextPageToken();
                 if (pageToken != null) {
                     listThreadsResponse = gmailService.users().threads().list("me").setLabelIds(labelIds) //
-                        .setPageToken(pageToken).execute();
+                        .setQ(query).setPageToken(pageToken).execute();
                 } else {
                     break;
                 }
@@ -467,11 +549,17 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
                 com.google.api.services.gmail.model.Thread fullThread = gmailService.users().threads().get(
                     "me",
                     minThread.getId()).setFormat("minimal").execute();
-                messages.addAll(fullThread.getMessages());
+
+                // Threads are found by their newest message, so leave out earlier messages outside the window
+                List<Message> threadMessages = new ArrayList<Message>(fullThread.getMessages());
+                if (sinceMillis != null)
+                    threadMessages.removeIf(
+                        message -> message.getInternalDate() != null && message.getInternalDate() < sinceMillis);
+                messages.addAll(threadMessages);
 
                 // See note on threadMap
-                HashSet<String> messageIdSet = new HashSet<String>(fullThread.getMessages().size());
-                for (Message message : fullThread.getMessages())
+                HashSet<String> messageIdSet = new HashSet<String>(threadMessages.size());
+                for (Message message : threadMessages)
                     messageIdSet.add(message.getId());
                 threadMap.put(minThread.getId(), messageIdSet);
             }
@@ -480,6 +568,11 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
             throw new EmailServerException(e);
         }
 
+        // Import in the order the messages were received, so new messages always come last (see resumeAfter)
+        messages.sort(
+            Comparator.comparing(Message::getInternalDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Message::getId));
+
         totalMessages = messages.size();
         currentMessageNumber = 0;
         log.debug("{{}} Retrieved {} message(s) from {} thread(s)", getNickname(), totalMessages, threads.size());
@@ -502,7 +595,8 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
                     msg = ((History) event.getNewValue()).getMessageSource();
                 }
 
-                if (getId() == msg.getSourceId() && canLabelBeRemoved(msg)) {
+                // (Messages replayed from the import journal aren't Gmail messages, so their labels stay)
+                if (getId() == msg.getSourceId() && msg instanceof GmailMessage && isMessageProcessed(msg)) {
                     // Remove the label
                     try {
                         removeLabel((GmailMessage) msg);
@@ -516,24 +610,39 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
 
     public void removeLabel(GmailMessage gmailMessage) throws EmailServerException {
         log.trace("{{}} removeLabel({})", getNickname(), gmailMessage);
+        removeLabel(gmailMessage.getMessage());
+    }
+
+    private void removeLabel(Message message) throws EmailServerException {
         try {
             // Remove message from threadMap (see note on threadMap)
-            HashSet<String> messageSet = threadMap.get(gmailMessage.getMessage().getThreadId());
-            messageSet.remove(gmailMessage.getMessage().getId());
+            HashSet<String> messageSet = threadMap.get(message.getThreadId());
+            messageSet.remove(message.getId());
 
             // Remove thread label if no messages remain
             if (messageSet.isEmpty()) {
-                log.debug("{{}} removing thread label from thread containing message: {}", getNickname(), gmailMessage);
+                log.debug("{{}} removing thread label from thread containing message: {}", getNickname(), message);
                 ModifyThreadRequest modRequestThr = new ModifyThreadRequest().setRemoveLabelIds(
                     Arrays.asList(getLabelId()));
-                gmailService.users().threads().modify("me", gmailMessage.getMessage().getThreadId(), modRequestThr)
-                    .execute();
+                gmailService.users().threads().modify("me", message.getThreadId(), modRequestThr).execute();
             }
         } catch (IOException e) {
             throw new EmailServerException(e);
         }
     }
 
+    @Override
+    protected boolean resumeAfter(String position) {
+        log.trace("{{}} resumeAfter({})", getNickname(), position);
+        for (int i = 0; i < messages.size(); i++) {
+            if (position.equals(messages.get(i).getId())) {
+                currentMessageNumber = i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void setLabelId(String labelId) {
         this.labelId = labelId;
         if (labelId != null)
@@ -557,6 +666,16 @@ public class GmailServer extends EmailServer implements PropertyChangeListener {
             MIST.getPrefs().setValue(getPrefName(PREF_UNIQUE_ID), uniqueId);
     }
 
+    @Override
+    public void skipNextMessage() throws EmailServerException {
+        log.trace("{{}} skipNextMessage()", getNickname());
+        Message message = messages.get(currentMessageNumber++);
+
+        // The message was imported before, so its label can go (just as if it had been imported now)
+        if (isLabelRemoveAfterImport())
+            removeLabel(message);
+    }
+
     private void storeIdTokenValues(Credential credential, TokenResponse tokenResponse) throws IOException {
         log.trace("{{}} storeIdTokenValues({},{})", getNickname(), credential, tokenResponse);
 
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,13 +47,24 @@ public class ImapMessage extends EmailMessage {
 
     private Message message;
 
+    /**
+     * The folder & UID the message was retrieved from on its server (for tidying it away after import), if known
+     */
+    private String folderName = null;
+    private long uid = -1;
+
     public ImapMessage(ImapMessage imapMessage) {
         super(imapMessage);
         this.message = imapMessage.getMessage();
+        this.folderName = imapMessage.getFolderName();
+        this.uid = imapMessage.getUid();
         // We need this for property inheritance & copy constructor functionality
     }
 
-    public ImapMessage(ImapServer server, Message message) {
+    /**
+     * Creates a message from any jakarta.mail message (e.g. one parsed from a local file).
+     */
+    protected ImapMessage(EmailServer server, Message message) {
         super(server);
         log.trace("ImapMessage({},{})", server, message);
 
@@ -98,7 +110,12 @@ public class ImapMessage extends EmailMessage {
 
         // Date
         try {
-            setDate(LocalDateTime.ofInstant(message.getSentDate().toInstant(), ZoneId.systemDefault()));
+            // Archived messages may lack a Date header
+            Date _date = message.getSentDate() != null ? message.getSentDate() : message.getReceivedDate();
+            setDate(
+                _date == null
+                    ? LocalDateTime.now()
+                    : LocalDateTime.ofInstant(_date.toInstant(), ZoneId.systemDefault()));
         } catch (MessagingException e) {
             setDate(LocalDateTime.now());
             log.error("Error retrieving 'date' from message ({})", message);
@@ -111,6 +128,18 @@ public class ImapMessage extends EmailMessage {
             addRecipients(new Address[0]);
             log.error("Error retrieving 'to' from message ({})", message);
         }
+
+        // Message-ID
+        try {
+            String[] _messageId = message.getHeader("Message-ID");
+            setMessageId(_messageId == null || _messageId.length == 0 ? null : _messageId[0]);
+        } catch (MessagingException e) {
+            log.warn("Error retrieving 'Message-ID' from message ({})", message);
+        }
+    }
+
+    public ImapMessage(ImapServer server, Message message) {
+        this((EmailServer) server, message);
     }
 
     // See http://wrongnotes.blogspot.com/2007/09/javamail-parsing-made-easy.html
@@ -166,8 +195,38 @@ public class ImapMessage extends EmailMessage {
         return new ImapMessage(this);
     }
 
+    /**
+     * Also drops the jakarta.mail message (its folder and UID are kept, for tidying it away after import).
+     */
+    @Override
+    public void compact() {
+        super.compact();
+        message = null;
+    }
+
+    public String getFolderName() {
+        return folderName;
+    }
+
     public Message getMessage() {
         return message;
     }
 
+    public long getUid() {
+        return uid;
+    }
+
+    /**
+     * Records where the message came from on its server.
+     *
+     * @param folderName
+     *            the full name of the folder
+     * @param uid
+     *            the message's UID in the folder
+     */
+    public void setFolderUid(String folderName, long uid) {
+        this.folderName = folderName;
+        this.uid = uid;
+    }
+
 }
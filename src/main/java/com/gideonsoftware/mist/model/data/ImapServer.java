@@ -20,51 +20,188 @@
 
 package com.gideonsoftware.mist.model.data;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.EmailServerException;
+import com.gideonsoftware.mist.model.EmailModel;
+import com.gideonsoftware.mist.model.HistoryModel;
+import com.gideonsoftware.mist.model.MetricsModel;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
 import com.gideonsoftware.mist.preferences.Preferences;
+import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.Util;
+import com.sun.mail.iap.Argument;
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
+import com.sun.mail.imap.protocol.BASE64MailboxEncoder;
+import com.sun.mail.imap.protocol.UIDSet;
 
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Flags;
 import jakarta.mail.Folder;
+import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.NoSuchProviderException;
 import jakarta.mail.Session;
 import jakarta.mail.Store;
+import jakarta.mail.UIDFolder;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.search.AndTerm;
+import jakarta.mail.search.ComparisonTerm;
+import jakarta.mail.search.FlagTerm;
+import jakarta.mail.search.FromStringTerm;
+import jakarta.mail.search.OrTerm;
+import jakarta.mail.search.ReceivedDateTerm;
+import jakarta.mail.search.RecipientStringTerm;
+import jakarta.mail.search.SearchTerm;
 
 /**
  * 
  */
-public class ImapServer extends EmailServer {
+public class ImapServer extends EmailServer implements PropertyChangeListener {
+    /**
+     * One of the folders being imported from
+     */
+    private static class FolderScan {
+        private final String name;
+        private Folder folder = null;
+
+        /**
+         * The messages to import from this folder, in folder order
+         */
+        private Message[] messages = new Message[0];
+
+        /**
+         * The UID of the last message in the folder that has been handed to the import service (for continuous mode)
+         */
+        private long lastUid = 0;
+
+        private FolderScan(String name) {
+            this.name = name;
+        }
+    }
+
     private static Logger log = LogManager.getLogger();
 
     public final static String PREF_FOLDER = "folder";
+    public final static String PREF_FOLDERS_MORE = "folders.more";
     public final static String PREF_HOST = "host";
     public final static String PREF_PASSWORD = "password";
     public final static String PREF_PORT = "port";
     public final static String PREF_USESSL = "usessl";
+    public final static String PREF_CONTINUOUS = "continuous";
+    public final static String PREF_AFTER_IMPORT = "afterimport";
+    public final static String PREF_AFTER_IMPORT_FOLDER = "afterimport.folder";
+
+    // What to do with messages on the server once they've been imported (see PREF_AFTER_IMPORT)
+    public final static String AFTER_IMPORT_NOTHING = "nothing";
+    public final static String AFTER_IMPORT_MOVE = "move";
+    public final static String AFTER_IMPORT_FLAG = "flag";
+
+    /**
+     * The keyword set on messages that have been imported (if they're flagged after import)
+     */
+    public final static String IMPORTED_KEYWORD = "MIST_Imported";
 
     public final static int DEFAULT_PORT_IMAP = 143;
     public final static int DEFAULT_PORT_IMAPS = 993;
 
     public final static String NEW_NICKNAME = "IMAP";
 
+    /**
+     * How often to renew IDLE while waiting for new messages (servers may end an IDLE after 30 minutes; RFC 2177)
+     */
+    private final static long IDLE_RENEW_MILLIS = 1000 * 60 * 25; // 25 minutes
+
+    /**
+     * How often to poll (with NOOP) for new messages if the server doesn't support IDLE
+     */
+    private final static long NOOP_POLL_MILLIS = 1000 * 60; // 1 minute
+
+    /**
+     * Larger messages aren't cached; for those, only the parts MIST needs are downloaded (rather than attachments too)
+     */
+    private final static int MAX_CACHED_MESSAGE_SIZE = 1024 * 1024; // 1 MB
+
+    /**
+     * Maximum number of folders scanned at once (each open folder has its own connection to the server)
+     */
+    private final static int MAX_FOLDER_CONNECTIONS = 4;
+
+    /**
+     * Maximum number of imported messages tidied away with one command; once this many are waiting, they're tidied away
+     * immediately
+     */
+    private final static int TIDY_BATCH_SIZE = 100;
+
+    /**
+     * How long imported messages wait to be tidied away (so they can be tidied away together)
+     */
+    private final static long TIDY_DELAY_MILLIS = 1000 * 5; // 5 seconds
+
     private String folderName;
+    private String[] moreFolderNames;
     private String host;
     private String password;
     private String port;
     private boolean useSsl;
+    private boolean continuousImport;
+    private String afterImport;
+    private String afterImportFolderName;
 
     private Store store;
-    private Folder folder;
+
+    /**
+     * The folders being imported from, in the order they're imported (the main folder first); message numbers run
+     * through each folder's messages in turn
+     */
+    private volatile List<FolderScan> scans = new ArrayList<FolderScan>();
+
+    /**
+     * Wakes the connection while waiting for new messages via IDLE; null if not waiting
+     */
+    private volatile ScheduledExecutorService idleTimer;
+
+    /**
+     * UIDs of imported messages waiting to be tidied away, by folder (see tidyImportedMessages()); also guards
+     * untidyCount and tidyTimer
+     */
+    private final Map<String, TreeSet<Long>> untidyUids = new LinkedHashMap<String, TreeSet<Long>>();
+    private int untidyCount = 0;
+    private ScheduledExecutorService tidyTimer = null;
 
     public ImapServer(int id) {
         super(id, EmailServer.TYPE_IMAP);
 
-        folder = null;
         store = null;
 
         //
@@ -73,6 +210,7 @@ public class ImapServer extends EmailServer {
 
         Preferences prefs = MIST.getPrefs();
         folderName = prefs.getString(getPrefName(PREF_FOLDER));
+        moreFolderNames = prefs.getStrings(getPrefName(PREF_FOLDERS_MORE));
         host = prefs.getString(getPrefName(PREF_HOST));
         password = prefs.getString(getPrefName(PREF_PASSWORD));
 
@@ -83,20 +221,57 @@ public class ImapServer extends EmailServer {
         // Set default port
         prefs.setDefault(getPrefName(PREF_PORT), useSsl ? DEFAULT_PORT_IMAPS : DEFAULT_PORT_IMAP);
         port = prefs.getString(getPrefName(PREF_PORT));
+
+        prefs.setDefault(getPrefName(PREF_CONTINUOUS), false);
+        continuousImport = prefs.getBoolean(getPrefName(PREF_CONTINUOUS));
+
+        prefs.setDefault(getPrefName(PREF_AFTER_IMPORT), AFTER_IMPORT_NOTHING);
+        afterImport = prefs.getString(getPrefName(PREF_AFTER_IMPORT));
+        afterImportFolderName = prefs.getString(getPrefName(PREF_AFTER_IMPORT_FOLDER));
     }
 
-    private void closeFolder() {
-        log.trace("{{}} closeFolder()", getNickname());
+    /**
+     * Adds an imported message to the ones waiting to be tidied away. They're tidied away in batches: as soon as enough
+     * of them are waiting, or otherwise shortly after the first one was added.
+     */
+    private void addImportedMessage(String folderName, long uid) {
+        log.trace("{{}} addImportedMessage({},{})", getNickname(), folderName, uid);
+        boolean tidyNow;
+        synchronized (untidyUids) {
+            if (!untidyUids.computeIfAbsent(folderName, name -> new TreeSet<Long>()).add(uid))
+                return;
+            tidyNow = ++untidyCount >= TIDY_BATCH_SIZE;
+            if (!tidyNow && untidyCount == 1) {
+                if (tidyTimer == null) {
+                    tidyTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, String.format("ESTidy%s", getId()));
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                tidyTimer.schedule(() -> tidyImportedMessages(), TIDY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (tidyNow)
+            tidyImportedMessages();
+    }
+
+    private synchronized void closeFolders() {
+        log.trace("{{}} closeFolders()", getNickname());
+        tidyImportedMessages(); // While the folders are still open
         if (store != null) {
-            try {
-                if (folder != null && folder.isOpen())
-                    folder.close();
-            } catch (MessagingException e) {
-                log.warn("{{}} Unable to close folder '{}'", getNickname(), folder.getName(), e);
-            } finally {
-                folder = null;
+            for (FolderScan scan : scans) {
+                try {
+                    if (scan.folder != null && scan.folder.isOpen())
+                        scan.folder.close();
+                } catch (MessagingException e) {
+                    log.warn("{{}} Unable to close folder '{}'", getNickname(), scan.name, e);
+                } finally {
+                    scan.folder = null;
+                }
             }
         }
+        scans = new ArrayList<FolderScan>();
     }
 
     private void closeStore() {
@@ -123,7 +298,7 @@ public class ImapServer extends EmailServer {
 
         // Initialize values
         store = null;
-        folder = null;
+        scans = new ArrayList<FolderScan>();
         currentMessageNumber = 0;
         totalMessages = 0;
 
@@ -147,8 +322,10 @@ public class ImapServer extends EmailServer {
             props.setProperty("mail.imaps.ssl.checkserveridentity", "false");
             props.setProperty("mail.imaps.ssl.trust", "*");
             props.setProperty("mail.imaps.connectionpooltimeout", String.valueOf(1000 * 60 * 60)); // 1 hour
+            props.setProperty("mail.imaps.connectionpoolsize", String.valueOf(MAX_FOLDER_CONNECTIONS));
         } else {
             props.setProperty("mail.imap.connectionpooltimeout", String.valueOf(1000 * 60 * 60)); // 1 hour
+            props.setProperty("mail.imap.connectionpoolsize", String.valueOf(MAX_FOLDER_CONNECTIONS));
         }
 
         Session sess = Session.getInstance(props, null);
@@ -168,6 +345,9 @@ public class ImapServer extends EmailServer {
             throw new EmailServerException(e);
         }
 
+        // Add property change listeners (to tidy away imported messages)
+        TntDb.addPropertyChangeListener(this);
+        HistoryModel.addPropertyChangeListener(this);
     }
 
     public void createFolder(String folderName) throws EmailServerException {
@@ -198,8 +378,43 @@ public class ImapServer extends EmailServer {
     @Override
     public void disconnect() {
         log.trace("{{}} disconnect()", getNickname());
-        closeFolder();
+        closeFolders();
         closeStore();
+        TntDb.removePropertyChangeListener(this);
+        HistoryModel.removePropertyChangeListener(this);
+        synchronized (untidyUids) {
+            if (tidyTimer != null)
+                tidyTimer.shutdownNow();
+            tidyTimer = null;
+        }
+    }
+
+    public String getAfterImport() {
+        return afterImport;
+    }
+
+    public String getAfterImportFolderName() {
+        if (afterImportFolderName == null)
+            return "";
+        return afterImportFolderName;
+    }
+
+    /**
+     * Returns a copy of the message from the message cache, downloading and caching the whole message if it isn't
+     * cached yet. Returns null if the message is too large to cache.
+     */
+    private Message getCachedMessage(MessageCache cache, Message message) throws MessagingException, IOException {
+        String key = getMessageCacheKey(getPosition(message));
+        byte[] bytes = cache.get(key);
+        if (bytes == null) {
+            if (message.getSize() > MAX_CACHED_MESSAGE_SIZE)
+                return null;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(message.getSize(), 0));
+            message.writeTo(out);
+            bytes = out.toByteArray();
+            cache.put(key, bytes);
+        }
+        return new MimeMessage(null, new ByteArrayInputStream(bytes));
     }
 
     public Folder[] getFolderList() {
@@ -216,12 +431,31 @@ public class ImapServer extends EmailServer {
         }
     }
 
+    /**
+     * Returns the main folder to import from.
+     */
     public String getFolderName() {
         if (folderName == null)
             return "";
         return folderName;
     }
 
+    /**
+     * Returns every folder to import from: the main folder, then any additional folders (without blanks or duplicates).
+     */
+    public String[] getFolderNames() {
+        Set<String> names = new LinkedHashSet<String>();
+        for (String name : getMoreFolderNames())
+            names.add(name.trim());
+        names.add(getFolderName());
+        names.remove("");
+        List<String> folderNames = new ArrayList<String>(names);
+        // The main folder always comes first
+        if (folderNames.remove(getFolderName()))
+            folderNames.add(0, getFolderName());
+        return folderNames.toArray(new String[0]);
+    }
+
     public String getHost() {
         return host;
     }
@@ -229,25 +463,111 @@ public class ImapServer extends EmailServer {
     @Override
     protected String getImportCompleteTipMessage() {
         log.trace("getImportCompleteTipMessage()");
+        if (isTidyAfterImport()) {
+            return String.format(
+                "MIST has finished importing from '%s'.%n%nImported messages have been %s.",
+                nickname,
+                AFTER_IMPORT_MOVE.equals(getAfterImport())
+                    ? String.format("moved to the '%s' folder", getAfterImportFolderName())
+                    : String.format("marked with the '%s' keyword", IMPORTED_KEYWORD));
+        }
         return String.format("""
             MIST has finished importing from '%s'.
 
-            You may want to remove imported messages from the '%s' folder.
+            You may want to remove imported messages from the '%s' folder(s).
             However, MIST will never import the same message twice, so you can also
             leave them in the folder. (Future imports will simply take longer.)
-            """, nickname, folderName);
+            """, nickname, String.join("', '", getFolderNames()));
+    }
+
+    /**
+     * Returns the specified message in the import list.
+     *
+     * @param number
+     *            the message's number in the import list, starting at 1
+     */
+    private Message getMessage(int number) {
+        for (FolderScan scan : scans) {
+            if (number <= scan.messages.length)
+                return scan.messages[number - 1];
+            number -= scan.messages.length;
+        }
+        throw new IndexOutOfBoundsException(String.format("{%s} No message %d", getNickname(), number));
+    }
+
+    /**
+     * Returns the additional folders to import from (after the main folder).
+     */
+    public String[] getMoreFolderNames() {
+        if (moreFolderNames == null)
+            return new String[0];
+        return moreFolderNames;
+    }
+
+    /**
+     * Returns the folder's messages that have arrived since it was last checked (in folder order).
+     */
+    private Message[] getNewMessages(FolderScan scan) throws MessagingException {
+        UIDFolder uidFolder = (UIDFolder) scan.folder;
+        List<Message> newMessages = new ArrayList<Message>();
+        for (Message message : uidFolder.getMessagesByUID(scan.lastUid + 1, UIDFolder.LASTUID)) {
+            // "n:*" always includes the last message, even if it's not new
+            long uid = uidFolder.getUID(message);
+            if (uid <= scan.lastUid)
+                continue;
+            newMessages.add(message);
+            scan.lastUid = uid;
+        }
+        return newMessages.toArray(new Message[0]);
     }
 
     @Override
     public EmailMessage getNextMessage() throws EmailServerException {
         log.trace("{{}} getNextMessage()", getNickname());
         try {
-            return new ImapMessage(ImapServer.this, folder.getMessage(++currentMessageNumber));
+            long start = System.nanoTime();
+            Message message = getMessage(++currentMessageNumber);
+            Folder folder = message.getFolder();
+            long uid = ((UIDFolder) folder).getUID(message);
+            MessageCache cache = EmailModel.getMessageCache();
+            if (cache != null) {
+                Message cachedMessage = getCachedMessage(cache, message);
+                if (cachedMessage != null)
+                    message = cachedMessage;
+            }
+            MetricsModel.record(Stage.FETCH, getId(), start);
+
+            start = System.nanoTime();
+            ImapMessage imapMessage = new ImapMessage(ImapServer.this, message);
+            imapMessage.setFolderUid(folder.getFullName(), uid);
+            MetricsModel.record(Stage.PARSE, getId(), start);
+            return imapMessage;
+        } catch (MessagingException | IOException e) {
+            throw new EmailServerException(e);
+        }
+    }
+
+    @Override
+    public String getNextMessageId() throws EmailServerException {
+        log.trace("{{}} getNextMessageId()", getNickname());
+        try {
+            String[] messageId = getMessage(currentMessageNumber + 1).getHeader("Message-ID");
+            return messageId == null || messageId.length == 0 ? null : messageId[0];
         } catch (MessagingException e) {
             throw new EmailServerException(e);
         }
     }
 
+    @Override
+    protected String getNextMessagePosition() {
+        try {
+            return getPosition(getMessage(currentMessageNumber + 1));
+        } catch (MessagingException e) {
+            log.warn("{{}} Unable to get UID of message {}", getNickname(), currentMessageNumber + 1, e);
+            return null;
+        }
+    }
+
     public String getPassword() {
         return password;
     }
@@ -256,16 +576,69 @@ public class ImapServer extends EmailServer {
         return port;
     }
 
+    /**
+     * Returns the message's position on this server (its folder, UIDVALIDITY and UID), which stays the same for as long
+     * as the message is in the folder.
+     */
+    private String getPosition(Message message) throws MessagingException {
+        UIDFolder uidFolder = (UIDFolder) message.getFolder();
+        return String.format(
+            "%s/%d/%d",
+            message.getFolder().getFullName(),
+            uidFolder.getUIDValidity(),
+            uidFolder.getUID(message));
+    }
+
+    /**
+     * Describes how far the import has got through each folder (if there's more than one).
+     */
+    @Override
+    public String getProgressDescription() {
+        List<FolderScan> scans = this.scans;
+        if (scans.size() <= 1)
+            return super.getProgressDescription();
+
+        List<String> lines = new ArrayList<String>();
+        int offset = 0;
+        for (FolderScan scan : scans) {
+            int current = Math.max(0, Math.min(currentMessageNumber - offset, scan.messages.length));
+            lines.add(String.format("%s/%s: %d of %d", getNickname(), scan.name, current, scan.messages.length));
+            offset += scan.messages.length;
+        }
+        return String.join("\n", lines);
+    }
+
     @Override
     public boolean hasNextMessage() {
         return currentMessageNumber < totalMessages;
     }
 
+    @Override
+    public boolean isBackfillSupported() {
+        return true;
+    }
+
     @Override
     public boolean isConnected() {
         return store != null;
     }
 
+    /**
+     * Returns true if, after importing, this server stays connected and imports new messages as they arrive (until
+     * the import is stopped).
+     */
+    public boolean isContinuousImport() {
+        return continuousImport;
+    }
+
+    /**
+     * Returns true if imported messages are to be moved or flagged on the server.
+     */
+    private boolean isTidyAfterImport() {
+        return AFTER_IMPORT_FLAG.equals(getAfterImport())
+            || (AFTER_IMPORT_MOVE.equals(getAfterImport()) && !getAfterImportFolderName().isBlank());
+    }
+
     public boolean isUseSsl() {
         return useSsl;
     }
@@ -273,43 +646,235 @@ public class ImapServer extends EmailServer {
     @Override
     public void loadMessageList() throws EmailServerException {
         log.trace("{{}} loadMessageList()", getNickname());
-        try {
-            openFolder();
-            totalMessages = folder.getMessageCount();
-            currentMessageNumber = 0;
-        } catch (MessagingException e) {
-            throw new EmailServerException(e);
+
+        // If there's a "since" window, let the server pick out the messages in it (SEARCH SINCE)
+        SearchTerm term = null;
+        LocalDate since = getSinceDate();
+        if (since != null) {
+            log.debug("{{}} Searching for messages since {}", getNickname(), since);
+            Date sinceDate = Date.from(since.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            term = new ReceivedDateTerm(ComparisonTerm.GE, sinceDate);
         }
-        log.debug("{{}} Retrieved {} message(s) from folder '{}'", getNickname(), totalMessages, getFolderName());
+        loadMessageList(term);
     }
 
-    public void openFolder() throws EmailServerException {
-        log.trace("openFolder()");
+    @Override
+    public void loadMessageList(String[] addresses) throws EmailServerException {
+        log.trace("{{}} loadMessageList({})", getNickname(), Arrays.toString(addresses));
+
+        // Let the server pick out the messages with these addresses (SEARCH OR FROM x OR TO x CC x)
+        List<SearchTerm> terms = new ArrayList<SearchTerm>();
+        for (String address : addresses) {
+            terms.add(new FromStringTerm(address));
+            terms.add(new RecipientStringTerm(Message.RecipientType.TO, address));
+            terms.add(new RecipientStringTerm(Message.RecipientType.CC, address));
+        }
+        log.debug("{{}} Searching for messages from or to {}", getNickname(), Arrays.toString(addresses));
+        loadMessageList(new OrTerm(terms.toArray(new SearchTerm[terms.size()])));
+    }
 
+    /**
+     * Lists the messages in each folder that match the specified search term. Folders are opened and searched
+     * concurrently, each over its own connection to the store (up to {@link #MAX_FOLDER_CONNECTIONS} at once).
+     *
+     * @param term
+     *            the search term; null to list every message in each folder
+     * @throws EmailServerException
+     *             if any folder couldn't be listed (messages in the other folders are still listed)
+     */
+    private void loadMessageList(SearchTerm term) throws EmailServerException {
         if (!isConnected())
             throw new EmailServerException(String.format("{%s} Not connected", getNickname()));
 
-        if (folder != null && folder.isOpen()) {
-            // Close & reopen the folder (to make sure messages are property expunged
-            log.trace("{{}} Folder '{}' already open; closing & reopening...", getNickname(), folder.getName());
-            try {
-                folder.close();
-            } catch (MessagingException e) {
-                throw new EmailServerException(e);
+        // Close & reopen the folders (to make sure messages are properly expunged)
+        closeFolders();
+        currentMessageNumber = 0;
+        totalMessages = 0;
+
+        String[] folderNames = getFolderNames();
+        if (folderNames.length == 0) {
+            log.warn("{{}} Could not open folder because folder name is blank", getNickname());
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.min(folderNames.length, MAX_FOLDER_CONNECTIONS),
+            runnable -> {
+                Thread thread = new Thread(runnable, String.format("ESScan%s", getId()));
+                thread.setDaemon(true);
+                return thread;
+            });
+        List<FolderScan> newScans = new ArrayList<FolderScan>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (String folderName : folderNames) {
+            FolderScan scan = new FolderScan(folderName);
+            newScans.add(scan);
+            futures.add(pool.submit(() -> {
+                scanFolder(scan, term);
+                return null;
+            }));
+        }
+
+        // Wait for every folder, keeping the folders that were listed
+        EmailServerException error = null;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.warn("{{}} Unable to list folder '{}'", getNickname(), newScans.get(i).name, e.getCause());
+                    newScans.get(i).messages = new Message[0];
+                    if (error == null)
+                        error = new EmailServerException(
+                            String.format("Unable to list folder '%s'", newScans.get(i).name),
+                            e.getCause());
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = new EmailServerException(e);
+        } finally {
+            pool.shutdownNow();
         }
 
-        if (!getFolderName().isEmpty()) {
-            try {
-                folder = store.getFolder(getFolderName());
-                folder.open(Folder.READ_ONLY);
-            } catch (MessagingException e) {
-                folder = null;
-                throw new EmailServerException(e);
+        for (FolderScan scan : newScans)
+            totalMessages += scan.messages.length;
+        scans = newScans;
+        log.debug("{{}} Retrieved {} message(s) from {} folder(s)", getNickname(), totalMessages, newScans.size());
+        if (error != null)
+            throw error;
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent event) {
+        log.trace("{{}} propertyChange({})", getNickname(), event);
+
+        if (TntDb.PROP_HISTORY_PROCESSED.equals(event.getPropertyName())
+            || HistoryModel.PROP_MESSAGE_IGNORED.equals(event.getPropertyName())
+            || HistoryModel.PROP_HISTORY_REMOVE.equals(event.getPropertyName())) {
+
+            if (isTidyAfterImport()) {
+
+                MessageSource msg = null;
+                if (HistoryModel.PROP_MESSAGE_IGNORED.equals(event.getPropertyName())) {
+                    msg = (MessageSource) event.getNewValue();
+                } else { // TntDb.PROP_HISTORY_PROCESSED or HistoryModel.PROP_HISTORY_REMOVE
+                    msg = ((History) event.getNewValue()).getMessageSource();
+                }
+
+                // (Messages replayed from the import journal aren't IMAP messages, so they stay where they are)
+                if (getId() == msg.getSourceId() && msg instanceof ImapMessage && isMessageProcessed(msg)) {
+                    ImapMessage imapMessage = (ImapMessage) msg;
+                    if (imapMessage.getFolderName() != null)
+                        addImportedMessage(imapMessage.getFolderName(), imapMessage.getUid());
+                }
             }
+        }
+    }
+
+    @Override
+    protected boolean resumeAfter(String position) throws EmailServerException {
+        log.trace("{{}} resumeAfter({})", getNickname(), position);
+        int uidStart = position.lastIndexOf('/');
+        int uidValidityStart = uidStart > 0 ? position.lastIndexOf('/', uidStart - 1) : -1;
+        if (uidValidityStart < 0)
+            return false;
+        String name = position.substring(0, uidValidityStart);
+
+        try {
+            int offset = 0;
+            for (FolderScan scan : scans) {
+                // Positions hold the folder's full name (as the server reports it), not the configured name
+                if (scan.folder == null || !scan.folder.getFullName().equals(name)) {
+                    offset += scan.messages.length;
+                    continue;
+                }
+
+                UIDFolder uidFolder = (UIDFolder) scan.folder;
+                if (Long.parseLong(position.substring(uidValidityStart + 1, uidStart)) != uidFolder.getUIDValidity())
+                    return false; // The folder's UIDs have been reassigned
+
+                // Skip earlier folders, and every message in this folder up to & including this UID
+                // (Messages are numbered in UID order, and their UIDs have been fetched)
+                long uid = Long.parseLong(position.substring(uidStart + 1));
+                currentMessageNumber = offset + scan.messages.length;
+                for (int i = 0; i < scan.messages.length; i++) {
+                    if (uidFolder.getUID(scan.messages[i]) > uid) {
+                        currentMessageNumber = offset + i;
+                        break;
+                    }
+                }
+                return true;
+            }
+            return false; // The folder is no longer imported
+        } catch (NumberFormatException e) {
+            return false;
+        } catch (MessagingException e) {
+            throw new EmailServerException(e);
+        }
+    }
+
+    /**
+     * Opens the folder and lists its messages that match the specified search term. Called concurrently for each
+     * folder by {@link #loadMessageList(SearchTerm)}.
+     */
+    private void scanFolder(FolderScan scan, SearchTerm term) throws MessagingException {
+        log.trace("{{}} scanFolder({})", getNickname(), scan.name);
+        scan.folder = store.getFolder(scan.name);
+        scan.folder.open(isTidyAfterImport() ? Folder.READ_WRITE : Folder.READ_ONLY);
+
+        // Messages flagged after an earlier import don't need to be looked at again
+        SearchTerm searchTerm = term;
+        if (isTidyAfterImport() && AFTER_IMPORT_FLAG.equals(getAfterImport())) {
+            FlagTerm notImported = new FlagTerm(new Flags(IMPORTED_KEYWORD), false);
+            searchTerm = searchTerm == null ? notImported : new AndTerm(searchTerm, notImported);
+        }
+
+        Message[] messages;
+        if (searchTerm != null) {
+            messages = scan.folder.search(searchTerm);
+            Arrays.sort(messages, Comparator.comparingInt(Message::getMessageNumber));
         } else {
-            log.warn("{{}} Could not open folder because folder name is blank", getNickname());
+            messages = scan.folder.getMessages();
         }
+
+        // Fetch all UIDs (for the import checkpoint & message cache) in one request, along with Message-IDs so the
+        // import ledger can be checked and sizes so the message cache can be checked without fetching each message
+        if (messages.length > 0) {
+            FetchProfile fetchProfile = new FetchProfile();
+            fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+            if (getImportLedger().size() > 0)
+                fetchProfile.add("Message-ID");
+            if (EmailModel.getMessageCache() != null)
+                fetchProfile.add(FetchProfile.Item.SIZE);
+            scan.folder.fetch(messages, fetchProfile);
+        }
+        scan.messages = messages;
+
+        // Remember where we are, so we can tell which messages are new when they arrive
+        if (isContinuousImport()) {
+            int messageCount = scan.folder.getMessageCount();
+            UIDFolder uidFolder = (UIDFolder) scan.folder;
+            scan.lastUid = messageCount > 0 ? uidFolder.getUID(scan.folder.getMessage(messageCount)) : 0;
+        }
+        log.debug("{{}} Retrieved {} message(s) from folder '{}'", getNickname(), messages.length, scan.name);
+    }
+
+    public void setAfterImport(String afterImport) {
+        this.afterImport = afterImport;
+        if (afterImport != null)
+            MIST.getPrefs().setValue(getPrefName(PREF_AFTER_IMPORT), afterImport);
+    }
+
+    public void setAfterImportFolderName(String afterImportFolderName) {
+        this.afterImportFolderName = afterImportFolderName;
+        if (afterImportFolderName != null)
+            MIST.getPrefs().setValue(getPrefName(PREF_AFTER_IMPORT_FOLDER), afterImportFolderName);
+    }
+
+    public void setContinuousImport(boolean continuousImport) {
+        this.continuousImport = continuousImport;
+        MIST.getPrefs().setValue(getPrefName(PREF_CONTINUOUS), continuousImport);
     }
 
     public void setFolderName(String folderName) {
@@ -324,6 +889,12 @@ public class ImapServer extends EmailServer {
             MIST.getPrefs().setValue(getPrefName(PREF_HOST), host);
     }
 
+    public void setMoreFolderNames(String[] moreFolderNames) {
+        this.moreFolderNames = moreFolderNames;
+        if (moreFolderNames != null)
+            MIST.getPrefs().setValues(getPrefName(PREF_FOLDERS_MORE), moreFolderNames);
+    }
+
     public void setPassword(String password) {
         this.password = password;
         if (password != null)
@@ -341,4 +912,242 @@ public class ImapServer extends EmailServer {
         MIST.getPrefs().setValue(getPrefName(PREF_USESSL), useSsl);
     }
 
+    @Override
+    public void skipNextMessage() throws EmailServerException {
+        log.trace("{{}} skipNextMessage()", getNickname());
+        Message message = getMessage(++currentMessageNumber);
+
+        // The message was imported before, so it can be tidied away (just as if it had been imported now)
+        if (isTidyAfterImport()) {
+            try {
+                Folder folder = message.getFolder();
+                addImportedMessage(folder.getFullName(), ((UIDFolder) folder).getUID(message));
+            } catch (MessagingException e) {
+                throw new EmailServerException(e);
+            }
+        }
+    }
+
+    /**
+     * Sleeps for the specified time, or until the import is stopped.
+     */
+    private void sleepUnlessStopped(long millis) {
+        long end = System.currentTimeMillis() + millis;
+        while (!isStopImporting() && System.currentTimeMillis() < end) {
+            try {
+                Thread.sleep(Math.min(1000, end - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void stopImportService() {
+        super.stopImportService();
+
+        // If we're waiting in IDLE, wake up so the import thread can finish
+        ScheduledExecutorService timer = idleTimer;
+        if (timer != null) {
+            try {
+                timer.execute(this::wakeFolder);
+            } catch (RejectedExecutionException e) {
+                // Already done waiting
+            }
+        }
+    }
+
+    /**
+     * Tidies away the imported messages that are waiting (see addImportedMessage()), by moving them to the after-import
+     * folder or setting the imported keyword on them. Each folder's messages are tidied away in batches of UIDs, so the
+     * folders shrink (or are skipped by the next search) and future imports stay fast. Messages in folders that are no
+     * longer open are left for the next import, which will skip them as already imported and tidy them away then.
+     */
+    private synchronized void tidyImportedMessages() {
+        Map<String, TreeSet<Long>> uidsByFolder;
+        synchronized (untidyUids) {
+            if (untidyCount == 0)
+                return;
+            uidsByFolder = new LinkedHashMap<String, TreeSet<Long>>(untidyUids);
+            untidyUids.clear();
+            untidyCount = 0;
+        }
+        log.trace("{{}} tidyImportedMessages()", getNickname());
+        if (!isTidyAfterImport())
+            return;
+
+        try {
+            if (AFTER_IMPORT_MOVE.equals(getAfterImport()) && isConnected()) {
+                Folder afterImportFolder = store.getFolder(getAfterImportFolderName());
+                if (!afterImportFolder.exists())
+                    createFolder(getAfterImportFolderName());
+            }
+
+            for (FolderScan scan : scans) {
+                if (scan.folder == null || !scan.folder.isOpen())
+                    continue;
+                TreeSet<Long> uids = uidsByFolder.remove(scan.folder.getFullName());
+                if (uids == null)
+                    continue;
+
+                long[] uidArray = uids.stream().mapToLong(Long::longValue).toArray();
+                for (int i = 0; i < uidArray.length; i += TIDY_BATCH_SIZE) {
+                    long[] batch = Arrays.copyOfRange(uidArray, i, Math.min(i + TIDY_BATCH_SIZE, uidArray.length));
+                    tidyImportedMessages((IMAPFolder) scan.folder, batch);
+                }
+            }
+        } catch (EmailServerException | MessagingException e) {
+            String msg = String.format("Could not tidy away imported messages on server '%s'", getNickname());
+            Util.reportError("Email server error", msg, e);
+        }
+
+        for (Map.Entry<String, TreeSet<Long>> entry : uidsByFolder.entrySet())
+            log.debug(
+                "{{}} Folder '{}' is closed; leaving {} imported message(s) for next time",
+                getNickname(),
+                entry.getKey(),
+                entry.getValue().size());
+    }
+
+    /**
+     * Tidies away a batch of imported messages in the specified folder with UID commands: UID MOVE if the server
+     * supports it (RFC 6851), otherwise UID COPY followed by deleting them and expunging them with UID EXPUNGE (RFC
+     * 4315); or UID STORE to set the imported keyword. Servers that support neither MOVE nor UIDPLUS can only expunge
+     * every deleted message in the folder (including the user's own), so the messages are left where they are.
+     */
+    private void tidyImportedMessages(IMAPFolder folder, long[] uids) throws MessagingException {
+        boolean move = AFTER_IMPORT_MOVE.equals(getAfterImport());
+        log.debug(
+            "{{}} {} {} imported message(s) in folder '{}'",
+            getNickname(),
+            move ? "Moving" : "Flagging",
+            uids.length,
+            folder.getFullName());
+        if (!move && !folder.getPermanentFlags().contains(Flags.Flag.USER))
+            throw new MessagingException(String.format("Folder '%s' doesn't allow keywords", folder.getFullName()));
+
+        String afterImportFolderName = getAfterImportFolderName();
+        folder.doCommand(protocol -> {
+            UIDSet[] uidSets = UIDSet.createUIDSets(uids);
+            String uidSet = UIDSet.toString(uidSets);
+            if (!move) {
+                protocol.simpleCommand(
+                    String.format("UID STORE %s +FLAGS.SILENT (%s)", uidSet, IMPORTED_KEYWORD),
+                    null);
+                return null;
+            }
+
+            Argument args = new Argument();
+            args.writeAtom(uidSet);
+            args.writeString(
+                protocol.supportsUtf8() ? afterImportFolderName : BASE64MailboxEncoder.encode(afterImportFolderName));
+            if (protocol.hasCapability("MOVE")) {
+                protocol.simpleCommand("UID MOVE", args);
+            } else if (protocol.hasCapability("UIDPLUS")) {
+                protocol.simpleCommand("UID COPY", args);
+                protocol.simpleCommand(String.format("UID STORE %s +FLAGS.SILENT (\\Deleted)", uidSet), null);
+                protocol.uidexpunge(uidSets);
+            } else {
+                log.warn(
+                    "{{}} Server supports neither MOVE nor UIDPLUS; leaving {} imported message(s) in folder '{}'",
+                    getNickname(),
+                    uids.length,
+                    folder.getFullName());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Keeps the folders open and waits for new messages, using IDLE if the server supports it (and there's only one
+     * folder, since IDLE ties up the folder's connection) and NOOP polling otherwise. When new messages arrive, they're
+     * set up as the next messages to import.
+     */
+    @Override
+    protected boolean waitForNewMessages() throws EmailServerException {
+        List<FolderScan> scans = this.scans;
+        if (!isContinuousImport() || MIST.isHeadless() || scans.isEmpty())
+            return false;
+        for (FolderScan scan : scans)
+            if (scan.folder == null || !scan.folder.isOpen())
+                return false;
+        log.trace("{{}} waitForNewMessages()", getNickname());
+
+        ScheduledExecutorService timer = null;
+        try {
+            boolean useIdle = scans.size() == 1 && ((IMAPStore) store).hasCapability("IDLE");
+            log.debug(
+                "{{}} Waiting for new messages in folder(s) '{}' (using {})",
+                getNickname(),
+                String.join("', '", getFolderNames()),
+                useIdle ? "IDLE" : "NOOP");
+
+            if (useIdle) {
+                timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, String.format("ESIdle%s", getId()));
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                timer.scheduleWithFixedDelay(
+                    this::wakeFolder,
+                    IDLE_RENEW_MILLIS,
+                    IDLE_RENEW_MILLIS,
+                    TimeUnit.MILLISECONDS);
+                idleTimer = timer;
+            }
+
+            while (!isStopImporting()) {
+                if (useIdle) {
+                    // Returns when the server reports a change or another thread uses the folder
+                    ((IMAPFolder) scans.get(0).folder).idle(true);
+                } else {
+                    sleepUnlessStopped(NOOP_POLL_MILLIS);
+                    for (FolderScan scan : scans)
+                        scan.folder.getMessageCount(); // Sends NOOP
+                }
+
+                // Anything new?
+                int newMessageCount = 0;
+                for (FolderScan scan : scans) {
+                    scan.messages = getNewMessages(scan);
+                    newMessageCount += scan.messages.length;
+                }
+                if (newMessageCount > 0) {
+                    // Previous messages have all been imported, so the new messages are the whole import list
+                    currentMessageNumber = 0;
+                    totalMessages = newMessageCount;
+                    log.debug("{{}} {} new message(s)", getNickname(), newMessageCount);
+                    return true;
+                }
+            }
+            return false;
+        } catch (MessagingException e) {
+            throw new EmailServerException(e);
+        } finally {
+            idleTimer = null;
+            if (timer != null)
+                timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Ends a pending IDLE on the folder (any command on the folder does) so it can be renewed or abandoned.
+     */
+    private void wakeFolder() {
+        log.trace("{{}} wakeFolder()", getNickname());
+        List<FolderScan> scans = this.scans;
+        Folder folder = scans.isEmpty() ? null : scans.get(0).folder;
+        if (folder == null)
+            return;
+        try {
+            ((IMAPFolder) folder).doCommand(protocol -> {
+                protocol.noop();
+                return null;
+            });
+        } catch (MessagingException e) {
+            log.warn("{{}} Unable to wake folder '{}'", getNickname(), getFolderName(), e);
+        }
+    }
+
 }
@@ -0,0 +1,224 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records how far an import from one email server has got, so that an interrupted import can resume where it left off.
+ * <p>
+ * Each message handed to the Tnt import service is identified by its position on the server (see
+ * {@link EmailServer#getNextMessagePosition()}). The checkpoint is the position of the last message that has been
+ * committed to Tnt without errors, along with every message before it. It's saved to a file as it advances (at most
+ * once a second, and whenever every dispatched message has been committed) and cleared once an import has finished.
+ */
+public class ImportCheckpoint {
+    private static Logger log = LogManager.getLogger();
+
+    private static final long SAVE_INTERVAL_MILLIS = 1000;
+
+    private final Path file;
+
+    private String position = null;
+    private boolean loaded = false;
+    private boolean dirty = false;
+    private long lastSaveMillis = 0;
+
+    /**
+     * Positions of the messages dispatched during this import that are past the checkpoint, in server order, and
+     * whether each has been committed
+     */
+    private final LinkedHashMap<String, Boolean> pending = new LinkedHashMap<String, Boolean>();
+
+    /**
+     * True once every message has been dispatched (i.e. the import wasn't stopped part way)
+     */
+    private boolean finished = false;
+
+    /**
+     * Run once every message has been dispatched and committed; see finish(Runnable)
+     */
+    private Runnable onComplete = null;
+
+    public ImportCheckpoint(Path file) {
+        log.trace("ImportCheckpoint({})", file);
+        this.file = file;
+    }
+
+    /**
+     * Moves the checkpoint past every committed message at the front of the pending list, then saves it if it's time.
+     */
+    private void advance() {
+        Iterator<Map.Entry<String, Boolean>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Boolean> entry = iterator.next();
+            if (!entry.getValue())
+                break;
+            position = entry.getKey();
+            dirty = true;
+            iterator.remove();
+        }
+
+        if (pending.isEmpty() && finished) {
+            clear();
+            if (onComplete != null)
+                onComplete.run();
+            onComplete = null;
+        } else if (dirty && (pending.isEmpty() || System.currentTimeMillis() - lastSaveMillis >= SAVE_INTERVAL_MILLIS))
+            save();
+    }
+
+    /**
+     * Removes the checkpoint, so the next import starts from the first message.
+     */
+    public synchronized void clear() {
+        log.trace("{{}} clear()", file.getFileName());
+        position = null;
+        loaded = true;
+        dirty = false;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import checkpoint '{}'", file, e);
+        }
+    }
+
+    /**
+     * Records that the message at the specified position has been committed to Tnt without errors.
+     *
+     * @param position
+     *            the message's position; ignored if null or not dispatched during this import
+     */
+    public synchronized void commit(String position) {
+        log.trace("{{}} commit({})", file.getFileName(), position);
+        if (position == null || !pending.containsKey(position))
+            return;
+        pending.put(position, true);
+        advance();
+    }
+
+    /**
+     * Records that the message at the specified position is about to be handed to the Tnt import service. Messages must
+     * be dispatched in server order.
+     *
+     * @param position
+     *            the message's position; ignored if null
+     */
+    public synchronized void dispatch(String position) {
+        log.trace("{{}} dispatch({})", file.getFileName(), position);
+        if (position != null)
+            pending.putIfAbsent(position, false);
+    }
+
+    /**
+     * Records that every message has been dispatched. Once they've all been committed, the checkpoint is cleared.
+     */
+    public synchronized void finish() {
+        finish(null);
+    }
+
+    /**
+     * Records that every message has been dispatched. Once they've all been committed, the checkpoint is cleared and
+     * {@code onComplete} is run (on the thread that committed the last message).
+     *
+     * @param onComplete
+     *            run once the import is complete; may be null
+     */
+    public synchronized void finish(Runnable onComplete) {
+        log.trace("{{}} finish({})", file.getFileName(), onComplete);
+        this.onComplete = onComplete;
+        finished = true;
+        advance();
+    }
+
+    /**
+     * Returns the position of the last message committed (along with every message before it), or null if there's no
+     * checkpoint.
+     */
+    public synchronized String get() {
+        load();
+        return position;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!Files.exists(file))
+            return;
+
+        log.trace("{{}} load()", file.getFileName());
+        try {
+            String text = Files.readString(file, StandardCharsets.UTF_8).strip();
+            position = text.isEmpty() ? null : text;
+        } catch (IOException e) {
+            log.warn("Could not read import checkpoint '{}'; starting from the first message", file, e);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to its file (via a temporary file, so the checkpoint is never half-written).
+     */
+    private void save() {
+        log.trace("{{}} save()", file.getFileName());
+        try {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tempFile, position, StandardCharsets.UTF_8);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            // Not fatal; the import ledger still lets already-imported messages be skipped quickly
+            log.warn("Could not save import checkpoint '{}'", file, e);
+        }
+        lastSaveMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Prepares for a new import, which starts after the current checkpoint (if any).
+     */
+    public synchronized void start() {
+        log.trace("{{}} start()", file.getFileName());
+        load();
+        pending.clear();
+        finished = false;
+        onComplete = null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportCheckpoint [file=%s]", file);
+    }
+
+}
@@ -0,0 +1,331 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An append-only file of messages that were retrieved while the Tnt database was unavailable (e.g. open in
+ * TntConnect), so they can be added to Tnt the next time it's available.
+ * <p>
+ * Each record is a length, the message's email server (by ledger ID) and content, and a CRC32 checksum. Records are
+ * written as they're appended, but only forced to disk in batches (see {@link #flush(boolean)}); a record that was only
+ * partly written when MIST stopped is detected by its checksum and ignored. Replaying a journal more than once is
+ * harmless, since Tnt history that already exists is never created twice.
+ *
+ * @see EmailServer#getLedgerId()
+ */
+public class ImportJournal {
+    /**
+     * A message read back from the journal
+     */
+    public static class Entry {
+        private final String ledgerId;
+        private final MessageSource message;
+
+        public Entry(String ledgerId, MessageSource message) {
+            this.ledgerId = ledgerId;
+            this.message = message;
+        }
+
+        /**
+         * Returns the ledger ID of the email server the message came from.
+         */
+        public String getLedgerId() {
+            return ledgerId;
+        }
+
+        public MessageSource getMessage() {
+            return message;
+        }
+    }
+
+    private static Logger log = LogManager.getLogger();
+
+    /**
+     * Maximum number of records appended before they're forced to disk
+     */
+    private static final int FLUSH_RECORDS = 100;
+
+    /**
+     * Maximum time a record may wait before it's forced to disk
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final Path file;
+
+    private FileChannel channel = null;
+    private int unflushedCount = 0;
+    private long firstUnflushedMillis = 0;
+
+    public ImportJournal(Path file) {
+        log.trace("ImportJournal({})", file);
+        this.file = file;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Appends the specified message to the journal. The record isn't guaranteed to be on disk until the journal has
+     * been flushed.
+     *
+     * @param ledgerId
+     *            the ledger ID of the email server the message came from
+     * @param message
+     *            the message
+     * @throws IOException
+     *             if the journal could not be written
+     */
+    public synchronized void append(String ledgerId, MessageSource message) throws IOException {
+        log.trace("{{}} append({},{})", file.getFileName(), ledgerId, message);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, ledgerId);
+        writeString(out, message.getSourceName());
+        writeString(out, message.getDate());
+        writeString(out, message.getFromId());
+        writeString(out, message.getFromName());
+        out.writeInt(message.getRecipients().length);
+        for (Object recipient : message.getRecipients())
+            writeString(out, recipient);
+        writeString(out, message.getSubject());
+        writeString(out, message.getBody());
+        writeString(out, message.getMessageId());
+        out.writeBoolean(message.isAddExistingHistory());
+        out.flush();
+        byte[] payload = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length + Integer.BYTES);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue()).flip();
+
+        if (channel == null)
+            channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        if (unflushedCount++ == 0)
+            firstUnflushedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Removes all messages from the journal and deletes the journal file.
+     */
+    public synchronized void clear() {
+        log.trace("{{}} clear()", file.getFileName());
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import journal '{}'", file, e);
+        }
+    }
+
+    /**
+     * Forces any appended records to disk and closes the journal file (until the next append).
+     */
+    public synchronized void close() {
+        log.trace("{{}} close()", file.getFileName());
+        if (channel == null)
+            return;
+        try {
+            flush(true);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close import journal '{}'", file, e);
+        }
+        channel = null;
+        unflushedCount = 0;
+    }
+
+    /**
+     * Forces appended records to disk if {@code force} is true or a batch is due (every 100 records or every
+     * second).
+     *
+     * @param force
+     *            true to force records to disk even if a batch isn't due
+     * @return true if every record appended so far is on disk; false if some are still waiting for a batch
+     * @throws IOException
+     *             if the journal could not be forced to disk
+     */
+    public synchronized boolean flush(boolean force) throws IOException {
+        if (unflushedCount == 0)
+            return true;
+        if (!force && unflushedCount < FLUSH_RECORDS
+            && System.currentTimeMillis() - firstUnflushedMillis < FLUSH_INTERVAL_MILLIS)
+            return false;
+
+        log.trace("{{}} flush({}) -- {} record(s)", file.getFileName(), force, unflushedCount);
+        channel.force(false);
+        unflushedCount = 0;
+        return true;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns true if the journal has no messages.
+     */
+    public synchronized boolean isEmpty() {
+        try {
+            return !Files.exists(file) || Files.size(file) == 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Reads every message in the journal, in the order they were appended. A damaged or partly-written record ends the
+     * journal.
+     *
+     * @return the messages in the journal; never null
+     */
+    public synchronized List<Entry> read() {
+        log.trace("{{}} read()", file.getFileName());
+        close();
+        List<Entry> entries = new ArrayList<Entry>();
+        if (!Files.exists(file))
+            return entries;
+
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            log.warn("Could not read import journal '{}'", file, e);
+            return entries;
+        }
+
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + Integer.BYTES) {
+                log.warn("Ignoring partial record at end of import journal '{}'", file);
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                log.warn("Ignoring damaged record {} (and any after it) in import journal '{}'", entries.size(), file);
+                break;
+            }
+
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                String ledgerId = readString(in);
+                MessageSource message = new MessageSource();
+                message.setSourceName(readString(in));
+                String date = readString(in);
+                message.setDate(date == null ? null : LocalDateTime.parse(date));
+                message.setFromId(readString(in));
+                message.setFromName(readString(in));
+                Object[] recipients = new Object[in.readInt()];
+                for (int i = 0; i < recipients.length; i++)
+                    recipients[i] = readString(in);
+                message.addRecipients(recipients);
+                message.setSubject(readString(in));
+                message.setBody(readString(in));
+                message.setMessageId(readString(in));
+                message.setAddExistingHistory(in.readBoolean());
+                entries.add(new Entry(ledgerId, message));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring unreadable record {} in import journal '{}'", entries.size(), file, e);
+            }
+        }
+        log.debug("Read {} message(s) from import journal '{}'", entries.size(), file);
+        return entries;
+    }
+
+    /**
+     * Replaces the contents of the journal with the specified messages (via a temporary file, so the journal is never
+     * half-written). If there are none, the journal file is deleted.
+     *
+     * @param entries
+     *            the messages to keep
+     * @throws IOException
+     *             if the journal could not be rewritten
+     */
+    public synchronized void rewrite(List<Entry> entries) throws IOException {
+        log.trace("{{}} rewrite({})", file.getFileName(), entries.size());
+        if (entries.isEmpty()) {
+            clear();
+            return;
+        }
+
+        close();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        ImportJournal tempJournal = new ImportJournal(tempFile);
+        try {
+            Files.deleteIfExists(tempFile);
+            for (Entry entry : entries)
+                tempJournal.append(entry.getLedgerId(), entry.getMessage());
+        } finally {
+            tempJournal.close();
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportJournal [file=%s]", file);
+    }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A persistent set of the identities of messages that have been fully imported into Tnt from one email server.
+ * <p>
+ * The file is a list of fixed-width (16-byte) message identities. Identities added during a session are appended to
+ * the file as they're added; the next time the ledger is loaded, the file is rewritten sorted and without duplicates.
+ * In memory, loaded identities are kept in a sorted array (searched with a binary search) and identities added since
+ * are kept in a set.
+ *
+ * @see MessageSource#getIdentity()
+ */
+public class ImportLedger {
+    private static Logger log = LogManager.getLogger();
+
+    private static final int RECORD_SIZE = 16;
+
+    private final Path file;
+
+    /**
+     * Identities loaded from the file, sorted as pairs of longs (most significant, least significant)
+     */
+    private long[] sorted = new long[0];
+
+    /**
+     * Identities added since the file was loaded
+     */
+    private Set<UUID> added = new HashSet<UUID>();
+
+    private boolean loaded = false;
+
+    public ImportLedger(Path file) {
+        log.trace("ImportLedger({})", file);
+        this.file = file;
+    }
+
+    private static int compare(long msb1, long lsb1, long msb2, long lsb2) {
+        int result = Long.compare(msb1, msb2);
+        return result != 0 ? result : Long.compare(lsb1, lsb2);
+    }
+
+    /**
+     * Adds the specified identity to the ledger and appends it to the ledger file.
+     *
+     * @param identity
+     *            the identity of a message that has been fully imported
+     */
+    public synchronized void add(UUID identity) {
+        log.trace("{{}} add({})", file.getFileName(), identity);
+        load();
+        if (contains(identity))
+            return;
+        added.add(identity);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(identity.getMostSignificantBits()).putLong(identity.getLeastSignificantBits());
+        try {
+            Files.write(file, buffer.array(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // The identity is still in memory; worst case, the message is checked against Tnt again next time
+            log.warn("Could not write to import ledger '{}'", file, e);
+        }
+    }
+
+    /**
+     * Removes all identities from the ledger and deletes the ledger file.
+     */
+    public synchronized void clear() {
+        log.trace("{{}} clear()", file.getFileName());
+        sorted = new long[0];
+        added.clear();
+        loaded = true;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import ledger '{}'", file, e);
+        }
+    }
+
+    /**
+     * Returns true if the specified identity is in the ledger.
+     *
+     * @param identity
+     *            the identity of a message; may be null
+     * @return true if the message has been fully imported; false otherwise
+     */
+    public synchronized boolean contains(UUID identity) {
+        if (identity == null)
+            return false;
+        load();
+        if (added.contains(identity))
+            return true;
+
+        long msb = identity.getMostSignificantBits();
+        long lsb = identity.getLeastSignificantBits();
+        int low = 0;
+        int high = sorted.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(sorted[mid * 2], sorted[mid * 2 + 1], msb, lsb);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Loads the ledger file if it hasn't been loaded yet, rewriting it sorted and without duplicates if necessary.
+     */
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!Files.exists(file))
+            return;
+
+        log.trace("{{}} load()", file.getFileName());
+        long[][] records;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            records = new long[buffer.remaining() / RECORD_SIZE][];
+            for (int i = 0; i < records.length; i++)
+                records[i] = new long[] { buffer.getLong(), buffer.getLong() };
+            if (buffer.hasRemaining())
+                log.warn("Ignoring partial record at end of import ledger '{}'", file);
+        } catch (IOException e) {
+            log.warn("Could not read import ledger '{}'; starting a new one", file, e);
+            return;
+        }
+
+        // Sort & remove duplicates
+        Arrays.sort(records, (r1, r2) -> compare(r1[0], r1[1], r2[0], r2[1]));
+        long[] newSorted = new long[records.length * 2];
+        int count = 0;
+        for (long[] record : records) {
+            if (count > 0 && compare(newSorted[count * 2 - 2], newSorted[count * 2 - 1], record[0], record[1]) == 0)
+                continue;
+            newSorted[count * 2] = record[0];
+            newSorted[count * 2 + 1] = record[1];
+            count++;
+        }
+        sorted = Arrays.copyOf(newSorted, count * 2);
+        log.debug("Loaded {} message(s) from import ledger '{}'", count, file);
+
+        // Compact the file if anything was appended since it was last sorted
+        boolean isSorted = true;
+        for (int i = 1; i < records.length && isSorted; i++)
+            isSorted = compare(records[i - 1][0], records[i - 1][1], records[i][0], records[i][1]) < 0;
+        if (count != records.length || !isSorted)
+            save();
+    }
+
+    /**
+     * Writes the sorted identities to the ledger file (via a temporary file, so the ledger is never half-written).
+     */
+    private void save() {
+        log.trace("{{}} save()", file.getFileName());
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.length * Long.BYTES);
+        for (long l : sorted)
+            buffer.putLong(l);
+        try {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tempFile, buffer.array());
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not compact import ledger '{}'", file, e);
+        }
+    }
+
+    /**
+     * Returns the number of identities in the ledger.
+     */
+    public synchronized int size() {
+        load();
+        return sorted.length / 2 + added.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportLedger [file=%s]", file);
+    }
+
+}
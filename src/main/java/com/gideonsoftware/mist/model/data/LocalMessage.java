@@ -0,0 +1,66 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import jakarta.mail.Message;
+
+/**
+ * A message read from a local mail file (mbox, Maildir or .eml). Parsing is shared with {@link ImapMessage}.
+ */
+public class LocalMessage extends ImapMessage {
+    private static Logger log = LogManager.getLogger();
+
+    /**
+     * Where the message was read from (a file, plus the byte offset within an mbox file)
+     */
+    private String location;
+
+    public LocalMessage(LocalMessage localMessage) {
+        super(localMessage);
+        this.location = localMessage.getLocation();
+        // We need this for property inheritance & copy constructor functionality
+    }
+
+    public LocalMessage(LocalServer server, Message message, String location) {
+        super(server, message);
+        log.trace("LocalMessage({},{},{})", server, message, location);
+        this.location = location;
+    }
+
+    /**
+     * Returns a clone of this local message
+     * 
+     * @return a clone of this local message
+     * @see https://dzone.com/articles/java-cloning-even-copy-constructors-are-not-suffic
+     */
+    @Override
+    public LocalMessage cloneObject() {
+        return new LocalMessage(this);
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+}
@@ -0,0 +1,329 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.exceptions.EmailServerException;
+import com.gideonsoftware.mist.model.MetricsModel;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetHeaders;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * An "email server" that reads archived messages from local files: an mbox file, a Maildir directory, a single .eml
+ * file, or a folder containing any of these (searched recursively). Files are never modified.
+ */
+public class LocalServer extends EmailServer {
+
+    /**
+     * The location of a message: a whole file, or a byte range in an mbox file.
+     */
+    private static class Location {
+        private final Path file;
+        private final long[] range;
+
+        public Location(Path file, long[] range) {
+            this.file = file;
+            this.range = range;
+        }
+
+        @Override
+        public String toString() {
+            return range == null ? file.toString() : String.format("%s@%d", file, range[0]);
+        }
+    }
+
+    private static Logger log = LogManager.getLogger();
+
+    public final static String PREF_PATH = "path";
+
+    public final static String NEW_NICKNAME = "Local";
+
+    private String path;
+
+    private boolean connected;
+    private Session session;
+
+    /**
+     * Where to find each message, in import order
+     */
+    private List<Location> locations;
+
+    // The mbox file currently being read
+    private Path mboxFile;
+    private FileChannel mboxChannel;
+
+    public LocalServer(int id) {
+        super(id, EmailServer.TYPE_LOCAL);
+
+        connected = false;
+        locations = new ArrayList<Location>();
+
+        // Load preferences
+        path = MIST.getPrefs().getString(getPrefName(PREF_PATH));
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * Returns true if the specified directory is a Maildir (i.e. has "cur" and "new" subdirectories).
+     */
+    private static boolean isMaildir(Path dir) {
+        return Files.isDirectory(dir.resolve("cur")) && Files.isDirectory(dir.resolve("new"));
+    }
+
+    private static List<Path> listSorted(Path dir) throws IOException {
+        try (Stream<Path> children = Files.list(dir)) {
+            // Hidden directories may be Maildir++ folders (e.g. ".Sent"), so only skip hidden files
+            return children.filter(child -> !isHidden(child) || Files.isDirectory(child))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private void addFileLocations(Path file) throws IOException {
+        if (file.getFileName().toString().toLowerCase().endsWith(".eml")) {
+            locations.add(new Location(file, null));
+        } else if (MboxScanner.isMbox(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                List<long[]> ranges = MboxScanner.findMessages(channel);
+                log.debug("{{}} Found {} message(s) in mbox file '{}'", getNickname(), ranges.size(), file);
+                for (long[] range : ranges)
+                    locations.add(new Location(file, range));
+            }
+        } else {
+            log.debug("{{}} Skipping '{}' (not an mbox or .eml file)", getNickname(), file);
+        }
+    }
+
+    private void addLocations(Path path) throws IOException {
+        if (Files.isRegularFile(path)) {
+            addFileLocations(path);
+        } else if (isMaildir(path)) {
+            // Maildir file names start with the delivery time, so sorting puts them in (roughly) date order
+            List<Path> files = new ArrayList<Path>();
+            files.addAll(listSorted(path.resolve("new")));
+            files.addAll(listSorted(path.resolve("cur")));
+            files.sort(
+                (file1, file2) -> file1.getFileName().toString().compareTo(file2.getFileName().toString()));
+            for (Path file : files)
+                if (Files.isRegularFile(file))
+                    locations.add(new Location(file, null));
+
+            // Maildir++ keeps its other folders (".Sent", ".Archive", etc.) as Maildirs inside the root
+            for (Path child : listSorted(path))
+                if (isMaildir(child))
+                    addLocations(child);
+        } else if (Files.isDirectory(path)) {
+            for (Path child : listSorted(path))
+                addLocations(child);
+        }
+    }
+
+    private void closeMboxFile() {
+        if (mboxChannel != null) {
+            try {
+                mboxChannel.close();
+            } catch (IOException e) {
+                log.warn("{{}} Unable to close '{}'", getNickname(), mboxFile, e);
+            } finally {
+                mboxChannel = null;
+                mboxFile = null;
+            }
+        }
+    }
+
+    @Override
+    public void connect() throws EmailServerException {
+        log.trace("{{}} connect()", getNickname());
+
+        if (isConnected()) {
+            log.trace("{{}} Already connected", getNickname());
+            return;
+        }
+
+        currentMessageNumber = 0;
+        totalMessages = 0;
+
+        if (getPath().isBlank())
+            throw new EmailServerException(String.format("{%s} No mail file or folder selected", getNickname()));
+        if (!Files.exists(Paths.get(getPath())))
+            throw new EmailServerException(String.format("{%s} '%s' does not exist", getNickname(), getPath()));
+
+        session = Session.getInstance(new Properties(), null);
+        connected = true;
+    }
+
+    @Override
+    public void disconnect() {
+        log.trace("{{}} disconnect()", getNickname());
+        closeMboxFile();
+        locations.clear();
+        connected = false;
+    }
+
+    @Override
+    protected String getImportCompleteTipMessage() {
+        log.trace("getImportCompleteTipMessage()");
+        return String.format("""
+            MIST has finished importing from '%s'.
+
+            The files in '%s' have not been changed.
+            MIST will never import the same message twice, so it's safe to import them again.
+            """, nickname, path);
+    }
+
+    @Override
+    public EmailMessage getNextMessage() throws EmailServerException {
+        log.trace("{{}} getNextMessage()", getNickname());
+        Location location = locations.get(currentMessageNumber++);
+        try (InputStream in = openLocation(location)) {
+            long start = System.nanoTime();
+            MimeMessage message = new MimeMessage(session, in);
+            MetricsModel.record(Stage.FETCH, getId(), start);
+
+            start = System.nanoTime();
+            LocalMessage localMessage = new LocalMessage(this, message, location.toString());
+            MetricsModel.record(Stage.PARSE, getId(), start);
+            return localMessage;
+        } catch (IOException | MessagingException e) {
+            throw new EmailServerException(String.format("Unable to read message at '%s'", location), e);
+        }
+    }
+
+    @Override
+    public String getNextMessageId() throws EmailServerException {
+        log.trace("{{}} getNextMessageId()", getNickname());
+        Location location = locations.get(currentMessageNumber);
+        try (InputStream in = openHeaders(location)) {
+            return new InternetHeaders(in).getHeader("Message-ID", null);
+        } catch (IOException | MessagingException e) {
+            throw new EmailServerException(String.format("Unable to read message at '%s'", location), e);
+        }
+    }
+
+    @Override
+    protected String getNextMessagePosition() {
+        return locations.get(currentMessageNumber).toString();
+    }
+
+    public String getPath() {
+        if (path == null)
+            return "";
+        return path;
+    }
+
+    @Override
+    public boolean hasNextMessage() {
+        return currentMessageNumber < totalMessages;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void loadMessageList() throws EmailServerException {
+        log.trace("{{}} loadMessageList()", getNickname());
+        locations.clear();
+        try {
+            addLocations(Paths.get(getPath()));
+        } catch (IOException e) {
+            throw new EmailServerException(e);
+        }
+        totalMessages = locations.size();
+        currentMessageNumber = 0;
+        log.debug("{{}} Found {} message(s) in '{}'", getNickname(), totalMessages, getPath());
+    }
+
+    /**
+     * Opens just the headers of the message at the specified location.
+     */
+    private InputStream openHeaders(Location location) throws IOException {
+        if (location.range == null)
+            return new BufferedInputStream(Files.newInputStream(location.file));
+        return MboxScanner.openHeaders(openMboxFile(location.file), location.range);
+    }
+
+    private InputStream openLocation(Location location) throws IOException {
+        if (location.range == null)
+            return new BufferedInputStream(Files.newInputStream(location.file));
+        return MboxScanner.openMessage(openMboxFile(location.file), location.range);
+    }
+
+    private FileChannel openMboxFile(Path file) throws IOException {
+        // Keep the current mbox file open, since its messages are read one after the other
+        if (!file.equals(mboxFile)) {
+            closeMboxFile();
+            mboxChannel = FileChannel.open(file, StandardOpenOption.READ);
+            mboxFile = file;
+        }
+        return mboxChannel;
+    }
+
+    @Override
+    protected boolean resumeAfter(String position) {
+        log.trace("{{}} resumeAfter({})", getNickname(), position);
+        for (int i = 0; i < locations.size(); i++) {
+            if (position.equals(locations.get(i).toString())) {
+                currentMessageNumber = i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+        if (path != null)
+            MIST.getPrefs().setValue(getPrefName(PREF_PATH), path);
+    }
+
+    @Override
+    public void skipNextMessage() {
+        log.trace("{{}} skipNextMessage()", getNickname());
+        currentMessageNumber++;
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates and reads the messages in mbox files.
+ * <p>
+ * Messages are separated by lines starting with "From ". Files are scanned for these separators through memory-mapped
+ * windows, so even very large archives are scanned at disk speed without being read onto the heap. Each message is
+ * returned as a byte range (excluding its separator line); body lines escaped as "&gt;From " (mboxrd) are unescaped
+ * when the message is opened.
+ */
+public class MboxScanner {
+
+    /**
+     * Reads a message's headers straight from a mapped buffer, stopping at the blank line that ends them.
+     */
+    private static class HeaderInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int lineLength = 0;
+        private boolean ended = false;
+
+        public HeaderInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (ended || !buffer.hasRemaining())
+                return -1;
+            byte b = buffer.get();
+            if (b == '\n') {
+                ended = lineLength == 0;
+                lineLength = 0;
+            } else if (b != '\r') {
+                lineLength++;
+            }
+            return b & 0xff;
+        }
+    }
+
+    // private static Logger log = LogManager.getLogger();
+
+    private static final byte[] SEPARATOR = { 'F', 'r', 'o', 'm', ' ' };
+
+    /**
+     * The size of each memory-mapped window
+     */
+    private static final long WINDOW_SIZE = 1L << 28; // 256 MB
+
+    /**
+     * Returns the byte ranges {start, end} of the messages in the specified mbox file.
+     *
+     * @param channel
+     *            the mbox file
+     * @return the byte ranges of the messages, in file order
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public static List<long[]> findMessages(FileChannel channel) throws IOException {
+        List<long[]> ranges = new ArrayList<long[]>();
+        long size = channel.size();
+        long messageStart = -1;
+        boolean atLineStart = true;
+        boolean inSeparatorLine = false;
+
+        for (long position = 0; position < size; position += WINDOW_SIZE) {
+            long windowSize = Math.min(WINDOW_SIZE, size - position);
+            // Map a few extra bytes so a separator straddling the end of the window can still be matched
+            long mapSize = Math.min(windowSize + SEPARATOR.length - 1, size - position);
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, mapSize);
+
+            for (int i = 0; i < windowSize; i++) {
+                byte b = buffer.get(i);
+                if (inSeparatorLine) {
+                    if (b == '\n') {
+                        // The next message starts after the separator line
+                        inSeparatorLine = false;
+                        messageStart = position + i + 1;
+                    }
+                } else if (atLineStart && b == 'F' && isSeparator(buffer, i)) {
+                    // The previous message ends before the separator line
+                    if (messageStart >= 0)
+                        ranges.add(new long[] { messageStart, position + i });
+                    messageStart = -1;
+                    inSeparatorLine = true;
+                }
+                atLineStart = b == '\n';
+            }
+        }
+
+        if (messageStart >= 0 && messageStart < size)
+            ranges.add(new long[] { messageStart, size });
+        return ranges;
+    }
+
+    /**
+     * Returns true if the specified file looks like an mbox file (i.e. starts with a separator line).
+     */
+    public static boolean isMbox(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] start = in.readNBytes(SEPARATOR.length);
+            return isSeparator(ByteBuffer.wrap(start), 0);
+        }
+    }
+
+    private static boolean isSeparator(ByteBuffer buffer, int index) {
+        if (buffer.limit() - index < SEPARATOR.length)
+            return false;
+        for (int i = 0; i < SEPARATOR.length; i++)
+            if (buffer.get(index + i) != SEPARATOR[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Opens the headers of the message at the specified byte range of an mbox file. Unlike
+     * {@link #openMessage(FileChannel, long[])}, the message isn't copied onto the heap: the headers are read from a
+     * memory-mapped buffer, up to the first blank line.
+     *
+     * @param channel
+     *            the mbox file
+     * @param range
+     *            the message's byte range (from {@link #findMessages(FileChannel)})
+     * @return the message's headers (including the blank line that ends them)
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public static InputStream openHeaders(FileChannel channel, long[] range) throws IOException {
+        long length = Math.min(range[1] - range[0], Integer.MAX_VALUE);
+        return new HeaderInputStream(channel.map(MapMode.READ_ONLY, range[0], length));
+    }
+
+    /**
+     * Opens the message at the specified byte range of an mbox file.
+     *
+     * @param channel
+     *            the mbox file
+     * @param range
+     *            the message's byte range (from {@link #findMessages(FileChannel)})
+     * @return the (unescaped) message
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public static InputStream openMessage(FileChannel channel, long[] range) throws IOException {
+        long length = range[1] - range[0];
+        if (length > Integer.MAX_VALUE)
+            throw new IOException(String.format("Message at offset %d is too large (%d bytes)", range[0], length));
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, range[0] + buffer.position()) < 0)
+                throw new EOFException(String.format("Unexpected end of file at offset %d", range[0]));
+        return new ByteArrayInputStream(unescape(buffer.array()));
+    }
+
+    /**
+     * Removes one '&gt;' from lines starting with one or more '&gt;' followed by "From " (mboxrd quoting).
+     */
+    static byte[] unescape(byte[] message) {
+        ByteArrayOutputStream out = null;
+        int copied = 0;
+        boolean atLineStart = true;
+        for (int i = 0; i < message.length; i++) {
+            if (atLineStart && message[i] == '>') {
+                int j = i;
+                while (j < message.length && message[j] == '>')
+                    j++;
+                if (isSeparator(ByteBuffer.wrap(message), j)) {
+                    if (out == null)
+                        out = new ByteArrayOutputStream(message.length);
+                    out.write(message, copied, i - copied);
+                    copied = i + 1; // Skip one '>'
+                }
+            }
+            atLineStart = message[i] == '\n';
+        }
+        if (out == null)
+            return message;
+        out.write(message, copied, message.length - copied);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An on-disk cache of downloaded messages, so that re-running an import doesn't download them again.
+ * <p>
+ * Each message is stored in its own file, named by a hash of its key (e.g. the server and the message's UID). When the
+ * cache grows past its maximum size, the least recently used messages are removed. A file's modification time is
+ * updated whenever it's read, so the usage order survives restarts.
+ */
+public class MessageCache {
+    private static Logger log = LogManager.getLogger();
+
+    private static final String FILE_EXTENSION = ".msg";
+
+    private final Path dir;
+    private long maxBytes;
+    private long totalBytes = 0;
+
+    /**
+     * Sizes of the cached files by file name, in least- to most-recently used order
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    private boolean loaded = false;
+
+    public MessageCache(Path dir, long maxBytes) {
+        log.trace("MessageCache({},{})", dir, maxBytes);
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    private static String getFileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash) + FILE_EXTENSION;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Java platform has SHA-256
+        }
+    }
+
+    private static FileTime getLastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Removes all messages from the cache.
+     */
+    public synchronized void clear() {
+        log.trace("{{}} clear()", dir.getFileName());
+        load();
+        for (String name : entries.keySet())
+            deleteFile(name);
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    private void deleteFile(String name) {
+        try {
+            Files.deleteIfExists(dir.resolve(name));
+        } catch (IOException e) {
+            log.warn("Could not delete cached message '{}'", dir.resolve(name), e);
+        }
+    }
+
+    /**
+     * Removes the least recently used messages until the cache is no larger than its maximum size.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            log.trace("{{}} Evicting '{}'", dir.getFileName(), entry.getKey());
+            deleteFile(entry.getKey());
+            totalBytes -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Returns the cached message with the specified key, or null if it isn't cached.
+     *
+     * @param key
+     *            the message's key (unique across servers)
+     * @return the message's bytes, as they were cached; null if the message isn't cached
+     */
+    public synchronized byte[] get(String key) {
+        load();
+        String name = getFileName(key);
+        if (entries.get(name) == null)
+            return null;
+
+        Path file = dir.resolve(name);
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            log.trace("{{}} Cache hit for '{}'", dir.getFileName(), key);
+            return bytes;
+        } catch (IOException e) {
+            log.warn("Could not read cached message '{}'", file, e);
+            totalBytes -= entries.remove(name);
+            deleteFile(name);
+            return null;
+        }
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the total size of the cached messages, in bytes.
+     */
+    public synchronized long getTotalBytes() {
+        load();
+        return totalBytes;
+    }
+
+    /**
+     * Loads the list of cached files if it hasn't been loaded yet, ordered by when they were last used.
+     */
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!Files.isDirectory(dir))
+            return;
+
+        log.trace("{{}} load()", dir.getFileName());
+        List<Path> files;
+        try (Stream<Path> children = Files.list(dir)) {
+            files = children.filter(file -> file.getFileName().toString().endsWith(FILE_EXTENSION))
+                .sorted(Comparator.comparing(MessageCache::getLastModifiedTime)).collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("Could not read message cache '{}'; starting with an empty cache", dir, e);
+            return;
+        }
+        for (Path file : files) {
+            try {
+                long size = Files.size(file);
+                entries.put(file.getFileName().toString(), size);
+                totalBytes += size;
+            } catch (IOException e) {
+                log.warn("Could not read cached message '{}'", file, e);
+            }
+        }
+        log.debug("Loaded {} message(s) ({} bytes) from message cache '{}'", entries.size(), totalBytes, dir);
+        evict();
+    }
+
+    /**
+     * Adds a message to the cache, removing the least recently used messages if the cache grows too large.
+     *
+     * @param key
+     *            the message's key (unique across servers)
+     * @param bytes
+     *            the message's bytes
+     */
+    public synchronized void put(String key, byte[] bytes) {
+        log.trace("{{}} put({})", dir.getFileName(), key);
+        load();
+        if (bytes.length > maxBytes)
+            return;
+
+        String name = getFileName(key);
+        try {
+            // Write via a temporary file, so a cached message is never half-written
+            Files.createDirectories(dir);
+            Path tempFile = dir.resolve(name + ".tmp");
+            Files.write(tempFile, bytes);
+            Files.move(
+                tempFile,
+                dir.resolve(name),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not fatal; the message will just be downloaded again next time
+            log.warn("Could not write to message cache '{}'", dir, e);
+            return;
+        }
+
+        Long oldSize = entries.put(name, (long) bytes.length);
+        totalBytes += bytes.length - (oldSize == null ? 0 : oldSize);
+        evict();
+    }
+
+    /**
+     * Sets the maximum size of the cache, removing the least recently used messages if it's now too large.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        log.trace("{{}} setMaxBytes({})", dir.getFileName(), maxBytes);
+        this.maxBytes = maxBytes;
+        load();
+        evict();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MessageCache [dir=%s, maxBytes=%s]", dir, maxBytes);
+    }
+
+}
@@ -20,8 +20,13 @@
 
 package com.gideonsoftware.mist.model.data;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.UUID;
 import java.util.stream.Stream;
 
 import com.gideonsoftware.mist.controllers.ContactDetailsController;
@@ -40,6 +45,17 @@ public class MessageSource {
     private Object[] recipients = new Object[0];
     private String subject = "";
     private String body = "";
+    private String messageId = null;
+
+    /**
+     * Cached unique ID; computed on first use and reset whenever a field it depends on changes
+     */
+    private String uniqueId = null;
+
+    /**
+     * Cached identity; computed on first use and reset whenever a field it depends on changes
+     */
+    private UUID identity = null;
 
     /**
      * Whether to add "existing" history into the model during processing.
@@ -62,9 +78,21 @@ public class MessageSource {
         this.recipients = messageSource.recipients.clone();
         this.subject = messageSource.subject;
         this.body = messageSource.body;
+        this.messageId = messageSource.messageId;
         this.addExistingHistory = messageSource.addExistingHistory;
     }
 
+    /**
+     * Returns the identity of a message with the specified Message-ID header, or null if the header is blank.
+     * <p>
+     * This is the same as {@link #getIdentity()} for such a message, so it can be used to recognize a message before
+     * the rest of it has been retrieved.
+     */
+    public static UUID getIdentity(String messageId) {
+        String id = normalizeMessageId(messageId);
+        return id == null ? null : hash("message-id\n" + id);
+    }
+
     public static String guessFromName(String name) {
         if (name == null || name.isBlank())
             return "Contact";
@@ -97,8 +125,32 @@ public class MessageSource {
         }
     }
 
+    private static UUID hash(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the Message-ID header without its angle brackets, or null if it is blank.
+     */
+    private static String normalizeMessageId(String messageId) {
+        if (messageId == null)
+            return null;
+        String id = messageId.trim();
+        if (id.startsWith("<") && id.endsWith(">"))
+            id = id.substring(1, id.length() - 1).trim();
+        return id.isEmpty() ? null : id;
+    }
+
     public void addRecipients(Object[] recipients) {
         this.recipients = Stream.of(this.recipients, recipients).flatMap(Stream::of).toArray();
+        identity = null;
     }
 
     /**
@@ -111,6 +163,17 @@ public class MessageSource {
         return new MessageSource(this);
     }
 
+    /**
+     * Drops the message's content (body and recipients) from memory, keeping what identifies it (including its
+     * identity, which is computed from the content). Used once all of the message's history is in Tnt, which keeps the
+     * body; until then, the message may still be needed to add the rest of it (or to journal it).
+     */
+    public void compact() {
+        getIdentity();
+        body = "";
+        recipients = new Object[0];
+    }
+
     public String getBody() {
         return body;
     }
@@ -127,6 +190,36 @@ public class MessageSource {
         return fromName;
     }
 
+    /**
+     * Returns a 128-bit identity for this message that is the same no matter which email account it came from.
+     * <p>
+     * The identity is a hash of the RFC 5322 Message-ID header if there is one; otherwise it is a hash of the sender,
+     * date, recipients, subject and body.
+     */
+    public UUID getIdentity() {
+        if (identity == null) {
+            identity = getIdentity(messageId);
+            if (identity == null) {
+                StringBuilder key = new StringBuilder();
+                key.append("content\n").append(fromId == null ? "" : fromId.toLowerCase());
+                key.append('\n').append(date);
+                for (Object recipient : recipients)
+                    key.append('\n').append(recipient);
+                key.append('\n').append(subject);
+                key.append('\n').append(body);
+                identity = hash(key.toString());
+            }
+        }
+        return identity;
+    }
+
+    /**
+     * Returns the Message-ID header without its angle brackets, or null if the message doesn't have one.
+     */
+    public String getMessageId() {
+        return normalizeMessageId(messageId);
+    }
+
     public Object[] getRecipients() {
         return recipients;
     }
@@ -144,7 +237,9 @@ public class MessageSource {
     }
 
     public String getUniqueId() {
-        return String.format("%s|%s|%s", sourceId, fromId, date);
+        if (uniqueId == null)
+            uniqueId = String.format("%s|%s|%s", sourceId, fromId, date);
+        return uniqueId;
     }
 
     public String guessFromName() {
@@ -161,22 +256,33 @@ public class MessageSource {
 
     public void setBody(String body) {
         this.body = body;
+        identity = null;
     }
 
     public void setDate(LocalDateTime date) {
         this.date = date;
+        uniqueId = null;
+        identity = null;
     }
 
     public void setFromId(String fromId) {
         this.fromId = fromId;
+        uniqueId = null;
+        identity = null;
     }
 
     public void setFromName(String fromName) {
         this.fromName = fromName;
     }
 
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+        identity = null;
+    }
+
     public void setSourceId(Integer sourceId) {
         this.sourceId = sourceId;
+        uniqueId = null;
     }
 
     public void setSourceName(String sourceName) {
@@ -185,6 +291,7 @@ public class MessageSource {
 
     public void setSubject(String subject) {
         this.subject = subject;
+        identity = null;
     }
 
     @Override
@@ -34,6 +34,7 @@ import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.preferences.preferencepages.EmailPreferencePage;
 import com.gideonsoftware.mist.preferences.preferencepages.GmailServerPreferencePage;
 import com.gideonsoftware.mist.preferences.preferencepages.ImapServerPreferencePage;
+import com.gideonsoftware.mist.preferences.preferencepages.LocalServerPreferencePage;
 import com.gideonsoftware.mist.preferences.preferencepages.LoggingPreferencePage;
 import com.gideonsoftware.mist.preferences.preferencepages.TntDbPreferencePage;
 import com.gideonsoftware.mist.preferences.preferencepages.UpdatesPreferencePage;
@@ -83,6 +84,10 @@ public class MistPreferenceManager extends PreferenceManager {
             serverNode = new SmartPreferenceNode(
                 EmailServer.getPrefPrefix(serverId),
                 new ImapServerPreferencePage(serverId));
+        else if (EmailServer.TYPE_LOCAL.equals(type))
+            serverNode = new SmartPreferenceNode(
+                EmailServer.getPrefPrefix(serverId),
+                new LocalServerPreferencePage(serverId));
         else // if (EmailServer.TYPE_GMAIL.equals(type))
             serverNode = new SmartPreferenceNode(
                 EmailServer.getPrefPrefix(serverId),
@@ -25,15 +25,19 @@ import org.apache.logging.log4j.Logger;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.window.Window;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.MessageBox;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.data.EmailServer;
+import com.gideonsoftware.mist.model.data.MessageCache;
 import com.gideonsoftware.mist.preferences.fieldeditors.AddEditRemoveListFieldEditor;
 import com.gideonsoftware.mist.preferences.fieldeditors.ButtonFieldEditor;
 import com.gideonsoftware.mist.preferences.fieldeditors.SpacerFieldEditor;
@@ -53,6 +57,10 @@ public class EmailPreferencePage extends FieldEditorPreferencePage {
     private ButtonFieldEditor addServerButton;
     private AddEditRemoveListFieldEditor ignoreAddressesEditor;
 
+    private BooleanFieldEditor useCacheEditor;
+    private IntegerFieldEditor cacheSizeEditor;
+    private ButtonFieldEditor clearCacheButton;
+
     public EmailPreferencePage() {
         super(FieldEditorPreferencePage.GRID);
         log.trace("EmailPreferencePage()");
@@ -121,6 +129,50 @@ public class EmailPreferencePage extends FieldEditorPreferencePage {
                 + System.lineSeparator()
                 + "(Use * for any string and ? for any character)");
         addField(ignoreAddressesEditor);
+
+        // Spacer
+        addField(new SpacerFieldEditor(getFieldEditorParent()));
+
+        // Message cache
+        useCacheEditor = new BooleanFieldEditor(
+            EmailModel.PREF_CACHE_ENABLED,
+            " Keep a copy of downloaded messages (so they aren't downloaded again)",
+            getFieldEditorParent());
+        addField(useCacheEditor);
+
+        cacheSizeEditor = new IntegerFieldEditor(
+            EmailModel.PREF_CACHE_SIZE,
+            "Maximum &size of copies (MB):",
+            getFieldEditorParent());
+        cacheSizeEditor.setValidRange(1, 1024 * 1024);
+        addField(cacheSizeEditor);
+        // Set initial state
+        cacheSizeEditor.setEnabled(MIST.getPrefs().getBoolean(EmailModel.PREF_CACHE_ENABLED), getFieldEditorParent());
+
+        clearCacheButton = new ButtonFieldEditor("&Delete copies of downloaded messages...", getFieldEditorParent());
+        clearCacheButton.getButton().addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                log.trace("clearCacheButton.widgetSelected({})", e);
+                MessageCache cache = EmailModel.getMessageCache();
+                if (cache == null)
+                    return;
+
+                // Check with the user
+                MessageBox msgBox = new MessageBox(getShell(), SWT.YES | SWT.NO | SWT.ICON_QUESTION);
+                msgBox.setMessage(
+                    String.format(
+                        "Copies of downloaded messages are using %.1f MB.%n%n"
+                            + "If you delete them, messages will be downloaded again the next time they're "
+                            + "imported.%n%n"
+                            + "Delete them now?",
+                        cache.getTotalBytes() / (1024.0 * 1024.0)));
+                if (msgBox.open() == SWT.YES)
+                    cache.clear();
+            }
+        });
+        addField(clearCacheButton);
+        clearCacheButton.getButton().setEnabled(MIST.getPrefs().getBoolean(EmailModel.PREF_CACHE_ENABLED));
     }
 
     @Override
@@ -130,6 +182,10 @@ public class EmailPreferencePage extends FieldEditorPreferencePage {
         if (event.getProperty().equals(FieldEditor.VALUE)) {
             if (event.getSource().equals(useAutoThankEditor))
                 thankSubjectEditor.setEnabled((Boolean) event.getNewValue(), getFieldEditorParent());
+            else if (event.getSource().equals(useCacheEditor)) {
+                cacheSizeEditor.setEnabled((Boolean) event.getNewValue(), getFieldEditorParent());
+                clearCacheButton.getButton().setEnabled((Boolean) event.getNewValue());
+            }
         }
 
     }
@@ -21,6 +21,8 @@
 package com.gideonsoftware.mist.preferences.preferencepages;
 
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -38,6 +40,7 @@ import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Text;
 
 import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.preferences.fieldeditors.AddEditRemoveListFieldEditor;
@@ -45,6 +48,8 @@ import com.gideonsoftware.mist.preferences.fieldeditors.ButtonFieldEditor;
 import com.gideonsoftware.mist.preferences.fieldeditors.SmartComboFieldEditor;
 import com.gideonsoftware.mist.preferences.fieldeditors.SpacerFieldEditor;
 import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.UserManager;
 import com.gideonsoftware.mist.tntapi.entities.User;
 import com.gideonsoftware.mist.util.Util;
@@ -62,6 +67,9 @@ public abstract class EmailServerPreferencePage extends FieldEditorPreferencePag
 	protected SmartComboFieldEditor<Integer> tntUserEditor;
 	protected AddEditRemoveListFieldEditor myEmailAddressesEditor;
 	protected AddEditRemoveListFieldEditor ignoreAddressesEditor;
+	protected SmartComboFieldEditor<String> sinceEditor;
+	protected StringFieldEditor sinceDateEditor;
+	protected ButtonFieldEditor resetLedgerButton;
 	protected ButtonFieldEditor removeButton;
 
 	protected EmailServer server;
@@ -142,6 +150,56 @@ public abstract class EmailServerPreferencePage extends FieldEditorPreferencePag
 		addField(removeButton);
 	}
 
+	protected void addResetLedgerButton() {
+		log.trace("addResetLedgerButton()");
+		resetLedgerButton = new ButtonFieldEditor("Reset import led&ger...", getFieldEditorParent());
+		resetLedgerButton.getButton().addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent event) {
+				log.trace("resetLedgerButton.widgetSelected({})", event);
+
+				// Check with the user
+				MessageBox msgBox = new MessageBox(getShell(), SWT.YES | SWT.NO | SWT.ICON_QUESTION);
+				msgBox.setMessage(String.format("MIST remembers the %s message(s) from this account that have been "
+						+ "fully imported and skips them without downloading them again.%n%n"
+						+ "Resetting this list makes MIST check every message against TntConnect again on the next "
+						+ "import. Messages already in TntConnect will not be duplicated.%n%n"
+						+ "Reset the import ledger now?", server.getImportLedger().size()));
+				if (msgBox.open() == SWT.YES)
+					server.resetImportLedger();
+			}
+		});
+		addField(resetLedgerButton);
+	}
+
+	protected void addSinceEditor() {
+		log.trace("addSinceEditor()");
+		sinceEditor = new SmartComboFieldEditor<String>(server.getPrefName(EmailServer.PREF_SINCE),
+				"Import messages &since:", getFieldEditorParent());
+		sinceEditor.add(EmailServer.SINCE_ALL, "(All messages)");
+		sinceEditor.add(EmailServer.SINCE_LAST_IMPORT, "The last completed import");
+		sinceEditor.add(EmailServer.SINCE_DATE, "The date below");
+		addField(sinceEditor);
+
+		sinceDateEditor = new StringFieldEditor(server.getPrefName(EmailServer.PREF_SINCE_DATE),
+				"Since &date (YYYY-MM-DD):", getFieldEditorParent()) {
+			@Override
+			protected boolean doCheckState() {
+				String date = getStringValue().trim();
+				if (date.isEmpty())
+					return true;
+				try {
+					LocalDate.parse(date);
+					return true;
+				} catch (DateTimeParseException e) {
+					return false;
+				}
+			}
+		};
+		sinceDateEditor.setErrorMessage("Since date must be in the form YYYY-MM-DD.");
+		addField(sinceDateEditor);
+	}
+
 	protected void addSpacer() {
 		log.trace("addSpacer()");
 		addField(new SpacerFieldEditor(getFieldEditorParent()));
@@ -173,10 +231,10 @@ public abstract class EmailServerPreferencePage extends FieldEditorPreferencePag
 					// Populate user list
 					tntUserEditor.removeAll();
 					try {
-						for (User user : UserManager.getUserList())
+						for (User user : TntDbExecutor.callRead(Priority.INTERACTIVE, () -> UserManager.getUserList()))
 							tntUserEditor.add(user.getId(), user.getUsername());
 						tntUserEditor.setEnabled(true, getFieldEditorParent());
-					} catch (SQLException e) {
+					} catch (TntDbException | SQLException e) {
 						log.warn("Could not add users to user list", e);
 						tntUserEditor.setEnabled(false, getFieldEditorParent());
 					}
@@ -243,7 +301,8 @@ public abstract class EmailServerPreferencePage extends FieldEditorPreferencePag
 		log.trace("savePageSettings()");
 		server.setEnabled(enabledEditor.getBooleanValue());
 		server.setNickname(nicknameEditor.getStringValue());
-		server.setUsername(usernameEditor.getStringValue());
+		if (usernameEditor != null) // Not all account types have a username
+			server.setUsername(usernameEditor.getStringValue());
 		server.setTntUserId(tntUserEditor.getSelectionItem());
 		server.setTntUsername(tntUserEditor.getSelectionValue());
 		server.setMyAddresses(myEmailAddressesEditor.getItems());
@@ -128,12 +128,14 @@ public class GmailServerPreferencePage extends EmailServerPreferencePage {
         addUsernameEditor();
         addLabelEditor();
         addRemoveLabelEditor();
+        addSinceEditor();
         addTntUserEditor();
         addMyEmailAddressesEditor();
         addIgnoreEmailAddressesEditor();
 
         addSpacer();
 
+        addResetLedgerButton();
         addRemoveButton();
     }
 
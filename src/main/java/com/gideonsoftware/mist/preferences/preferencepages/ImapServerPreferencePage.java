@@ -33,6 +33,7 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.MessageBox;
 
 import com.gideonsoftware.mist.model.data.ImapServer;
+import com.gideonsoftware.mist.preferences.fieldeditors.AddEditRemoveListFieldEditor;
 import com.gideonsoftware.mist.preferences.fieldeditors.ButtonFieldEditor;
 import com.gideonsoftware.mist.preferences.fieldeditors.SmartComboFieldEditor;
 import com.gideonsoftware.mist.util.ui.Images;
@@ -51,7 +52,11 @@ public class ImapServerPreferencePage extends EmailServerPreferencePage {
     private StringFieldEditor passwordEditor;
     private ButtonFieldEditor connectButton;
     private SmartComboFieldEditor<String> folderEditor;
+    private AddEditRemoveListFieldEditor moreFoldersEditor;
     private BooleanFieldEditor useSslEditor;
+    private BooleanFieldEditor continuousImportEditor;
+    private SmartComboFieldEditor<String> afterImportEditor;
+    private StringFieldEditor afterImportFolderEditor;
 
     public ImapServerPreferencePage(int serverId) {
         super(serverId);
@@ -62,6 +67,26 @@ public class ImapServerPreferencePage extends EmailServerPreferencePage {
         // setDescription("description here");
     }
 
+    protected void addAfterImportEditor() {
+        log.trace("addAfterImportEditor()");
+        afterImportEditor = new SmartComboFieldEditor<String>(
+            server.getPrefName(ImapServer.PREF_AFTER_IMPORT),
+            "After i&mporting:",
+            getFieldEditorParent());
+        afterImportEditor.add(ImapServer.AFTER_IMPORT_NOTHING, "Leave messages where they are");
+        afterImportEditor.add(ImapServer.AFTER_IMPORT_MOVE, "Move messages to the folder below");
+        afterImportEditor.add(
+            ImapServer.AFTER_IMPORT_FLAG,
+            String.format("Mark messages with the '%s' keyword", ImapServer.IMPORTED_KEYWORD));
+        addField(afterImportEditor);
+
+        afterImportFolderEditor = new StringFieldEditor(
+            server.getPrefName(ImapServer.PREF_AFTER_IMPORT_FOLDER),
+            "Mo&ve to folder:",
+            getFieldEditorParent());
+        addField(afterImportFolderEditor);
+    }
+
     protected void addConnectEditor() {
         log.trace("addConnectEditor()");
         connectButton = new ButtonFieldEditor("Test &Connection", getFieldEditorParent());
@@ -83,6 +108,15 @@ public class ImapServerPreferencePage extends EmailServerPreferencePage {
         addField(connectButton);
     }
 
+    protected void addContinuousImportEditor() {
+        log.trace("addContinuousImportEditor()");
+        continuousImportEditor = new BooleanFieldEditor(
+            server.getPrefName(ImapServer.PREF_CONTINUOUS),
+            "After importing, keep &watching the folder for new messages (until import is stopped)",
+            getFieldEditorParent());
+        addField(continuousImportEditor);
+    }
+
     protected void addFolderEditor() {
         log.trace("addFolderEditor()");
         folderEditor = new SmartComboFieldEditor<String>(
@@ -124,6 +158,19 @@ public class ImapServerPreferencePage extends EmailServerPreferencePage {
         addField(hostEditor);
     }
 
+    protected void addMoreFoldersEditor() {
+        log.trace("addMoreFoldersEditor()");
+        moreFoldersEditor = new AddEditRemoveListFieldEditor(
+            server.getPrefName(ImapServer.PREF_FOLDERS_MORE),
+            "Additiona&l folders:",
+            getFieldEditorParent());
+        moreFoldersEditor.setAddDialogMessage("Add folder");
+        moreFoldersEditor.setEditDialogMessage("Edit folder");
+        moreFoldersEditor.setDialogDescription(
+            "Messages in these folders (e.g. 'Sent') are imported along with the main folder; use full folder names");
+        addField(moreFoldersEditor);
+    }
+
     protected void addPasswordEditor() {
         log.trace("addPasswordEditor()");
         passwordEditor = new StringFieldEditor(
@@ -175,12 +222,17 @@ public class ImapServerPreferencePage extends EmailServerPreferencePage {
         addSpacer();
 
         addFolderEditor();
+        addMoreFoldersEditor();
+        addContinuousImportEditor();
+        addAfterImportEditor();
+        addSinceEditor();
         addTntUserEditor();
         addMyEmailAddressesEditor();
         addIgnoreEmailAddressesEditor();
 
         addSpacer();
 
+        addResetLedgerButton();
         addRemoveButton();
     }
 
@@ -210,6 +262,9 @@ public class ImapServerPreferencePage extends EmailServerPreferencePage {
 
         ImapServer imapServer = (ImapServer) server;
         imapServer.setFolderName(folderEditor.getSelectionItem());
+        imapServer.setMoreFolderNames(moreFoldersEditor.getItems());
+        imapServer.setAfterImport(afterImportEditor.getSelectionItem());
+        imapServer.setAfterImportFolderName(afterImportFolderEditor.getStringValue());
         imapServer.setHost(hostEditor.getStringValue());
         imapServer.setPort(portEditor.getStringValue());
         imapServer.setPassword(passwordEditor.getStringValue());
@@ -0,0 +1,151 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.preferences.preferencepages;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jface.preference.StringFieldEditor;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.MessageBox;
+
+import com.gideonsoftware.mist.exceptions.EmailServerException;
+import com.gideonsoftware.mist.model.data.LocalServer;
+import com.gideonsoftware.mist.preferences.fieldeditors.ButtonFieldEditor;
+import com.gideonsoftware.mist.util.Util;
+import com.gideonsoftware.mist.util.ui.Images;
+
+/**
+ *
+ */
+public class LocalServerPreferencePage extends EmailServerPreferencePage {
+    private static Logger log = LogManager.getLogger();
+
+    private StringFieldEditor pathEditor;
+    private ButtonFieldEditor browseFileButton;
+    private ButtonFieldEditor browseFolderButton;
+    private ButtonFieldEditor scanButton;
+
+    public LocalServerPreferencePage(int serverId) {
+        super(serverId);
+        log.trace("LocalServerPreferencePage({})", serverId);
+        server = new LocalServer(serverId);
+        setTitle(server.getNickname());
+        setImageDescriptor(ImageDescriptor.createFromImage(Images.getImage(Images.ICON_EMAIL_SERVER)));
+        // setDescription("description here");
+    }
+
+    protected void addPathEditor() {
+        log.trace("addPathEditor()");
+        pathEditor = new StringFieldEditor(
+            server.getPrefName(LocalServer.PREF_PATH),
+            "&Mail file or folder:",
+            getFieldEditorParent());
+        pathEditor.setEmptyStringAllowed(false);
+        pathEditor.setErrorMessage("A mail file or folder must be selected.");
+        addField(pathEditor);
+
+        browseFileButton = new ButtonFieldEditor("Browse for &file...", getFieldEditorParent());
+        browseFileButton.getButton().addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                log.trace("browseFileButton.widgetSelected({})", event);
+                FileDialog dialog = new FileDialog(getShell(), SWT.OPEN);
+                dialog.setText("Select mail file");
+                dialog.setFilterNames(new String[] { "All files", "Email messages (*.eml)", "Mailboxes (*.mbox)" });
+                dialog.setFilterExtensions(new String[] { "*", "*.eml", "*.mbox" });
+                dialog.setFileName(pathEditor.getStringValue());
+                String path = dialog.open();
+                if (path != null)
+                    pathEditor.setStringValue(path);
+            }
+        });
+        addField(browseFileButton);
+
+        browseFolderButton = new ButtonFieldEditor("Browse for f&older...", getFieldEditorParent());
+        browseFolderButton.getButton().addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                log.trace("browseFolderButton.widgetSelected({})", event);
+                DirectoryDialog dialog = new DirectoryDialog(getShell());
+                dialog.setText("Select mail folder");
+                dialog.setMessage("Select a Maildir folder, or a folder containing mbox and .eml files");
+                dialog.setFilterPath(pathEditor.getStringValue());
+                String path = dialog.open();
+                if (path != null)
+                    pathEditor.setStringValue(path);
+            }
+        });
+        addField(browseFolderButton);
+
+        scanButton = new ButtonFieldEditor("&Scan for messages", getFieldEditorParent());
+        scanButton.getButton().addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                log.trace("scanButton.widgetSelected({})", event);
+                connectToServer();
+            }
+        });
+        addField(scanButton);
+    }
+
+    @Override
+    protected void createFieldEditors() {
+        log.trace("createFieldEditors()");
+
+        addNicknameEditor();
+        addEnabledEditor();
+        addPathEditor();
+        addTntUserEditor();
+        addMyEmailAddressesEditor();
+        addIgnoreEmailAddressesEditor();
+
+        addSpacer();
+
+        addResetLedgerButton();
+        addRemoveButton();
+    }
+
+    @Override
+    protected void onSuccessfulConnection() {
+        log.trace("onSuccessfulConnection()");
+        try {
+            server.loadMessageList();
+            MessageBox msgBox = new MessageBox(getShell(), SWT.ICON_INFORMATION | SWT.OK);
+            msgBox.setMessage(String.format("Found %d message(s).", server.getTotalMessages()));
+            msgBox.open();
+        } catch (EmailServerException e) {
+            Util.reportError("Unable to scan for messages", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void savePageSettings() {
+        log.trace("savePageSettings()");
+        super.savePageSettings();
+        ((LocalServer) server).setPath(pathEditor.getStringValue());
+    }
+
+}
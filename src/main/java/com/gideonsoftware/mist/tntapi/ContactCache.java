@@ -0,0 +1,94 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gideonsoftware.mist.tntapi.entities.Contact;
+
+/**
+ * A cache of the contacts most recently loaded by {@link ContactManager#get(Integer)}, so moving back and forth
+ * between the contact details view and the match contact wizard's pages doesn't load the same contacts again.
+ * <p>
+ * Only the most recently used {@link #MAX_CONTACTS} contacts are kept. {@link ContactManager} checks a cached
+ * contact's LastEdit against the database before using it, and removes contacts from the cache whenever it changes
+ * them (since not every change updates LastEdit). The cache is emptied whenever the database is rolled back.
+ */
+class ContactCache {
+    private static Logger log = LogManager.getLogger();
+
+    private final static int MAX_CONTACTS = 100;
+
+    /**
+     * Cached contacts by ID, least recently used first
+     */
+    private final static Map<Integer, Contact> contacts = new LinkedHashMap<Integer, Contact>(16, 0.75f, true) {
+        private static final long serialVersionUID = 2804917463275012938L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Contact> eldest) {
+            return size() > MAX_CONTACTS;
+        }
+    };
+
+    /**
+     * No instantiation allowed!
+     */
+    private ContactCache() {
+    }
+
+    /**
+     * Empties the cache.
+     */
+    static synchronized void clear() {
+        log.trace("clear()");
+        contacts.clear();
+    }
+
+    /**
+     * Returns a copy of the cached contact with the specified ID, or null if it isn't cached.
+     */
+    static synchronized Contact get(int contactId) {
+        Contact contact = contacts.get(contactId);
+        return contact == null ? null : new Contact(contact);
+    }
+
+    /**
+     * Removes the contact with the specified ID from the cache (e.g. because it has changed).
+     */
+    static synchronized void invalidate(int contactId) {
+        if (contacts.remove(contactId) != null)
+            log.trace("invalidate({})", contactId);
+    }
+
+    /**
+     * Adds a copy of the contact to the cache (so changes to the contact don't change the cache), replacing any cached
+     * contact with the same ID.
+     */
+    static synchronized void put(Contact contact) {
+        contacts.put(contact.getContactId(), new Contact(contact));
+    }
+
+}
@@ -0,0 +1,455 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
+import com.gideonsoftware.mist.tntapi.entities.ContactMatch;
+import com.gideonsoftware.mist.util.SearchIndex;
+import com.gideonsoftware.mist.util.Util;
+
+/**
+ * A cache of every contact's ID, names and email addresses, shared by the match contact wizard's contact list and
+ * search and the lookup of contacts by email address during an import.
+ * <p>
+ * The cache is loaded in full the first time it's used. After that, it's only refreshed when the Tnt database file
+ * has been modified by something other than MIST (or MIST has changed a contact), and then only contacts whose
+ * LastEdit is at least as recent as the most recent one seen so far are read again. It's loaded in full again if the
+ * database changes, or if contacts have been deleted (i.e. the number of contacts no longer matches).
+ * <p>
+ * Like the rest of the Tnt API, this uses the Tnt database connection, so should be called on the database thread
+ * (see {@link TntDbExecutor}).
+ */
+public class ContactDirectory {
+    /**
+     * A cached contact
+     */
+    private static class Entry {
+        private final int id;
+        private final String fileAs;
+        private final String[] names; // First, last, spouse first and spouse last
+        private final List<String> emails;
+
+        public Entry(int id, String fileAs, String[] names, List<String> emails) {
+            this.id = id;
+            this.fileAs = fileAs;
+            this.names = names;
+            this.emails = emails;
+        }
+    }
+
+    /**
+     * A search index of the cached contacts, with what's needed to rank its matches; never changed once built, so it
+     * can be searched without locking the cache
+     */
+    private static class SearchSnapshot {
+        private final SearchIndex<Integer> index;
+        private final Map<Integer, Entry> entries;
+        private final Map<String, Set<Integer>> contactsByDomain; // IDs of the contacts with an address at each domain
+
+        public SearchSnapshot(
+            SearchIndex<Integer> index,
+            Map<Integer, Entry> entries,
+            Map<String, Set<Integer>> contactsByDomain) {
+            this.index = index;
+            this.entries = entries;
+            this.contactsByDomain = contactsByDomain;
+        }
+    }
+
+    private static Logger log = LogManager.getLogger();
+
+    private final static String SELECT_CONTACTS = "SELECT [ContactID], [FileAs], [LastEdit], "
+        + "[FirstName], [LastName], [SpouseFirstName], [SpouseLastName], "
+        + "[Email1] & ',' & [Email2] & ',' & [Email3] & ',' & "
+        + "[SpouseEmail1] & ',' & [SpouseEmail2] & ',' & [SpouseEmail3] "
+        + "FROM [Contact]";
+
+    private final static Comparator<ContactInfo> LIST_ORDER = Comparator
+        .comparing(ContactInfo::getName, String.CASE_INSENSITIVE_ORDER)
+        .thenComparing(ContactInfo::getId);
+
+    /**
+     * How much matches on each kind of text count for in a search
+     */
+    private final static float NAME_WEIGHT = 1;
+    private final static float EMAIL_WEIGHT = 0.5f;
+
+    /**
+     * Added to a search match's score if its last name is the one hinted at...
+     */
+    private final static double LAST_NAME_BOOST = 1.5;
+
+    /**
+     * ...and if it has an email address at the hinted domain, unless more contacts than this do (e.g. a webmail
+     * provider's domain, which says little about who the contact is)
+     */
+    private final static double DOMAIN_BOOST = 1;
+    private final static int MAX_DOMAIN_CONTACTS = 20;
+
+    private final static Pattern emailPattern = Pattern.compile(MIST.REGEX_EMAILADDRESS);
+
+    private final static Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+
+    /**
+     * IDs of the contacts with each email address (in the order the contacts were read)
+     */
+    private final static Map<String, Set<Integer>> contactsByEmail = new HashMap<String, Set<Integer>>();
+
+    /**
+     * IDs of contacts that MIST has changed since the last refresh (which may not have changed their LastEdit)
+     */
+    private final static Set<Integer> staleIds = new HashSet<Integer>();
+
+    /**
+     * All contacts, sorted by name; null if it needs to be sorted again
+     */
+    private static ContactInfo[] contactList = null;
+
+    /**
+     * All contacts' IDs, indexed by their names and email addresses; null if it hasn't been built yet
+     */
+    private static volatile SearchSnapshot searchSnapshot = null;
+
+    /**
+     * Whether contacts have changed since the search index was built (it's kept until it's next built on the database
+     * thread, rather than built again as the user types)
+     */
+    private static boolean searchIndexStale = false;
+
+    private static String loadedDbPath = null;
+    private static long loadedDbModified = 0;
+    private static LocalDateTime latestLastEdit = null;
+
+    /**
+     * No instantiation allowed!
+     */
+    private ContactDirectory() {
+    }
+
+    private static void addEntry(Entry entry) {
+        removeEntry(entry.id);
+        entries.put(entry.id, entry);
+        for (String email : entry.emails)
+            contactsByEmail.computeIfAbsent(email, key -> new LinkedHashSet<Integer>()).add(entry.id);
+        searchIndexStale = true;
+    }
+
+    /**
+     * Indexes the cached contacts for searching (in name order, so matches that score the same are listed by name).
+     */
+    private static void buildSearchIndex() {
+        log.debug("Building contact search index");
+        List<Entry> sorted = new ArrayList<Entry>(entries.values());
+        sorted.sort(Comparator.comparing((Entry entry) -> entry.fileAs, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(entry -> entry.id));
+        SearchIndex<Integer> searchIndex = new SearchIndex<Integer>();
+        Map<String, Set<Integer>> contactsByDomain = new HashMap<String, Set<Integer>>();
+        for (Entry entry : sorted) {
+            searchIndex.add(entry.id, entry.fileAs, NAME_WEIGHT);
+            for (String name : entry.names)
+                searchIndex.add(entry.id, name, NAME_WEIGHT);
+            for (String email : entry.emails) {
+                searchIndex.add(entry.id, email, EMAIL_WEIGHT);
+                String domain = getDomain(email);
+                if (domain != null)
+                    contactsByDomain.computeIfAbsent(domain, key -> new HashSet<Integer>()).add(entry.id);
+            }
+        }
+        searchIndex.build(); // Before it's published, so searches never change it
+        searchSnapshot = new SearchSnapshot(searchIndex, new HashMap<Integer, Entry>(entries), contactsByDomain);
+        searchIndexStale = false;
+    }
+
+    /**
+     * Empties the cache, so it's loaded in full the next time it's used.
+     */
+    public static synchronized void clear() {
+        log.trace("clear()");
+        entries.clear();
+        contactsByEmail.clear();
+        staleIds.clear();
+        contactList = null;
+        searchSnapshot = null;
+        searchIndexStale = false;
+        loadedDbPath = null;
+        loadedDbModified = 0;
+        latestLastEdit = null;
+    }
+
+    /**
+     * Notes that MIST has committed changes to the Tnt database. If the cache was up to date with the database file
+     * just before, it still is afterwards (contacts MIST has changed are marked with {@link #invalidate(int)}), so the
+     * file's new modification time doesn't make the next use refresh the cache (e.g. after every email imported).
+     *
+     * @param dbPath
+     *            the path of the Tnt database file
+     * @param modifiedBefore
+     *            the file's modification time just before the commit
+     * @param modifiedAfter
+     *            the file's modification time just after the commit
+     */
+    public static synchronized void committed(String dbPath, long modifiedBefore, long modifiedAfter) {
+        log.trace("committed({},{},{})", dbPath, modifiedBefore, modifiedAfter);
+        if (loadedDbPath != null && loadedDbPath.equals(dbPath) && loadedDbModified == modifiedBefore)
+            loadedDbModified = modifiedAfter;
+    }
+
+    /**
+     * Returns a list of all contacts in the TntConnect database, sorted by name.
+     * <p>
+     * Note: only the id and name fields are populated
+     *
+     * @return all contacts in the TntConnect database
+     * @throws SQLException
+     *             if there is a database access problem
+     * @see ContactManager#getContactList()
+     */
+    public static synchronized ContactInfo[] getContactList() throws SQLException {
+        log.trace("getContactList()");
+        refresh();
+        if (contactList == null) {
+            List<ContactInfo> list = new ArrayList<ContactInfo>(entries.size());
+            for (Entry entry : entries.values())
+                list.add(new ContactInfo(entry.id, entry.fileAs));
+            list.sort(LIST_ORDER);
+            contactList = list.toArray(new ContactInfo[0]);
+        }
+        if (searchSnapshot == null || searchIndexStale)
+            buildSearchIndex(); // Now, so searches as the user types don't have to
+
+        // Copies, so callers can't change the cache
+        ContactInfo[] copy = new ContactInfo[contactList.length];
+        for (int i = 0; i < contactList.length; i++)
+            copy[i] = new ContactInfo(contactList[i]);
+        return copy;
+    }
+
+    /**
+     * Returns the (lowercase) domain of the email address, or null if it doesn't have one.
+     */
+    private static String getDomain(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        if (at == -1 || at == email.length() - 1)
+            return null;
+        return email.substring(at + 1).toLowerCase();
+    }
+
+    /**
+     * Marks the specified contact as changed by MIST, so it's read again the next time the cache is used.
+     *
+     * @param contactId
+     *            the ID of the contact that was created or changed
+     */
+    public static synchronized void invalidate(int contactId) {
+        log.trace("invalidate({})", contactId);
+        staleIds.add(contactId);
+    }
+
+    /**
+     * Loads every contact into the cache.
+     */
+    private static void load() throws SQLException {
+        log.debug("Loading contact directory");
+        entries.clear();
+        contactsByEmail.clear();
+        staleIds.clear();
+        latestLastEdit = null;
+        readEntries(TntDb.getConnection().prepareStatement(SELECT_CONTACTS));
+        contactList = null;
+    }
+
+    /**
+     * Reads the contacts selected by the statement into the cache, keeping track of the latest LastEdit.
+     *
+     * @return the number of contacts read
+     */
+    private static int readEntries(PreparedStatement stmt) throws SQLException {
+        int count = 0;
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+            ArrayList<String> emails = new ArrayList<String>();
+            String emailStr = rs.getString(8);
+            if (emailStr != null)
+                Util.addMatchesToList(emails, emailPattern, emailStr);
+            String fileAs = rs.getString("FileAs");
+            String[] names = new String[] {
+                rs.getString("FirstName"),
+                rs.getString("LastName"),
+                rs.getString("SpouseFirstName"),
+                rs.getString("SpouseLastName") };
+            addEntry(new Entry(rs.getInt("ContactID"), fileAs == null ? "" : fileAs, names, emails));
+
+            LocalDateTime lastEdit = TntDb.timestampToDate(rs.getTimestamp("LastEdit"));
+            if (lastEdit != null && (latestLastEdit == null || lastEdit.isAfter(latestLastEdit)))
+                latestLastEdit = lastEdit;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Brings the cache up to date with the Tnt database, if it might have changed.
+     */
+    private static void refresh() throws SQLException {
+        // Note the modification time before reading, so changes made while reading are picked up next time
+        String dbPath = TntDb.getTntDatabasePath();
+        long dbModified = dbPath == null ? 0 : new File(dbPath).lastModified();
+
+        if (loadedDbPath == null || !loadedDbPath.equals(dbPath) || dbModified < loadedDbModified) {
+            load();
+        } else if (dbModified != loadedDbModified || !staleIds.isEmpty()) {
+            int count = 0;
+            if (latestLastEdit != null) {
+                // Contacts edited at the same time as the latest one may not have been read yet
+                PreparedStatement stmt = TntDb.getConnection().prepareStatement(
+                    SELECT_CONTACTS + " WHERE [LastEdit] >= ?");
+                stmt.setObject(1, latestLastEdit);
+                count += readEntries(stmt);
+            }
+            if (!staleIds.isEmpty()) {
+                PreparedStatement stmt = TntDb.getConnection().prepareStatement(
+                    SELECT_CONTACTS + " WHERE [ContactID] IN (" + "?,".repeat(staleIds.size() - 1) + "?)");
+                int i = 1;
+                for (Integer id : staleIds)
+                    stmt.setInt(i++, id);
+                count += readEntries(stmt);
+                staleIds.clear();
+            }
+            log.debug("Refreshed {} contact(s) in contact directory", count);
+
+            contactList = null;
+
+            // If contacts have been deleted, there's no way to tell which; start again
+            ResultSet rs = TntDb.getConnection().createStatement().executeQuery("SELECT COUNT(*) FROM [Contact]");
+            if (rs.next() && rs.getInt(1) != entries.size())
+                load();
+        }
+        loadedDbPath = dbPath;
+        loadedDbModified = dbModified;
+    }
+
+    private static void removeEntry(int contactId) {
+        Entry entry = entries.remove(contactId);
+        if (entry == null)
+            return;
+        searchIndexStale = true;
+        for (String email : entry.emails) {
+            Set<Integer> ids = contactsByEmail.get(email);
+            if (ids != null) {
+                ids.remove(contactId);
+                if (ids.isEmpty())
+                    contactsByEmail.remove(email);
+            }
+        }
+    }
+
+    /**
+     * Looks up all of the specified email addresses in the cache, following the same rules as
+     * {@link ContactManager#resolveEmails(Collection)}.
+     *
+     * @param emails
+     *            the email addresses to look up; null entries are allowed and are never found
+     * @return a map of each specified email address to its match; addresses with no contacts have a match count of 0
+     *         and addresses with multiple contacts have a match count greater than 1 (with no contact ID)
+     * @throws SQLException
+     *             if there is a database access problem
+     */
+    public static synchronized Map<String, ContactMatch> resolveEmails(Collection<String> emails) throws SQLException {
+        log.trace("resolveEmails({})", emails);
+        Map<String, ContactMatch> matches = new LinkedHashMap<String, ContactMatch>();
+        if (emails == null || emails.isEmpty())
+            return matches;
+
+        refresh();
+        for (String email : emails) {
+            Set<Integer> ids = email == null ? null : contactsByEmail.get(email);
+            if (ids == null || ids.isEmpty()) {
+                matches.put(email, new ContactMatch(email));
+            } else if (ids.size() == 1) {
+                Entry entry = entries.get(ids.iterator().next());
+                matches.put(email, new ContactMatch(email, entry.id, entry.fileAs, 1));
+            } else {
+                matches.put(email, new ContactMatch(email, null, null, ids.size()));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Searches the cached contacts' names (including FileAs) and email addresses for the text the user has typed,
+     * matching each word typed as a prefix or, allowing for typos, approximately (see {@link SearchIndex}). Contacts
+     * with the hinted last name, or with an email address at the hinted email address's domain, are ranked higher.
+     * <p>
+     * This searches the index last built by {@link #getContactList()} (finding nothing if it hasn't been built yet),
+     * without bringing the cache up to date or waiting for it to be, so it can be called as the user types, from any
+     * thread.
+     *
+     * @param query
+     *            the text to search for
+     * @param limit
+     *            the maximum number of contacts to return
+     * @param lastNameHint
+     *            the last name the user is likely to want (e.g. from {@link ContactInfo#guessLastName()}); may be null
+     * @param emailHint
+     *            an email address whose domain the user's contact is likely to share; may be null
+     * @return the IDs of the matching contacts, best match first
+     */
+    public static List<Integer> search(String query, int limit, String lastNameHint, String emailHint) {
+        log.trace("search({},{},{},{})", query, limit, lastNameHint, emailHint);
+        SearchSnapshot snapshot = searchSnapshot;
+        if (snapshot == null)
+            return Collections.emptyList();
+        String domain = getDomain(emailHint);
+        Set<Integer> domainIds = domain == null ? null : snapshot.contactsByDomain.get(domain);
+        Set<Integer> hintedIds = domainIds == null || domainIds.size() > MAX_DOMAIN_CONTACTS ? Set.of() : domainIds;
+        return snapshot.index.search(query, limit, id -> {
+            Entry entry = snapshot.entries.get(id);
+            double boost = hintedIds.contains(id) ? DOMAIN_BOOST : 0;
+            if (entry != null && lastNameHint != null && !lastNameHint.isBlank()
+                && (lastNameHint.equalsIgnoreCase(entry.names[1]) || lastNameHint.equalsIgnoreCase(entry.names[3])))
+                boost += LAST_NAME_BOOST;
+            return boost;
+        });
+    }
+
+}
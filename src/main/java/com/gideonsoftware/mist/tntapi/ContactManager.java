@@ -25,10 +25,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
@@ -38,6 +44,7 @@ import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.tntapi.entities.Contact;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
+import com.gideonsoftware.mist.tntapi.entities.ContactMatch;
 import com.gideonsoftware.mist.tntapi.entities.History;
 import com.gideonsoftware.mist.tntapi.entities.TaskType;
 import com.gideonsoftware.mist.util.Util;
@@ -60,6 +67,12 @@ public class ContactManager {
     public final static String LASTTYPE_VISIT = "Visit";
     public final static String LASTTYPE_GIFT = "GiftDate"; // The "Date" part is in the Tnt column name
 
+    /**
+     * Maximum number of email addresses looked up per query by {@link #resolveEmails(Collection)} (each uses six
+     * parameters)
+     */
+    private final static int MAX_EMAILS_PER_QUERY = 20;
+
     private ContactManager() {
     }
 
@@ -159,6 +172,8 @@ public class ContactManager {
         }
 
         TntDb.commit();
+        ContactCache.invalidate(contactId);
+        ContactDirectory.invalidate(contactId); // Adding an email address doesn't change LastEdit
     }
 
     /**
@@ -459,11 +474,16 @@ public class ContactManager {
         history.getContactInfo().setId(contact.getContactId());
         HistoryManager.create(history);
 
+        ContactCache.invalidate(contact.getContactId());
+        ContactDirectory.invalidate(contact.getContactId());
         return contact.getContactId();
     }
 
     /**
      * Returns the contact associated with the specified contact ID or null if none exists.
+     * <p>
+     * Recently loaded contacts are cached (see {@link ContactCache}) and only loaded again if their LastEdit has
+     * changed.
      *
      * @param contactId
      *            the contact ID; null returns null
@@ -477,6 +497,10 @@ public class ContactManager {
         if (contactId == null)
             return null;
 
+        Contact cached = ContactCache.get(contactId);
+        if (cached != null && Objects.equals(cached.getLastEdit(), getLastEditDate(contactId)))
+            return cached;
+
         String query = "SELECT * FROM [Contact] WHERE [ContactID] = ?";
         PreparedStatement stmt = TntDb.getConnection().prepareStatement(
             query,
@@ -484,8 +508,10 @@ public class ContactManager {
             ResultSet.CONCUR_READ_ONLY);
         stmt.setInt(1, contactId);
         ResultSet rs = stmt.executeQuery();
-        if (!rs.first())
+        if (!rs.first()) {
+            ContactCache.invalidate(contactId);
             return null;
+        }
 
         Contact contact = new Contact();
         contact.setContactId(TntDb.getRSInteger(rs, "ContactID"));
@@ -713,6 +739,7 @@ public class ContactManager {
         contact.setCampaignsSinceLastGift(TntDb.getRSInteger(rs, "CampaignsSinceLastGift"));
         contact.setChallengesSinceLastGift(TntDb.getRSInteger(rs, "ChallengesSinceLastGift"));
         contact.setOrgDonorCodes(rs.getString("OrgDonorCodes"));
+        ContactCache.put(contact);
         return contact;
     }
 
@@ -1068,6 +1095,7 @@ public class ContactManager {
         stmt.setInt(1, challengesSinceLastGift);
         stmt.setInt(2, contactId);
         stmt.executeUpdate();
+        ContactCache.invalidate(contactId);
     }
 
     /**
@@ -1383,6 +1411,89 @@ public class ContactManager {
         updateLastXDate(contactId, maxDate, lastType);
     }
 
+    /**
+     * Looks up all of the specified email addresses, reading only the contacts whose email fields contain one of them
+     * (a few addresses per query).
+     * <p>
+     * Matching follows the same rules as {@link #getContactIdByEmail(String)}: each address is compared exactly against
+     * the individual addresses parsed out of a contact's email fields (including spouse email fields).
+     *
+     * @param emails
+     *            the email addresses to look up; null entries are allowed and are never found
+     * @return a map of each specified email address to its match; addresses with no contacts have a match count of 0
+     *         and addresses with multiple contacts have a match count greater than 1 (with no contact ID)
+     * @throws SQLException
+     *             if there is a database access problem
+     */
+    public static Map<String, ContactMatch> resolveEmails(Collection<String> emails) throws SQLException {
+        log.trace("resolveEmails({})", emails);
+
+        Map<String, ContactMatch> matches = new LinkedHashMap<String, ContactMatch>();
+        if (emails == null || emails.isEmpty())
+            return matches;
+
+        // Contact IDs (in order found) and FileAs names for each requested address
+        Map<String, LinkedHashMap<Integer, String>> found = new HashMap<String, LinkedHashMap<Integer, String>>();
+        for (String email : emails)
+            if (email != null)
+                found.put(email, new LinkedHashMap<Integer, String>());
+
+        Pattern pattern = Pattern.compile(MIST.REGEX_EMAILADDRESS);
+        ArrayList<String> contactEmails = new ArrayList<String>();
+        List<String> addresses = new ArrayList<String>(found.keySet());
+        for (int start = 0; start < addresses.size(); start += MAX_EMAILS_PER_QUERY) {
+            List<String> batch = addresses.subList(start, Math.min(start + MAX_EMAILS_PER_QUERY, addresses.size()));
+
+            // Find partial string matches in the DB (as getContactIdByEmail does), then look for exact matches below
+            String condition = "[Email1] LIKE ? OR "
+                + "[Email2] LIKE ? OR "
+                + "[Email3] LIKE ? OR "
+                + "[SpouseEmail1] LIKE ? OR "
+                + "[SpouseEmail2] LIKE ? OR "
+                + "[SpouseEmail3] LIKE ?";
+            String query = "SELECT [ContactID], [FileAs], "
+                + "[Email1] & ',' & [Email2] & ',' & [Email3] & ',' & "
+                + "[SpouseEmail1] & ',' & [SpouseEmail2] & ',' & [SpouseEmail3] "
+                + "FROM [Contact] WHERE "
+                + String.join(" OR ", Collections.nCopies(batch.size(), condition));
+            PreparedStatement stmt = TntDb.getConnection().prepareStatement(query);
+            int param = 1;
+            for (String email : batch)
+                for (int i = 0; i < 6; i++)
+                    stmt.setString(param++, "%" + email + "%");
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                String emailStr = rs.getString(3);
+                if (emailStr == null)
+                    continue;
+
+                // Parse out individual email addresses & look for exact matches
+                contactEmails.clear();
+                Util.addMatchesToList(contactEmails, pattern, emailStr);
+                for (String em : contactEmails) {
+                    LinkedHashMap<Integer, String> contacts = found.get(em);
+                    if (contacts != null)
+                        contacts.put(rs.getInt("ContactID"), rs.getString("FileAs"));
+                }
+            }
+        }
+
+        for (String email : emails) {
+            LinkedHashMap<Integer, String> contacts = email == null ? null : found.get(email);
+            if (contacts == null || contacts.isEmpty()) {
+                matches.put(email, new ContactMatch(email));
+            } else if (contacts.size() == 1) {
+                Map.Entry<Integer, String> contact = contacts.entrySet().iterator().next();
+                matches.put(email, new ContactMatch(email, contact.getKey(), contact.getValue(), 1));
+            } else {
+                matches.put(email, new ContactMatch(email, null, null, contacts.size()));
+            }
+        }
+
+        return matches;
+    }
+
     /**
      * Updates the last activity date for the specified contact.
      * <p>
@@ -1506,6 +1617,7 @@ public class ContactManager {
     public static void updateLastEdit(int contactId) throws SQLException {
         log.trace("updateLastEdit({})", contactId);
         TntDb.updateTableLastEdit(TntDb.TABLE_CONTACT, contactId);
+        ContactCache.invalidate(contactId);
     }
 
     /**
@@ -1670,6 +1782,7 @@ public class ContactManager {
             stmt.setInt(2, contactId);
             stmt.executeUpdate();
             // LastEdit is not updated for calculated fields
+            ContactCache.invalidate(contactId);
         }
 
         // If date was set to null, we need to recalculate the last date (and LastActivity, just in case)
@@ -29,6 +29,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.model.MetricsModel;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
 import com.gideonsoftware.mist.tntapi.entities.History;
 import com.gideonsoftware.mist.tntapi.entities.TaskType;
 
@@ -128,15 +130,18 @@ public class HistoryManager {
             log.warn("Unexpected history result: {}", history.getHistoryResultId());
 
         LocalDateTime historyDate = history.getHistoryDate();
+        Integer serverId = history.getMessageSource() == null ? null : history.getMessageSource().getSourceId();
 
         // Check for duplicate data (don't insert this twice!)
         // Two history records with the same contact, date and result are considered identical.
         // (That way you can update description, notes, etc. without creating duplicates)
+        long start = System.nanoTime();
         History existingHistory = get(
             history.getContactInfo().getId(),
             history.getTaskTypeId(),
             historyDate,
             history.getHistoryResultId());
+        MetricsModel.record(Stage.DUPLICATE_CHECK, serverId, start);
         if (existingHistory != null) {
             log.debug("History already exists in TntConnect.");
             history.setStatus(History.STATUS_EXISTS);
@@ -145,6 +150,7 @@ public class HistoryManager {
             return;
         }
 
+        start = System.nanoTime();
         history.setHistoryId(TntDb.getAvailableId(TntDb.TABLE_HISTORY));
         LocalDateTime now = LocalDateTime.now().withNano(0);
 
@@ -209,6 +215,7 @@ public class HistoryManager {
                 ContactManager.updateLastChallengeDate(history.getContactInfo().getId(), historyDate);
             if (history.isThank())
                 ContactManager.updateLastThankDate(history.getContactInfo().getId(), historyDate);
+            MetricsModel.record(Stage.INSERT, serverId, start);
             TntDb.commit();
         } catch (SQLException e) {
             TntDb.rollback();
@@ -306,6 +313,24 @@ public class HistoryManager {
         }
     }
 
+    /**
+     * Gets the specified history item's body (e.g. to show history whose body isn't kept in memory).
+     *
+     * @param historyId
+     *            the history ID for which to get the body
+     * @return the body; empty if the history has none
+     * @throws TntDbException
+     *             if there is more than one history item with the ID (which shouldn't happen)
+     * @throws SQLException
+     *             if there is a database access problem
+     * @see History#compact()
+     */
+    public static String getNotes(int historyId) throws TntDbException, SQLException {
+        log.trace("getNotes({})", historyId);
+        String notes = TntDb.getOneString("SELECT [Notes] FROM [History] WHERE [HistoryId] = ?", historyId);
+        return notes == null ? "" : notes;
+    }
+
     /**
      * Updates the specified history's description.
      * <p>
@@ -23,6 +23,8 @@ package com.gideonsoftware.mist.tntapi;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -32,21 +34,33 @@ import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.money.MonetaryAmount;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.eclipse.swt.widgets.Display;
 import org.javamoney.moneta.FastMoney;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.HistoryModel;
 import com.gideonsoftware.mist.model.MessageModel;
+import com.gideonsoftware.mist.model.MetricsModel;
+import com.gideonsoftware.mist.model.MetricsModel.Count;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
 import com.gideonsoftware.mist.model.data.EmailMessage;
+import com.gideonsoftware.mist.model.data.EmailServer;
+import com.gideonsoftware.mist.model.data.ImportJournal;
 import com.gideonsoftware.mist.model.data.MessageSource;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.entities.History;
 import com.gideonsoftware.mist.util.ResultSetFormatter;
 import com.gideonsoftware.mist.util.Util;
@@ -81,18 +95,40 @@ public class TntDb {
     public final static String PROP_IMPORTSTATUS_IMPORTING = "tntdb.importstatus.importing";
     public final static String PROP_IMPORTSTATUS_STOPPED = "tntdb.importstatus.stopped";
     public final static String PROP_HISTORY_PROCESSED = "tntdb.history.processed";
+    public final static String PROP_MESSAGE_JOURNALED = "tntdb.message.journaled";
 
     // Import controls
-    private static boolean stopImporting = false;
-    private static boolean importing = false;
+    private static volatile boolean stopImporting = false;
+    private static volatile boolean importing = false;
+
+    /**
+     * True if the import service is saving messages to the import journal because TntConnect has the database open
+     */
+    private static volatile boolean journaling = false;
+
+    /**
+     * The import service's thread, and the thread that restarts it once it has stopped (if it's being restarted)
+     */
+    private static Thread importThread = null;
+    private static Thread restartThread = null;
 
     // Number of created emails since init
     private static int addedEmailsCount = 0;
 
+    // Number of emails saved to the import journal since init
+    private static int journaledEmailsCount = 0;
+
     // Other objects
     private static String dbPath = null;
     private static Connection conn = null;
     private static boolean useCommit = true;
+    private static ImportJournal importJournal = null;
+
+    /**
+     * History that has been resolved again in place (e.g. after a contact was matched), waiting to be added to Tnt by
+     * the import service ahead of any new messages
+     */
+    private final static Queue<History> resolvedHistory = new ConcurrentLinkedQueue<History>();
 
     /**
      * No instantiation allowed!
@@ -105,16 +141,42 @@ public class TntDb {
         pcs.addPropertyChangeListener(listener);
     }
 
+    /**
+     * Queues history that has been resolved again in place to be added to Tnt (and back into the history model) by
+     * the import service, without reprocessing the messages it came from.
+     *
+     * @param historyArr
+     *            the history to add
+     * @see HistoryModel#resolveHistoryWithContactInfo(com.gideonsoftware.mist.tntapi.entities.ContactInfo,
+     *      com.gideonsoftware.mist.tntapi.entities.ContactInfo)
+     */
+    public static void addResolvedHistory(History[] historyArr) {
+        log.trace("addResolvedHistory({})", historyArr.length);
+        for (History history : historyArr)
+            resolvedHistory.add(history);
+    }
+
     /**
      * Commits changes to the Tnt database if useCommit is true.
+     * <p>
+     * During a write run by {@link TntDbExecutor}, this does nothing; the write is committed as a whole once it has
+     * finished.
      *
      * @throws SQLException
      *             if there is a database access problem
      */
     public static void commit() throws SQLException {
         log.trace("commit() -- useCommit is {}", useCommit);
-        if (isUseCommit())
+        if (isUseCommit() && !TntDbExecutor.isInTransaction()) {
+            long start = System.nanoTime();
+            File dbFile = new File(dbPath);
+            long modifiedBefore = dbFile.lastModified();
             conn.commit();
+            MetricsModel.record(Stage.COMMIT, null, start);
+
+            // MIST's own changes to the file don't mean the contact directory has to be refreshed
+            ContactDirectory.committed(dbPath, modifiedBefore, dbFile.lastModified());
+        }
     }
 
     /**
@@ -378,6 +440,20 @@ public class TntDb {
         return getOneString(query, id);
     }
 
+    /**
+     * Returns the journal of messages retrieved while TntConnect had the database open, which are added to Tnt the next
+     * time the import service starts with the database available.
+     */
+    public static synchronized ImportJournal getImportJournal() {
+        if (importJournal == null)
+            importJournal = new ImportJournal(Paths.get(MIST.getAppConfDir(), "journal.dat"));
+        return importJournal;
+    }
+
+    public static int getJournaledEmailsCount() {
+        return journaledEmailsCount;
+    }
+
     /**
      * Returns the description for the specified ID in the MPDPhase table.
      *
@@ -668,10 +744,35 @@ public class TntDb {
         return conn != null;
     }
 
+    /**
+     * Returns whether the TntConnect database is open in another program (normally TntConnect itself), which is the
+     * case while its Access lock file exists.
+     *
+     * @return true if the database's lock file exists; false otherwise
+     */
+    public static boolean isDatabaseLocked() {
+        if (dbPath == null || dbPath.isEmpty())
+            return false;
+        File dbFile = new File(dbPath);
+        String baseName = dbFile.getName();
+        if (baseName.lastIndexOf('.') != -1)
+            baseName = baseName.substring(0, baseName.lastIndexOf('.'));
+        return new File(dbFile.getParentFile(), baseName + ".ldb").exists()
+            || new File(dbFile.getParentFile(), baseName + ".laccdb").exists();
+    }
+
     public static boolean isImporting() {
         return importing;
     }
 
+    /**
+     * Returns whether the import service is saving messages to the import journal (rather than adding them to Tnt)
+     * because TntConnect has the database open.
+     */
+    public static boolean isJournaling() {
+        return journaling;
+    }
+
     /**
      * Returns whether to commit transactions after add/update/delete methods.
      *
@@ -699,6 +800,7 @@ public class TntDb {
         if (conn == null)
             throw new TntDbException("No database connection available.");
 
+        ContactCache.clear(); // Cached contacts may have been loaded with changes that are being rolled back
         try {
             log.debug("Rolling back Tnt database...");
             conn.rollback();
@@ -731,44 +833,156 @@ public class TntDb {
 
     /**
      * Starts the TntConnect import service.
+     * <p>
+     * If TntConnect has the database open, messages are saved to the import journal instead of being added to Tnt.
+     * The journal is replayed the next time the service starts with the database available.
+     *
+     * @return true if the service is running; false if it could not connect to the database
      */
-    public static void startImportService() {
+    public static boolean startImportService() {
         log.trace("startImportService()");
 
-        if (importing)
-            return;
+        if (restartThread != null && restartThread.isAlive())
+            return true; // Already restarting
 
+        Thread stoppingThread = null;
+        if (importing) {
+            if (!journaling || isDatabaseLocked())
+                return true;
+            // TntConnect has been closed since the service started; restart it so the journal is replayed
+            stoppingThread = importThread;
+            stopImportService();
+        }
+
+        boolean journal = false;
+        if (!isConnected() && isDatabaseLocked()) {
+            // Don't treat an open TntConnect as an error; retrieve messages into the journal instead
+            try {
+                connect(true);
+            } catch (TntDbException e) {
+                log.debug("Could not connect to locked Tnt database", e);
+            }
+            journal = !isConnected();
+            if (journal)
+                Util.reportInfo(
+                    "TntConnect is open",
+                    "MIST can't add history while TntConnect is open, so it will save your emails and add them the "
+                        + "next time you import with TntConnect closed.");
+        } else {
+            Util.connectToTntDatabase();
+        }
+        if (!isConnected() && !journal)
+            return false;
+
+        if (stoppingThread == null) {
+            startImportThread(journal);
+            return true;
+        }
+
+        // Start the service again once it has stopped, without making the caller (e.g. the UI thread) wait
+        Thread waitThread = stoppingThread;
+        restartThread = new Thread(() -> {
+            try {
+                waitThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            startImportThread(false);
+        });
+        restartThread.setName("TntImportRestart");
+        restartThread.start();
+        return true;
+    }
+
+    /**
+     * Starts the import service's thread.
+     *
+     * @param journal
+     *            true to save messages to the import journal (because TntConnect has the database open)
+     */
+    private static void startImportThread(boolean journal) {
         stopImporting = false;
         addedEmailsCount = 0;
-        Util.connectToTntDatabase();
-        if (!TntDb.isConnected())
-            return;
+        journaledEmailsCount = 0;
+        journaling = journal;
+        importThread = new Thread() {
+
+            /**
+             * Journaled messages that haven't been forced to disk yet (so aren't committed to their servers'
+             * checkpoints)
+             */
+            private List<EmailMessage> unflushedMessages = new ArrayList<EmailMessage>();
+
+            /**
+             * Lets the message's server move its import checkpoint past the message.
+             */
+            private void commitCheckpoint(EmailMessage message) {
+                EmailModel.getEmailServer(message.getSourceId()).getImportCheckpoint().commit(message.getPosition());
+            }
 
-        Thread importThread = new Thread() {
+            /**
+             * Adds the history into Tnt if its status is still unset, recording any error in its status.
+             */
+            private void createHistory(History history) {
+                if (history.getStatus() != History.STATUS_NONE)
+                    return;
+                try {
+                    // Each history is its own unit of work, so interactive work can run in between
+                    TntDbExecutor.callWrite(Priority.BACKGROUND, () -> {
+                        HistoryManager.create(history);
+                        return null;
+                    });
+                    if (History.STATUS_ADDED == history.getStatus()) {
+                        addedEmailsCount++;
+                        MetricsModel.count(Count.ADDED, history.getMessageSource().getSourceId());
+                    } else if (History.STATUS_EXISTS == history.getStatus()) {
+                        MetricsModel.count(Count.EXISTING, history.getMessageSource().getSourceId());
+                    }
+                } catch (TntDbException | SQLException e) {
+                    history.setStatus(History.STATUS_ERROR);
+                    history.setStatusException(e);
+                    MetricsModel.count(Count.ERRORS, history.getMessageSource().getSourceId());
+                }
+            }
+
+            /**
+             * Forces journaled messages to disk if a batch is due (or if {@code force} is true), then commits them to
+             * their servers' checkpoints.
+             */
+            private void flushJournal(boolean force) {
+                try {
+                    if (!getImportJournal().flush(force))
+                        return;
+                    for (EmailMessage message : unflushedMessages)
+                        commitCheckpoint(message);
+                } catch (IOException e) {
+                    // The messages aren't committed, so the next import retrieves them again
+                    Util.reportError("Journal error", "Could not save emails for TntConnect.", e);
+                }
+                unflushedMessages.clear();
+            }
 
-            public void importMessage(MessageSource messageSource) {
+            /**
+             * Converts the message into history and adds it into Tnt.
+             *
+             * @return false if any of the message's history could not be added because of an error; true otherwise
+             */
+            public boolean importMessage(MessageSource messageSource) {
                 log.trace("importMessage({})", messageSource);
 
                 // Converts message into one or more history objects
                 History[] historyArr = HistoryModel.getHistory((EmailMessage) messageSource);
 
-                if (historyArr == null) // No history to add
-                    return;
-
+                if (historyArr == null) { // No history to add
+                    commitCheckpoint((EmailMessage) messageSource);
+                    return true;
+                }
                 // Add the history into Tnt
+                boolean fullyImported = historyArr.length > 0;
+                boolean hasErrors = false;
                 for (History history : historyArr) {
-
-                    // If status is still unset
-                    if (history.getStatus() == History.STATUS_NONE) {
-                        try {
-                            HistoryManager.create(history);
-                            if (History.STATUS_ADDED == history.getStatus())
-                                addedEmailsCount++;
-                        } catch (TntDbException | SQLException e) {
-                            history.setStatus(History.STATUS_ERROR);
-                            history.setStatusException(e);
-                        }
-                    }
+                    createHistory(history);
 
                     if (history.getStatus() != History.STATUS_EXISTS
                         || history.getMessageSource().isAddExistingHistory()) {
@@ -776,8 +990,122 @@ public class TntDb {
                         HistoryModel.addHistory(history);
                     }
 
+                    if (history.getStatus() != History.STATUS_ADDED && history.getStatus() != History.STATUS_EXISTS)
+                        fullyImported = false;
+                    if (history.getStatus() == History.STATUS_ERROR)
+                        hasErrors = true;
+
                     pcs.firePropertyChange(PROP_HISTORY_PROCESSED, null, history);
                 }
+
+                // Record fully-imported messages so they can be skipped before retrieval next time
+                // (which is only possible for messages with a Message-ID)
+                if (fullyImported && messageSource.getMessageId() != null)
+                    EmailModel.getEmailServer(messageSource.getSourceId()).getImportLedger().add(
+                        messageSource.getIdentity());
+
+                // Messages with errors hold the checkpoint back, so the next import retries them
+                if (!hasErrors)
+                    commitCheckpoint((EmailMessage) messageSource);
+                return !hasErrors;
+            }
+
+            /**
+             * Saves the message to the import journal, to be added into Tnt once the database is available.
+             */
+            private void journalMessage(EmailMessage message) throws IOException {
+                log.trace("journalMessage({})", message);
+                EmailServer server = EmailModel.getEmailServer(message.getSourceId());
+                getImportJournal().append(server.getLedgerId(), message);
+                unflushedMessages.add(message);
+                journaledEmailsCount++;
+                MetricsModel.count(Count.JOURNALED, message.getSourceId());
+                pcs.firePropertyChange(PROP_MESSAGE_JOURNALED, null, message);
+                flushJournal(false);
+            }
+
+            /**
+             * Adds the messages in the import journal into Tnt, ahead of any newly-retrieved messages. Messages with
+             * errors stay in the journal for next time. (Replaying a message twice is harmless, since existing history
+             * is never added again.)
+             */
+            private void replayJournal() {
+                ImportJournal journal = getImportJournal();
+                if (journal.isEmpty())
+                    return;
+
+                List<ImportJournal.Entry> entries = journal.read();
+                log.info("Adding {} email(s) saved while TntConnect was open", entries.size());
+                List<ImportJournal.Entry> remaining = new ArrayList<ImportJournal.Entry>();
+                for (ImportJournal.Entry entry : entries) {
+                    if (stopImporting) {
+                        remaining.add(entry);
+                        continue;
+                    }
+                    EmailServer server = EmailModel.getEmailServerByLedgerId(entry.getLedgerId());
+                    if (server == null) {
+                        log.warn("Email account was removed; skipping journaled message {}", entry.getMessage());
+                        continue;
+                    }
+
+                    EmailMessage message = new EmailMessage(entry.getMessage());
+                    message.setSourceId(server.getId());
+                    message.setSourceName(server.getNickname());
+                    try {
+                        if (!importMessage(message))
+                            remaining.add(entry);
+                    } catch (Exception e) {
+                        remaining.add(entry);
+                        String msg = "Error while importing email into TntConnect.";
+                        Util.reportError("Import error", msg, e);
+                    }
+                }
+
+                try {
+                    journal.rewrite(remaining);
+                } catch (IOException e) {
+                    // Not fatal; the whole journal is replayed again next time
+                    log.warn("Could not rewrite import journal '{}'", journal.getFile(), e);
+                }
+            }
+
+            /**
+             * Adds queued history that has been resolved again into Tnt and back into the history model. Once all of a
+             * message's history has been added (or already exists), the message is recorded in its server's import
+             * ledger. If TntConnect has the database open, the history's messages are journaled instead.
+             */
+            private void importResolvedHistory() throws IOException {
+                Set<MessageSource> messages = new LinkedHashSet<MessageSource>();
+                History history;
+                while ((history = resolvedHistory.poll()) != null) {
+                    messages.add(history.getMessageSource());
+                    if (journaling)
+                        continue;
+
+                    createHistory(history);
+                    HistoryModel.addHistory(history);
+                    pcs.firePropertyChange(PROP_HISTORY_PROCESSED, null, history);
+                }
+                log.debug("Added resolved history from {} message(s)", messages.size());
+
+                for (MessageSource messageSource : messages) {
+                    if (journaling) {
+                        // Replaying the whole message later is harmless, since existing history isn't added again
+                        journalMessage((EmailMessage) messageSource);
+                        continue;
+                    }
+
+                    History[] historyArr = HistoryModel.getAllHistoryFromMessageSource(messageSource);
+                    Integer historyCount = HistoryModel.getHistoryCountForMessage(messageSource.getUniqueId());
+                    boolean fullyImported = historyCount != null && historyArr.length == historyCount;
+                    for (History messageHistory : historyArr)
+                        if (messageHistory.getStatus() != History.STATUS_ADDED
+                            && messageHistory.getStatus() != History.STATUS_EXISTS)
+                            fullyImported = false;
+                    if (fullyImported && messageSource.getMessageId() != null)
+                        EmailModel.getEmailServer(messageSource.getSourceId()).getImportLedger().add(
+                            messageSource.getIdentity());
+                }
             }
 
             @Override
@@ -785,27 +1113,46 @@ public class TntDb {
                 log.trace("=== TntDb Import Service Started ===");
                 importing = true;
                 pcs.firePropertyChange(PROP_IMPORTSTATUS_IMPORTING, null, importing);
+                if (!journaling)
+                    replayJournal();
                 while (!stopImporting) {
-                    while (MessageModel.hasMessages() && !stopImporting) {
+                    if (!resolvedHistory.isEmpty()) {
                         try {
-                            MessageSource message = MessageModel.getNextMessage();
-                            if (message != null)
-                                importMessage(message);
+                            importResolvedHistory();
                         } catch (Exception e) {
-                            Display.getDefault().syncExec(new Runnable() {
-                                @Override
-                                public void run() {
-                                    String msg = "Error while importing email into TntConnect.";
-                                    Util.reportError("Import error", msg, e);
-                                }
-                            });
+                            String msg = "Error while importing email into TntConnect.";
+                            Util.reportError("Import error", msg, e);
                         }
                     }
+                    try {
+                        // Waits a little for the next message, so the service doesn't spin while there's nothing
+                        // to import (e.g. while a continuous import waits for new email)
+                        MessageSource message = MessageModel.getNextMessage();
+                        if (message != null && journaling)
+                            journalMessage((EmailMessage) message);
+                        else if (message != null)
+                            importMessage(message);
+                    } catch (Exception e) {
+                        String msg = "Error while importing email into TntConnect.";
+                        Util.reportError("Import error", msg, e);
+                    }
+                    if (journaling)
+                        flushJournal(false);
+
+                    // The import run is over once every message it retrieved has been processed
+                    if (MetricsModel.isRunning() && !EmailModel.isImporting() && !MessageModel.hasMessages())
+                        MetricsModel.finishRun();
+                }
+                if (journaling) {
+                    flushJournal(true);
+                    getImportJournal().close();
                 }
                 log.trace("=== TntDb Import Service Stopped ===");
                 importing = false;
-                Util.incPrefCounter(MIST.PREF_TOTAL_IMPORTED_EMAILS, addedEmailsCount);
+                MetricsModel.finishRun(); // Also saves the running totals if no import run is in progress
                 log.info("Added {} email(s) to Tnt database", addedEmailsCount);
+                if (journaledEmailsCount > 0)
+                    log.info("Saved {} email(s) to the import journal", journaledEmailsCount);
                 pcs.firePropertyChange(PROP_IMPORTSTATUS_STOPPED, null, importing);
             }
         };
@@ -0,0 +1,265 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gideonsoftware.mist.exceptions.TntDbException;
+
+/**
+ * Runs work on the Tnt database connection on a single thread, so callers on other threads (the import service, the
+ * UI, wizards) never interleave their statements, commits and rollbacks.
+ * <p>
+ * Work is submitted as a read or a write. A write is a unit of work: it's committed once it has finished (commits made
+ * by the manager methods it calls are put off until then) or rolled back as a whole if it fails. Work runs in order of
+ * priority, then in the order it was submitted, so interactive work (e.g. loading a contact for a wizard) only waits
+ * for the unit of work that's running, not for an import's whole backlog.
+ * <p>
+ * Work submitted by {@link #callRead(Priority, Work)} or {@link #callWrite(Priority, Work)} from the database thread
+ * itself (i.e. by other work) runs right away, as part of the work that's running.
+ */
+public class TntDbExecutor {
+    /**
+     * Work priority; INTERACTIVE work runs before BACKGROUND work
+     */
+    public enum Priority {
+        /**
+         * Work the user is waiting for (e.g. in the UI)
+         */
+        INTERACTIVE,
+
+        /**
+         * Work the user isn't waiting for (e.g. adding imported history to Tnt)
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Work on the Tnt database
+     *
+     * @param <T>
+     *            the type of the work's result
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws TntDbException, SQLException;
+    }
+
+    /**
+     * Submitted work, waiting to run
+     */
+    private static class Task<T> implements Comparable<Task<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final boolean write;
+        private final Work<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        public Task(Priority priority, boolean write, Work<T> work) {
+            this.priority = priority;
+            this.sequence = nextSequence.getAndIncrement();
+            this.write = write;
+            this.work = work;
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (priority != other.priority)
+                return priority.compareTo(other.priority);
+            return Long.compare(sequence, other.sequence);
+        }
+
+        /**
+         * Runs the work (on the database thread), committing or rolling back a write, and completes the future.
+         */
+        public void run() {
+            T result;
+            inTransaction = write;
+            try {
+                result = work.run();
+                if (write) {
+                    inTransaction = false;
+                    TntDb.commit();
+                }
+            } catch (Throwable e) { // Anything, so whoever's waiting on the future always hears about it
+                inTransaction = false;
+                if (write)
+                    rollback();
+                future.completeExceptionally(e);
+                return;
+            }
+            future.complete(result);
+        }
+    }
+
+    private static Logger log = LogManager.getLogger();
+
+    private final static AtomicLong nextSequence = new AtomicLong();
+    private final static PriorityBlockingQueue<Task<?>> tasks = new PriorityBlockingQueue<Task<?>>();
+    private final static Thread dbThread = new Thread(TntDbExecutor::runTasks, "TntDb");
+
+    /**
+     * True while the database thread is running a write (so commits are put off until it has finished)
+     */
+    private static boolean inTransaction = false;
+
+    static {
+        dbThread.setDaemon(true);
+        dbThread.start();
+    }
+
+    /**
+     * No instantiation allowed!
+     */
+    private TntDbExecutor() {
+    }
+
+    private static <T> T call(Priority priority, boolean write, Work<T> work) throws TntDbException, SQLException {
+        if (isDbThread())
+            return work.run(); // Part of the work that's running
+
+        try {
+            return submit(priority, write, work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TntDbException("Interrupted while waiting for Tnt database", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TntDbException)
+                throw (TntDbException) cause;
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new TntDbException(cause);
+        }
+    }
+
+    /**
+     * Runs a read on the database thread and waits for its result.
+     *
+     * @param priority
+     *            the read's priority
+     * @param work
+     *            the read
+     * @return the read's result
+     * @throws TntDbException
+     *             if the read throws one, or if the calling thread is interrupted while waiting
+     * @throws SQLException
+     *             if the read throws one
+     */
+    public static <T> T callRead(Priority priority, Work<T> work) throws TntDbException, SQLException {
+        return call(priority, false, work);
+    }
+
+    /**
+     * Runs a write (as a unit of work) on the database thread and waits for its result.
+     *
+     * @param priority
+     *            the write's priority
+     * @param work
+     *            the write
+     * @return the write's result
+     * @throws TntDbException
+     *             if the write throws one, or if the calling thread is interrupted while waiting
+     * @throws SQLException
+     *             if the write throws one, or if it could not be committed
+     */
+    public static <T> T callWrite(Priority priority, Work<T> work) throws TntDbException, SQLException {
+        return call(priority, true, work);
+    }
+
+    /**
+     * Returns whether the calling thread is the database thread.
+     */
+    public static boolean isDbThread() {
+        return Thread.currentThread() == dbThread;
+    }
+
+    /**
+     * Returns whether the calling thread is running a write, in which case commits are put off until it has finished.
+     */
+    static boolean isInTransaction() {
+        return isDbThread() && inTransaction;
+    }
+
+    /**
+     * Submits a read to run on the database thread.
+     *
+     * @param priority
+     *            the read's priority
+     * @param work
+     *            the read
+     * @return a future for the read's result, completed on the database thread
+     */
+    public static <T> CompletableFuture<T> read(Priority priority, Work<T> work) {
+        return submit(priority, false, work);
+    }
+
+    private static void rollback() {
+        try {
+            TntDb.rollback();
+        } catch (TntDbException e) {
+            log.error(e);
+        }
+    }
+
+    private static void runTasks() {
+        while (true) {
+            try {
+                tasks.take().run();
+            } catch (InterruptedException e) {
+                // Nothing to do; keep waiting for work
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(Priority priority, boolean write, Work<T> work) {
+        Task<T> task = new Task<T>(priority, write, work);
+        log.trace("submit({},{}) -- #{}, {} waiting", priority, write ? "write" : "read", task.sequence, tasks.size());
+        tasks.add(task);
+        return task.future;
+    }
+
+    /**
+     * Submits a write (as a unit of work) to run on the database thread.
+     *
+     * @param priority
+     *            the write's priority
+     * @param work
+     *            the write
+     * @return a future for the write's result, completed (on the database thread) once it has been committed, or
+     *         exceptionally once it has been rolled back
+     */
+    public static <T> CompletableFuture<T> write(Priority priority, Work<T> work) {
+        return submit(priority, true, work);
+    }
+
+}
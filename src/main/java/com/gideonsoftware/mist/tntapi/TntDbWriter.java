@@ -0,0 +1,151 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
+
+/**
+ * Writes edits made in the UI to the Tnt database without the UI waiting for them, as interactive writes on the
+ * {@link TntDbExecutor} database thread (so they run ahead of any import work that's waiting).
+ * <p>
+ * Each write is a unit of work; if it fails, its changes are rolled back and its failure handler is called so the
+ * edit can be undone. Failure handlers run on a pool thread rather than the database thread, so they can report errors
+ * to the user (which waits for the UI thread) while the UI thread is waiting for the database thread.
+ * <p>
+ * Writes are keyed (e.g. by field and history ID). A write submitted while another with the same key is still waiting
+ * replaces it, so rapid changes (e.g. toggling a checkbox on and off) are only written once.
+ */
+public class TntDbWriter {
+    /**
+     * A unit of work that writes to the Tnt database (committed once it has finished)
+     */
+    @FunctionalInterface
+    public interface Write {
+        void run() throws TntDbException, SQLException;
+    }
+
+    /**
+     * A write that hasn't started yet
+     */
+    private static class PendingWrite {
+        private Write write;
+        private final Consumer<Throwable> failureHandler;
+
+        public PendingWrite(Write write, Consumer<Throwable> failureHandler) {
+            this.write = write;
+            this.failureHandler = failureHandler;
+        }
+    }
+
+    private static Logger log = LogManager.getLogger();
+
+    /**
+     * Maximum time to wait for submitted writes to finish (e.g. when MIST is closing)
+     */
+    private final static long MAX_WAIT_MILLIS = 30000;
+
+    /**
+     * Writes that haven't started yet, by key
+     */
+    private final static Map<Object, PendingWrite> pendingWrites = new HashMap<Object, PendingWrite>();
+
+    /**
+     * No instantiation allowed!
+     */
+    private TntDbWriter() {
+    }
+
+    /**
+     * Runs the waiting write with the specified key (on the database thread).
+     */
+    private static Void runWrite(Object key) throws TntDbException, SQLException {
+        log.trace("runWrite({})", key);
+        Write write;
+        synchronized (pendingWrites) {
+            write = pendingWrites.remove(key).write;
+        }
+        write.run();
+        return null;
+    }
+
+    /**
+     * Submits a write to be run on the database thread after any edits already submitted.
+     * <p>
+     * If a write with the same key is still waiting, it's replaced by this one (keeping its place in line and its
+     * failure handler, which knows the state from before either write).
+     *
+     * @param key
+     *            identifies what's being written (e.g. a field of a particular history)
+     * @param write
+     *            the write
+     * @param failureHandler
+     *            called (on a pool thread, not the database thread) with the exception if the write fails, after its
+     *            changes are rolled back
+     */
+    public static void submit(Object key, Write write, Consumer<Throwable> failureHandler) {
+        log.trace("submit({})", key);
+        PendingWrite pending = new PendingWrite(write, failureHandler);
+        synchronized (pendingWrites) {
+            PendingWrite waiting = pendingWrites.get(key);
+            if (waiting != null) {
+                log.trace("  replacing waiting write");
+                waiting.write = write;
+                return;
+            }
+            pendingWrites.put(key, pending);
+        }
+        TntDbExecutor.write(Priority.INTERACTIVE, () -> runWrite(key)).exceptionallyAsync(e -> {
+            log.warn("Could not write '{}' to Tnt database", key, e);
+            pending.failureHandler.accept(e);
+            return null;
+        });
+    }
+
+    /**
+     * Waits (up to 30 seconds) for all submitted writes to finish, e.g. before disconnecting from the Tnt database.
+     *
+     * @return true if the writes finished; false if they didn't finish in time
+     */
+    public static boolean waitForWrites() {
+        log.trace("waitForWrites()");
+        try {
+            // Interactive work runs in the order it's submitted, so once this has run, so have the writes
+            TntDbExecutor.read(Priority.INTERACTIVE, () -> null).get(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            log.warn("Gave up waiting for edits to be written to Tnt database", e);
+            return false;
+        }
+    }
+
+}
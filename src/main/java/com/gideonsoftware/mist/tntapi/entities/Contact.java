@@ -272,6 +272,238 @@ public class Contact {
     public Contact() {
     }
 
+    /**
+     * Creates a copy of the specified contact (all of whose fields are immutable).
+     */
+    public Contact(Contact contact) {
+        log.trace("{{}} Contact({})", this, contact);
+        this.contactId = contact.contactId;
+        this.lastEdit = contact.lastEdit;
+        this.createdDate = contact.createdDate;
+        this.rejectedDuplicateContactIDs = contact.rejectedDuplicateContactIDs;
+        this.fileAs = contact.fileAs;
+        this.fileAsIsCustom = contact.fileAsIsCustom;
+        this.fullName = contact.fullName;
+        this.fullNameIsCustom = contact.fullNameIsCustom;
+        this.greeting = contact.greeting;
+        this.greetingIsCustom = contact.greetingIsCustom;
+        this.salutation = contact.salutation;
+        this.salutationIsCustom = contact.salutationIsCustom;
+        this.shortName = contact.shortName;
+        this.shortNameIsCustom = contact.shortNameIsCustom;
+        this.mailingAddressBlock = contact.mailingAddressBlock;
+        this.mailingAddressIsDeliverable = contact.mailingAddressIsDeliverable;
+        this.phone = contact.phone;
+        this.phoneIsValid = contact.phoneIsValid;
+        this.email = contact.email;
+        this.emailIsValid = contact.emailIsValid;
+        this.isOrganization = contact.isOrganization;
+        this.organizationName = contact.organizationName;
+        this.orgContactPerson = contact.orgContactPerson;
+        this.title = contact.title;
+        this.firstName = contact.firstName;
+        this.middleName = contact.middleName;
+        this.lastName = contact.lastName;
+        this.suffix = contact.suffix;
+        this.spouseTitle = contact.spouseTitle;
+        this.spouseFirstName = contact.spouseFirstName;
+        this.spouseMiddleName = contact.spouseMiddleName;
+        this.spouseLastName = contact.spouseLastName;
+        this.deceased = contact.deceased;
+        this.mailingAddressType = contact.mailingAddressType;
+        this.mailingStreetAddress = contact.mailingStreetAddress;
+        this.mailingCity = contact.mailingCity;
+        this.mailingState = contact.mailingState;
+        this.mailingPostalCode = contact.mailingPostalCode;
+        this.mailingCountry = contact.mailingCountry;
+        this.homeStreetAddress = contact.homeStreetAddress;
+        this.homeCity = contact.homeCity;
+        this.homeState = contact.homeState;
+        this.homePostalCode = contact.homePostalCode;
+        this.homeCountryId = contact.homeCountryId;
+        this.homeCountry = contact.homeCountry;
+        this.homeAddressIsDeliverable = contact.homeAddressIsDeliverable;
+        this.homeAddressBlock = contact.homeAddressBlock;
+        this.homeAddressBlockIsCustom = contact.homeAddressBlockIsCustom;
+        this.otherStreetAddress = contact.otherStreetAddress;
+        this.otherCity = contact.otherCity;
+        this.otherState = contact.otherState;
+        this.otherPostalCode = contact.otherPostalCode;
+        this.otherCountryId = contact.otherCountryId;
+        this.otherCountry = contact.otherCountry;
+        this.otherAddressIsDeliverable = contact.otherAddressIsDeliverable;
+        this.otherAddressBlock = contact.otherAddressBlock;
+        this.otherAddressBlockIsCustom = contact.otherAddressBlockIsCustom;
+        this.businessName = contact.businessName;
+        this.businessStreetAddress = contact.businessStreetAddress;
+        this.businessCity = contact.businessCity;
+        this.businessState = contact.businessState;
+        this.businessPostalCode = contact.businessPostalCode;
+        this.businessCountryId = contact.businessCountryId;
+        this.businessCountry = contact.businessCountry;
+        this.businessAddressIsDeliverable = contact.businessAddressIsDeliverable;
+        this.businessAddressBlock = contact.businessAddressBlock;
+        this.businessAddressBlockIsCustom = contact.businessAddressBlockIsCustom;
+        this.spouseBusinessName = contact.spouseBusinessName;
+        this.spouseBusinessStreetAddress = contact.spouseBusinessStreetAddress;
+        this.spouseBusinessCity = contact.spouseBusinessCity;
+        this.spouseBusinessState = contact.spouseBusinessState;
+        this.spouseBusinessPostalCode = contact.spouseBusinessPostalCode;
+        this.spouseBusinessCountryId = contact.spouseBusinessCountryId;
+        this.spouseBusinessCountry = contact.spouseBusinessCountry;
+        this.spouseBusinessAddressIsDeliverable = contact.spouseBusinessAddressIsDeliverable;
+        this.spouseBusinessAddressBlock = contact.spouseBusinessAddressBlock;
+        this.spouseBusinessAddressBlockIsCustom = contact.spouseBusinessAddressBlockIsCustom;
+        this.preferredPhoneType = contact.preferredPhoneType;
+        this.phoneIsValidMask = contact.phoneIsValidMask;
+        this.phoneCountryIds = contact.phoneCountryIds;
+        this.homePhone = contact.homePhone;
+        this.homePhone2 = contact.homePhone2;
+        this.homeFax = contact.homeFax;
+        this.otherPhone = contact.otherPhone;
+        this.otherFax = contact.otherFax;
+        this.businessPhone = contact.businessPhone;
+        this.businessPhone2 = contact.businessPhone2;
+        this.businessFax = contact.businessFax;
+        this.companyMainPhone = contact.companyMainPhone;
+        this.mobilePhone = contact.mobilePhone;
+        this.mobilePhone2 = contact.mobilePhone2;
+        this.pagerNumber = contact.pagerNumber;
+        this.spouseBusinessPhone = contact.spouseBusinessPhone;
+        this.spouseBusinessPhone2 = contact.spouseBusinessPhone2;
+        this.spouseBusinessFax = contact.spouseBusinessFax;
+        this.spouseCompanyMainPhone = contact.spouseCompanyMainPhone;
+        this.spouseMobilePhone = contact.spouseMobilePhone;
+        this.spouseMobilePhone2 = contact.spouseMobilePhone2;
+        this.spousePagerNumber = contact.spousePagerNumber;
+        this.preferredEmailTypes = contact.preferredEmailTypes;
+        this.emailLabels = contact.emailLabels;
+        this.email1 = contact.email1;
+        this.email2 = contact.email2;
+        this.email3 = contact.email3;
+        this.email1IsValid = contact.email1IsValid;
+        this.email2IsValid = contact.email2IsValid;
+        this.email3IsValid = contact.email3IsValid;
+        this.emailCustomGreeting = contact.emailCustomGreeting;
+        this.emailCustomSalutation = contact.emailCustomSalutation;
+        this.spouseEmail1 = contact.spouseEmail1;
+        this.spouseEmail2 = contact.spouseEmail2;
+        this.spouseEmail3 = contact.spouseEmail3;
+        this.spouseEmail1IsValid = contact.spouseEmail1IsValid;
+        this.spouseEmail2IsValid = contact.spouseEmail2IsValid;
+        this.spouseEmail3IsValid = contact.spouseEmail3IsValid;
+        this.spouseEmailCustomGreeting = contact.spouseEmailCustomGreeting;
+        this.spouseEmailCustomSalutation = contact.spouseEmailCustomSalutation;
+        this.webPage1 = contact.webPage1;
+        this.webPage2 = contact.webPage2;
+        this.voiceSkype = contact.voiceSkype;
+        this.imAddress = contact.imAddress;
+        this.socialWeb1 = contact.socialWeb1;
+        this.socialWeb2 = contact.socialWeb2;
+        this.socialWeb3 = contact.socialWeb3;
+        this.socialWeb4 = contact.socialWeb4;
+        this.spouseWebPage1 = contact.spouseWebPage1;
+        this.spouseWebPage2 = contact.spouseWebPage2;
+        this.spouseVoiceSkype = contact.spouseVoiceSkype;
+        this.spouseImAddress = contact.spouseImAddress;
+        this.spouseSocialWeb1 = contact.spouseSocialWeb1;
+        this.spouseSocialWeb2 = contact.spouseSocialWeb2;
+        this.spouseSocialWeb3 = contact.spouseSocialWeb3;
+        this.spouseSocialWeb4 = contact.spouseSocialWeb4;
+        this.notesAsRtf = contact.notesAsRtf;
+        this.notes = contact.notes;
+        this.familySideId = contact.familySideId;
+        this.familyLevelId = contact.familyLevelId;
+        this.children = contact.children;
+        this.interests = contact.interests;
+        this.nickname = contact.nickname;
+        this.profession = contact.profession;
+        this.spouseInterests = contact.spouseInterests;
+        this.spouseNickname = contact.spouseNickname;
+        this.spouseProfession = contact.spouseProfession;
+        this.anniversaryMonth = contact.anniversaryMonth;
+        this.anniversaryDay = contact.anniversaryDay;
+        this.anniversaryYear = contact.anniversaryYear;
+        this.birthdayMonth = contact.birthdayMonth;
+        this.birthdayDay = contact.birthdayDay;
+        this.birthdayYear = contact.birthdayYear;
+        this.spouseBirthdayMonth = contact.spouseBirthdayMonth;
+        this.spouseBirthdayDay = contact.spouseBirthdayDay;
+        this.spouseBirthdayYear = contact.spouseBirthdayYear;
+        this.categories = contact.categories;
+        this.user1 = contact.user1;
+        this.user2 = contact.user2;
+        this.user3 = contact.user3;
+        this.user4 = contact.user4;
+        this.user5 = contact.user5;
+        this.user6 = contact.user6;
+        this.user7 = contact.user7;
+        this.user8 = contact.user8;
+        this.userStatus = contact.userStatus;
+        this.mapAddressType = contact.mapAddressType;
+        this.mapLat = contact.mapLat;
+        this.mapLng = contact.mapLng;
+        this.mapStatus = contact.mapStatus;
+        this.pledgeAmount = contact.pledgeAmount;
+        this.pledgeFrequencyId = contact.pledgeFrequencyId;
+        this.pledgeReceived = contact.pledgeReceived;
+        this.pledgeStartDate = contact.pledgeStartDate;
+        this.pledgeCurrencyId = contact.pledgeCurrencyId;
+        this.referredBy = contact.referredBy;
+        this.referredByList = contact.referredByList;
+        this.mpdPhaseId = contact.mpdPhaseId;
+        this.fundRepId = contact.fundRepId;
+        this.nextAsk = contact.nextAsk;
+        this.nextAskAmount = contact.nextAskAmount;
+        this.estimatedAnnualCapacity = contact.estimatedAnnualCapacity;
+        this.neverAsk = contact.neverAsk;
+        this.region = contact.region;
+        this.likelyToGiveId = contact.likelyToGiveId;
+        this.churchName = contact.churchName;
+        this.sendNewsletter = contact.sendNewsletter;
+        this.newsletterMediaPref = contact.newsletterMediaPref;
+        this.newsletterLangId = contact.newsletterLangId;
+        this.directDeposit = contact.directDeposit;
+        this.magazine = contact.magazine;
+        this.monthlyPledge = contact.monthlyPledge;
+        this.firstGiftDate = contact.firstGiftDate;
+        this.lastGiftDate = contact.lastGiftDate;
+        this.lastGiftAmount = contact.lastGiftAmount;
+        this.lastGiftCurrencyId = contact.lastGiftCurrencyId;
+        this.lastGiftOrganizationId = contact.lastGiftOrganizationId;
+        this.lastGiftOrgDonorCode = contact.lastGiftOrgDonorCode;
+        this.lastGiftPaymentMethod = contact.lastGiftPaymentMethod;
+        this.prevYearTotal = contact.prevYearTotal;
+        this.yearTotal = contact.yearTotal;
+        this.lifetimeTotal = contact.lifetimeTotal;
+        this.lifetimeNumberOfGifts = contact.lifetimeNumberOfGifts;
+        this.largestGift = contact.largestGift;
+        this.goodUntil = contact.goodUntil;
+        this.aveMonthlyGift = contact.aveMonthlyGift;
+        this.lastDateInAve = contact.lastDateInAve;
+        this.twelveMonthTotal = contact.twelveMonthTotal;
+        this.baseCurrencyId = contact.baseCurrencyId;
+        this.baseMonthlyPledge = contact.baseMonthlyPledge;
+        this.baseLastGiftAmount = contact.baseLastGiftAmount;
+        this.basePrevYearTotal = contact.basePrevYearTotal;
+        this.baseYearTotal = contact.baseYearTotal;
+        this.baseLifetimeTotal = contact.baseLifetimeTotal;
+        this.baseLargestGift = contact.baseLargestGift;
+        this.baseAveMonthlyGift = contact.baseAveMonthlyGift;
+        this.baseTwelveMonthTotal = contact.baseTwelveMonthTotal;
+        this.lastActivity = contact.lastActivity;
+        this.lastAppointment = contact.lastAppointment;
+        this.lastCall = contact.lastCall;
+        this.lastPreCall = contact.lastPreCall;
+        this.lastLetter = contact.lastLetter;
+        this.lastVisit = contact.lastVisit;
+        this.lastThank = contact.lastThank;
+        this.lastChallenge = contact.lastChallenge;
+        this.campaignsSinceLastGift = contact.campaignsSinceLastGift;
+        this.challengesSinceLastGift = contact.challengesSinceLastGift;
+        this.orgDonorCodes = contact.orgDonorCodes;
+    }
+
     public Integer getAnniversaryDay() {
         return anniversaryDay;
     }
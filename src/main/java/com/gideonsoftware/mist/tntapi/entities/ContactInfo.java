@@ -119,6 +119,16 @@ public class ContactInfo {
         return guessFirstAndLastNames(name)[1];
     }
 
+    /**
+     * Consistent with {@link #equals(Object)}: based on the ID if there is one, otherwise on the email address.
+     */
+    @Override
+    public int hashCode() {
+        if (id != null)
+            return id.hashCode();
+        return info == null ? 0 : info.hashCode();
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
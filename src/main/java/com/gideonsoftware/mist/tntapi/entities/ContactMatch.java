@@ -0,0 +1,81 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi.entities;
+
+/**
+ * The result of looking up an email address in the Tnt Contact table.
+ * <p>
+ * If exactly one contact has this address, {@code contactId} and {@code fileAs} are set. Otherwise they are null and
+ * {@code matchCount} tells whether no contacts or multiple contacts were found.
+ */
+public class ContactMatch {
+    private String email;
+    private Integer contactId;
+    private String fileAs;
+    private int matchCount;
+
+    public ContactMatch(String email) {
+        this.email = email;
+        contactId = null;
+        fileAs = null;
+        matchCount = 0;
+    }
+
+    public ContactMatch(String email, Integer contactId, String fileAs, int matchCount) {
+        this.email = email;
+        this.contactId = contactId;
+        this.fileAs = fileAs;
+        this.matchCount = matchCount;
+    }
+
+    /**
+     * Returns the matching contact's ID, or null unless exactly one contact matched.
+     */
+    public Integer getContactId() {
+        return contactId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Returns the matching contact's "File As" name, or null unless exactly one contact matched.
+     */
+    public String getFileAs() {
+        return fileAs;
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "ContactMatch [email=%s, contactId=%s, fileAs=%s, matchCount=%s]",
+            email,
+            contactId,
+            fileAs,
+            matchCount);
+    }
+
+}
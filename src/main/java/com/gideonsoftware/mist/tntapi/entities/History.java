@@ -110,6 +110,45 @@ public class History {
         this.statusException = new Exception(history.statusException);
     }
 
+    /**
+     * Returns a description of the specified status (e.g. {@link #STATUS_ADDED}).
+     */
+    public static String getStatusString(int status) {
+        if (status == STATUS_NONE)
+            return "---";
+        switch (status) {
+            case STATUS_ADDED:
+                return "Added";
+            case STATUS_ERROR:
+                return "Error";
+            case STATUS_EXISTS:
+                return "Exists";
+            case STATUS_CONTACT_NOT_FOUND:
+                return "Contact not found";
+            case STATUS_MULTIPLE_CONTACTS_FOUND:
+                return "Multiple contacts found";
+            default:
+                return "Unknown";
+        }
+    }
+
+    /**
+     * Drops this history's body (notes) from memory if the history is in Tnt, so a long session only keeps what's
+     * needed to list it. The body can be read back from Tnt by history ID (see
+     * {@link com.gideonsoftware.mist.tntapi.HistoryManager#getNotes(int)}).
+     * <p>
+     * Note: the message's content is shared with the message's other history, so it isn't dropped here (see
+     * {@link MessageSource#compact()}).
+     *
+     * @return true if the history was compacted; false if it isn't in Tnt (so its body is still needed)
+     */
+    public boolean compact() {
+        if (historyId == null || (status != STATUS_ADDED && status != STATUS_EXISTS))
+            return false;
+        notes = null;
+        return true;
+    }
+
     public String getAutoGenCode() {
         return autoGenCode;
     }
@@ -175,6 +214,9 @@ public class History {
         return messageSource;
     }
 
+    /**
+     * Returns the history's body, or null if it has been dropped from memory (see {@link #compact()}).
+     */
     public String getNotes() {
         return notes;
     }
@@ -196,22 +238,7 @@ public class History {
     }
 
     public String getStatusString() {
-        if (status == STATUS_NONE)
-            return "---";
-        switch (status) {
-            case STATUS_ADDED:
-                return "Added";
-            case STATUS_ERROR:
-                return "Error";
-            case STATUS_EXISTS:
-                return "Exists";
-            case STATUS_CONTACT_NOT_FOUND:
-                return "Contact not found";
-            case STATUS_MULTIPLE_CONTACTS_FOUND:
-                return "Multiple contacts found";
-            default:
-                return "Unknown";
-        }
+        return getStatusString(status);
     }
 
     public int getTaskTypeId() {
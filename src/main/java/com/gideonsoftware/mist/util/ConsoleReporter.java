@@ -0,0 +1,73 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reports errors and information to the console (for headless mode).
+ */
+public class ConsoleReporter implements Reporter {
+    private static Logger log = LogManager.getLogger();
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    public ConsoleReporter() {
+        this(System.out, System.err);
+    }
+
+    public ConsoleReporter(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Returns the number of errors reported so far.
+     */
+    public int getErrorCount() {
+        return errorCount.get();
+    }
+
+    @Override
+    public void reportError(String title, String msg, Throwable e) {
+        errorCount.incrementAndGet();
+        log.error(String.format("%s: %s", title, msg), e);
+        if (e == null) {
+            err.println(String.format("ERROR: %s: %s", title, msg));
+        } else {
+            String cause = e.getLocalizedMessage() == null ? e.toString() : e.getLocalizedMessage();
+            err.println(String.format("ERROR: %s: %s (%s)", title, msg, cause));
+        }
+    }
+
+    @Override
+    public void reportInfo(String title, String msg) {
+        log.info(String.format("%s: %s", title, msg));
+        out.println(String.format("%s: %s", title, msg));
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable, pre-compiled list of email addresses (e.g. an ignore list or a "my addresses" list).
+ * <p>
+ * Entries may contain the wildcards '*' (any characters) and '?' (any single character). Matching is
+ * case-insensitive. Plain addresses and "*@domain" entries are looked up by hash; only the remaining wildcard entries
+ * are matched with (pre-compiled) regular expressions.
+ */
+public class EmailAddressMatcher {
+    // private static Logger log = LogManager.getLogger();
+
+    /**
+     * A matcher that matches nothing
+     */
+    public static final EmailAddressMatcher EMPTY = new EmailAddressMatcher(null);
+
+    /**
+     * The list this matcher was compiled from
+     */
+    private final String[] list;
+
+    private final Set<String> addresses = new HashSet<String>();
+    private final Set<String> domains = new HashSet<String>();
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    /**
+     * Compiles a matcher for the specified list.
+     *
+     * @param list
+     *            the list of email addresses and wildcard entries; may be null
+     */
+    public EmailAddressMatcher(String[] list) {
+        this.list = list == null ? new String[0] : list.clone();
+        for (String entry : this.list) {
+            if (entry == null || entry.isEmpty())
+                continue;
+            entry = entry.toLowerCase();
+            if (entry.indexOf('*') == -1 && entry.indexOf('?') == -1) {
+                // Standard string match
+                addresses.add(entry);
+            } else if (entry.startsWith("*@") && entry.indexOf('*', 1) == -1 && entry.indexOf('?') == -1
+                && entry.indexOf('@', 2) == -1) {
+                // Any address at this domain
+                domains.add(entry.substring(2));
+            } else {
+                // Wildcard match
+                patterns.add(Pattern.compile(toRegex(entry)));
+            }
+        }
+    }
+
+    /**
+     * Converts a wildcard entry to an equivalent regular expression, quoting everything but the wildcards.
+     */
+    private static String toRegex(String entry) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < entry.length(); i++) {
+            char c = entry.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start)
+                    regex.append(Pattern.quote(entry.substring(start, i)));
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < entry.length())
+            regex.append(Pattern.quote(entry.substring(start)));
+        return regex.toString();
+    }
+
+    /**
+     * Returns true if the specified email address matches an entry in this list.
+     *
+     * @param email
+     *            the email address to check; may be null
+     * @return true if the email address is in the list; false otherwise
+     */
+    public boolean matches(String email) {
+        if (email == null)
+            return false;
+        email = email.toLowerCase();
+
+        if (addresses.contains(email))
+            return true;
+
+        int at = email.lastIndexOf('@');
+        if (at != -1 && domains.contains(email.substring(at + 1)))
+            return true;
+
+        for (Pattern pattern : patterns)
+            if (pattern.matcher(email).matches())
+                return true;
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EmailAddressMatcher %s", Arrays.toString(list));
+    }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies (or any non-negative values), in the style of HdrHistogram: values are counted in buckets
+ * that double in width with each power of two, each split into the same number of sub-buckets, so any value can be
+ * recorded in constant time and space while percentiles stay within about 3% of the true value. Values below
+ * {@value #SUB_BUCKET_COUNT} are counted exactly; values above {@link #MAX_VALUE} are counted as MAX_VALUE.
+ * <p>
+ * Thread-safe; values can be recorded by several threads (e.g. import threads) while another (e.g. the UI thread)
+ * reads percentiles. Reads made while values are being recorded may not include the newest values.
+ */
+public class LatencyHistogram {
+    private final static int SUB_BUCKET_BITS = 6;
+    private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private final static int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private final static int MAX_VALUE_BITS = 40;
+
+    /**
+     * The largest value that's counted as itself (e.g. about 12 days in microseconds)
+     */
+    public final static long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(
+        SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Returns the index of the bucket that counts the specified value (between 0 and MAX_VALUE).
+     */
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        // Keep the value's top SUB_BUCKET_BITS bits; the rest are what the bucket doesn't distinguish
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Returns the highest value that's counted by the bucket at the specified index.
+     */
+    private static long getBucketMaxValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the number of values recorded.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the largest value recorded, or 0 if none have been.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded, or 0 if none have been.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Returns the value that the specified percentage of recorded values are less than or equal to (to within the
+     * histogram's precision, but never more than the largest value recorded), or 0 if no values have been recorded.
+     *
+     * @param percentile
+     *            the percentage of values (e.g. 50 for the median, 99 for the 99th percentile)
+     */
+    public long getValueAtPercentile(double percentile) {
+        // Count from the buckets themselves, in case values are being recorded meanwhile
+        long n = 0;
+        for (int i = 0; i < buckets.length(); i++)
+            n += buckets.get(i);
+        if (n == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return Math.min(getBucketMaxValue(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Records a value; negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.min(Math.max(value, 0), MAX_VALUE);
+        buckets.incrementAndGet(getBucketIndex(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+}
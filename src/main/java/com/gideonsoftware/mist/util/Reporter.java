@@ -0,0 +1,54 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+/**
+ * Reports errors and information to the user.
+ * <p>
+ * In the normal (GUI) mode, these are shown as dialogs; in headless mode, they are written to the console.
+ *
+ * @see Util#setReporter(Reporter)
+ */
+public interface Reporter {
+
+    /**
+     * Reports an error to the user. May be called from any thread.
+     *
+     * @param title
+     *            the title of the error
+     * @param msg
+     *            the error message
+     * @param e
+     *            the exception that caused the error; may be null
+     */
+    public void reportError(String title, String msg, Throwable e);
+
+    /**
+     * Reports information to the user. May be called from any thread.
+     *
+     * @param title
+     *            the title of the information
+     * @param msg
+     *            the information message
+     */
+    public void reportInfo(String title, String msg);
+
+}
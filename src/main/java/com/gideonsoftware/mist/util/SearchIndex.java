@@ -0,0 +1,376 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An in-memory index for finding items from what the user types (e.g. contacts by name or email address), ranked
+ * best match first.
+ * <p>
+ * Each item's texts are split into lowercase tokens at anything that isn't a letter or digit. Every token typed has to
+ * match one of an item's tokens: exactly, as a prefix, or (for tokens of three or more characters) approximately, so
+ * small typos (including swapped letters) still find the item. Tokens that share a trigram with the typed token are
+ * matched approximately if few enough edits turn one into the other. Exact matches score more than prefix matches,
+ * which score more than approximate ones; each text's matches are multiplied by its weight (e.g. so names count for
+ * more than email addresses), and callers can add a boost of their own to each item's score.
+ * <p>
+ * Prefixes are found with a binary search over the sorted tokens, and each token's items are kept in flat arrays, so a
+ * search takes a few milliseconds even with tens of thousands of items. The index is built on the first search after
+ * items are added (or by {@link #build()}). Not thread-safe, though once built, an index that no more items are added
+ * to can be searched from several threads at once.
+ *
+ * @param <T>
+ *            the type of item
+ */
+public class SearchIndex<T> {
+    private final static float EXACT_SCORE = 3;
+    private final static float PREFIX_SCORE = 2;
+
+    /**
+     * Minimum similarity (one less the share of the longer token's characters that have to be edited) for an
+     * approximate match; its score is the similarity (so always less than a prefix match's)
+     */
+    private final static float MIN_SIMILARITY = 0.6f;
+
+    /**
+     * Shortest token that can be matched approximately
+     */
+    private final static int MIN_APPROXIMATE_LENGTH = 3;
+
+    private final List<T> items = new ArrayList<T>();
+    private final Map<T, Integer> itemIndexes = new HashMap<T, Integer>();
+
+    // Tokens added since the index was last built, as parallel lists of (token, item index, weight)
+    private final List<String> addedTokens = new ArrayList<String>();
+    private final List<Integer> addedItems = new ArrayList<Integer>();
+    private final List<Float> addedWeights = new ArrayList<Float>();
+    private boolean built = false;
+
+    // The built index: sorted tokens, and each token's items and weights (from postingStarts[t] to postingStarts[t+1])
+    private String[] tokens = new String[0];
+    private int[] postingStarts = new int[] { 0 };
+    private int[] postingItems = new int[0];
+    private float[] postingWeights = new float[0];
+
+    /**
+     * Indexes of the tokens (of MIN_APPROXIMATE_LENGTH or more characters) with each trigram
+     */
+    private Map<String, int[]> tokensByTrigram = new HashMap<String, int[]>();
+
+    /**
+     * Returns the number of characters that have to be inserted, deleted, replaced or swapped with the next one to
+     * turn one token into the other.
+     */
+    private static int editDistance(String a, String b) {
+        int[][] distances = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            distances[i][0] = i;
+        for (int j = 0; j <= b.length(); j++)
+            distances[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(
+                    Math.min(distances[i - 1][j] + 1, distances[i][j - 1] + 1),
+                    distances[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    distance = Math.min(distance, distances[i - 2][j - 2] + 1);
+                distances[i][j] = distance;
+            }
+        }
+        return distances[a.length()][b.length()];
+    }
+
+    /**
+     * Splits the text into lowercase tokens at anything that isn't a letter or digit.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        if (text == null)
+            return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start == -1) {
+                start = i;
+            } else if (!tokenChar && start != -1) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the token's trigrams, with its start and end marked (so a token of n characters has n trigrams).
+     */
+    private static List<String> trigrams(String token) {
+        String marked = "^" + token + "$";
+        List<String> trigrams = new ArrayList<String>(token.length());
+        for (int i = 0; i + 3 <= marked.length(); i++)
+            trigrams.add(marked.substring(i, i + 3));
+        return trigrams;
+    }
+
+    /**
+     * Adds text to search for the item by. An item can be added with several texts (e.g. a name and an email address).
+     *
+     * @param item
+     *            the item
+     * @param text
+     *            the text; null is ignored
+     * @param weight
+     *            how much matches on this text count for
+     */
+    public void add(T item, String text, float weight) {
+        Integer index = itemIndexes.get(item);
+        if (index == null) {
+            index = items.size();
+            items.add(item);
+            itemIndexes.put(item, index);
+        }
+        for (String token : tokenize(text)) {
+            addedTokens.add(token);
+            addedItems.add(index);
+            addedWeights.add(weight);
+        }
+        built = false;
+    }
+
+    /**
+     * Builds the index from the tokens added so far, if it hasn't been already.
+     */
+    public void build() {
+        if (built)
+            return;
+
+        // Group the tokens (with those already built) by token
+        Map<String, List<Integer>> postings = new HashMap<String, List<Integer>>(); // Positions in the lists below
+        List<String> allTokens = new ArrayList<String>();
+        List<Integer> allItems = new ArrayList<Integer>();
+        List<Float> allWeights = new ArrayList<Float>();
+        for (int t = 0; t < tokens.length; t++) {
+            for (int p = postingStarts[t]; p < postingStarts[t + 1]; p++) {
+                allTokens.add(tokens[t]);
+                allItems.add(postingItems[p]);
+                allWeights.add(postingWeights[p]);
+            }
+        }
+        allTokens.addAll(addedTokens);
+        allItems.addAll(addedItems);
+        allWeights.addAll(addedWeights);
+        for (int i = 0; i < allTokens.size(); i++)
+            postings.computeIfAbsent(allTokens.get(i), key -> new ArrayList<Integer>()).add(i);
+
+        tokens = postings.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+        postingStarts = new int[tokens.length + 1];
+        int[] items = new int[allTokens.size()];
+        float[] weights = new float[allTokens.size()];
+        int count = 0;
+        int[] itemTokens = new int[this.items.size()]; // Token (+ 1) each item was last seen with
+        int[] itemPostings = new int[this.items.size()]; // ...and its posting for that token
+        tokensByTrigram = new HashMap<String, int[]>();
+        Map<String, List<Integer>> trigramTokens = new HashMap<String, List<Integer>>();
+        for (int t = 0; t < tokens.length; t++) {
+            postingStarts[t] = count;
+            for (int position : postings.get(tokens[t])) {
+                int item = allItems.get(position);
+                float weight = allWeights.get(position);
+
+                // An item with the token in several texts keeps its best weight
+                if (itemTokens[item] == t + 1) {
+                    int previous = itemPostings[item];
+                    weights[previous] = Math.max(weights[previous], weight);
+                } else {
+                    itemTokens[item] = t + 1;
+                    itemPostings[item] = count;
+                    items[count] = item;
+                    weights[count++] = weight;
+                }
+            }
+            if (tokens[t].length() >= MIN_APPROXIMATE_LENGTH)
+                for (String trigram : trigrams(tokens[t]))
+                    trigramTokens.computeIfAbsent(trigram, key -> new ArrayList<Integer>()).add(t);
+        }
+        postingStarts[tokens.length] = count;
+        postingItems = Arrays.copyOf(items, count);
+        postingWeights = Arrays.copyOf(weights, count);
+        for (Map.Entry<String, List<Integer>> entry : trigramTokens.entrySet())
+            tokensByTrigram.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+
+        addedTokens.clear();
+        addedItems.clear();
+        addedWeights.clear();
+        built = true;
+    }
+
+    /**
+     * Removes all items from the index.
+     */
+    public void clear() {
+        items.clear();
+        itemIndexes.clear();
+        addedTokens.clear();
+        addedItems.clear();
+        addedWeights.clear();
+        tokens = new String[0];
+        postingStarts = new int[] { 0 };
+        postingItems = new int[0];
+        postingWeights = new float[0];
+        tokensByTrigram = new HashMap<String, int[]>();
+        built = true;
+    }
+
+    /**
+     * Returns the index of the first token that doesn't sort before the specified token.
+     */
+    private int lowerBound(String token) {
+        int index = Arrays.binarySearch(tokens, token);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Records the matches of the specified token (with the specified score) as the best so far for each of its items,
+     * adding items that hadn't matched yet to the touched items.
+     *
+     * @return the new number of touched items
+     */
+    private int matchToken(int tokenIndex, float score, float[] best, int[] touched, int touchedCount) {
+        for (int p = postingStarts[tokenIndex]; p < postingStarts[tokenIndex + 1]; p++) {
+            int item = postingItems[p];
+            float weighted = score * postingWeights[p];
+            if (best[item] == 0)
+                touched[touchedCount++] = item;
+            if (weighted > best[item])
+                best[item] = weighted;
+        }
+        return touchedCount;
+    }
+
+    /**
+     * Searches for the items that match every token in the query, best match first. Items with the same score are
+     * returned in the order they were added.
+     *
+     * @param query
+     *            the text to search for
+     * @param limit
+     *            the maximum number of items to return
+     * @param boost
+     *            added to each matching item's score (e.g. to rank items the user is more likely to want higher); may
+     *            be null
+     * @return the matching items, best first; empty if the query has no tokens
+     */
+    public List<T> search(String query, int limit, ToDoubleFunction<? super T> boost) {
+        build();
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+
+        float[] total = new float[items.size()];
+        int[] tokensMatched = new int[items.size()];
+        float[] best = new float[items.size()];
+        int[] touched = new int[items.size()]; // Items that have matched the current token
+        int[] matched = new int[items.size()]; // Items that have matched every token so far
+        int matchedCount = 0;
+        boolean[] candidate = new boolean[tokens.length]; // Tokens already found for an approximate match
+        for (int q = 0; q < queryTokens.size(); q++) {
+            String queryToken = queryTokens.get(q);
+            int touchedCount = 0;
+
+            // Exact and prefix matches
+            for (int t = lowerBound(queryToken); t < tokens.length && tokens[t].startsWith(queryToken); t++) {
+                float score = tokens[t].length() == queryToken.length() ? EXACT_SCORE : PREFIX_SCORE;
+                touchedCount = matchToken(t, score, best, touched, touchedCount);
+            }
+
+            // Approximate matches (tokens that share a trigram and are few enough edits away)
+            if (queryToken.length() >= MIN_APPROXIMATE_LENGTH) {
+                List<Integer> candidates = new ArrayList<Integer>();
+                for (String trigram : trigrams(queryToken)) {
+                    int[] trigramTokens = tokensByTrigram.get(trigram);
+                    if (trigramTokens == null)
+                        continue;
+                    for (int t : trigramTokens)
+                        if (!candidate[t]) {
+                            candidate[t] = true;
+                            candidates.add(t);
+                        }
+                }
+                for (int t : candidates) {
+                    candidate[t] = false;
+                    int length = Math.max(queryToken.length(), tokens[t].length());
+                    if (Math.abs(queryToken.length() - tokens[t].length()) > length * (1 - MIN_SIMILARITY))
+                        continue; // Too many characters would have to be inserted or deleted
+                    float similarity = 1 - (float) editDistance(queryToken, tokens[t]) / length;
+                    if (similarity >= MIN_SIMILARITY && similarity < 1)
+                        touchedCount = matchToken(t, similarity, best, touched, touchedCount);
+                }
+            }
+
+            // Only items that have matched every token so far are still in the running
+            matchedCount = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int item = touched[i];
+                if (tokensMatched[item] == q) {
+                    total[item] += best[item];
+                    tokensMatched[item]++;
+                    matched[matchedCount++] = item;
+                }
+                best[item] = 0;
+            }
+        }
+
+        // Keep the best matches (the worst of those at the head of the queue, so it's the one dropped)
+        double[] scores = new double[items.size()];
+        PriorityQueue<Integer> top = new PriorityQueue<Integer>(
+            limit + 1,
+            (a, b) -> scores[a] != scores[b] ? Double.compare(scores[a], scores[b]) : Integer.compare(b, a));
+        for (int i = 0; i < matchedCount; i++) {
+            int item = matched[i];
+            scores[item] = total[item] + (boost == null ? 0 : boost.applyAsDouble(items.get(item)));
+            if (top.size() == limit && top.comparator().compare(item, top.peek()) <= 0)
+                continue; // No better than the worst of the best so far
+            top.add(item);
+            if (top.size() > limit)
+                top.poll();
+        }
+
+        List<T> results = new ArrayList<T>(top.size());
+        while (!top.isEmpty())
+            results.add(items.get(top.poll()));
+        Collections.reverse(results);
+        return results;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+}
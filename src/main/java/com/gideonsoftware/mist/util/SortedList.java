@@ -0,0 +1,130 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A list that keeps its items sorted, finding where to add and look for items with a binary search. Items that sort
+ * the same are kept in the order they were added (a new item goes after its equals, just as {@link #setAll(Collection)}
+ * keeps them in the order given), and must not change in ways that affect their sort order while they're in the list.
+ * <p>
+ * Not thread-safe; views use it (on the UI thread) to back virtual tables, so rows can be found by index.
+ *
+ * @param <T>
+ *            the type of item
+ */
+public class SortedList<T> {
+    private final Comparator<? super T> comparator;
+    private final List<T> items = new ArrayList<T>();
+
+    public SortedList(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Adds the item in sorted order.
+     *
+     * @return the index at which the item was added
+     */
+    public int add(T item) {
+        int index = upperBound(item);
+        items.add(index, item);
+        return index;
+    }
+
+    public void clear() {
+        items.clear();
+    }
+
+    public boolean contains(T item) {
+        return indexOf(item) != -1;
+    }
+
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    /**
+     * Returns the index of the item (by {@link Object#equals(Object)}) among the items that sort the same as it, or -1
+     * if it isn't in the list.
+     */
+    public int indexOf(T item) {
+        for (int i = lowerBound(item); i < items.size() && comparator.compare(items.get(i), item) == 0; i++)
+            if (items.get(i).equals(item))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first item that doesn't sort before the specified item.
+     */
+    private int lowerBound(T item) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(items.get(mid), item) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    public T remove(int index) {
+        return items.remove(index);
+    }
+
+    /**
+     * Replaces the items in the list with the specified items (sorting them all at once; items that sort the same stay
+     * in the order given).
+     */
+    public void setAll(Collection<? extends T> newItems) {
+        items.clear();
+        items.addAll(newItems);
+        items.sort(comparator);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns the index of the first item that sorts after the specified item.
+     */
+    private int upperBound(T item) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(items.get(mid), item) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+}
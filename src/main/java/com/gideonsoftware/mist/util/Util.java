@@ -20,31 +20,23 @@
 
 package com.gideonsoftware.mist.util;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.MultiStatus;
-import org.eclipse.core.runtime.Status;
-import org.eclipse.jface.dialogs.ErrorDialog;
 import org.eclipse.jface.operation.IRunnableWithProgress;
-import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.MessageBox;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.EmailServerException;
 import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.util.ui.DialogReporter;
 import com.gideonsoftware.mist.util.ui.MistProgressMonitorDialog;
 
 class EmailConnectionRunnable implements IRunnableWithProgress {
@@ -72,6 +64,8 @@ class EmailConnectionRunnable implements IRunnableWithProgress {
 public class Util {
     private static Logger log = LogManager.getLogger();
 
+    private static volatile Reporter reporter = new DialogReporter();
+
     /**
      * Add pattern matches in string to the specified list.
      * TODO: write test
@@ -104,6 +98,16 @@ public class Util {
         if (emailServer == null)
             return;
 
+        if (MIST.isHeadless()) {
+            try {
+                emailServer.connect();
+            } catch (EmailServerException e) {
+                String msg = String.format("Unable to connect to email account '%s'.", emailServer.getNickname());
+                reportError("Email connection failed", msg, e);
+            }
+            return;
+        }
+
         Display.getDefault().syncExec(new Runnable() {
             @Override
             public void run() {
@@ -135,6 +139,15 @@ public class Util {
         if (TntDb.isConnected())
             return;
 
+        if (MIST.isHeadless()) {
+            try {
+                TntDb.connect(true);
+            } catch (TntDbException e) {
+                reportError("TntConnect database connection failure", "Unable to connect to TntConnect database.", e);
+            }
+            return;
+        }
+
         try {
             MistProgressMonitorDialog dialog = new MistProgressMonitorDialog(Display.getDefault().getActiveShell());
             dialog.setTitle("Connecting");
@@ -160,6 +173,10 @@ public class Util {
         }
     }
 
+    public static Reporter getReporter() {
+        return reporter;
+    }
+
     /**
      * Increment the integer at the specified preference by the specified amount
      * 
@@ -173,61 +190,41 @@ public class Util {
     }
 
     /**
-     * Shows JFace ErrorDialog but improved by constructing full stack trace in detail area.
+     * Reports an error to the user via the current reporter.
      * 
-     * @see https://stackoverflow.com/a/9404081
+     * @see #setReporter(Reporter)
      */
     public static void reportError(String title, String msg) {
         reportError(title, msg, null);
     }
 
     /**
-     * Shows JFace ErrorDialog but improved by constructing full stack trace in detail area.
+     * Reports an error to the user via the current reporter. May be called from any thread.
      * 
-     * @see https://stackoverflow.com/a/9404081
+     * @see #setReporter(Reporter)
      */
     public static void reportError(String title, String msg, Throwable e) {
+        reporter.reportError(title, msg, e);
+    }
 
-        if (e == null) {
-            // First log the error, if possible
-            if (log != null)
-                log.error(String.format("%s: %s", title, msg));
-            // No throwable, so use simple MessageBox rather than ErrorDialog
-            MessageBox msgBox = new MessageBox(Display.getDefault().getActiveShell(), SWT.ICON_ERROR | SWT.OK);
-            msgBox.setText(title);
-            msgBox.setMessage(msg);
-            msgBox.open();
-            return;
-        }
-
-        // First log the error, if possible
-        if (log != null)
-            log.error(String.format("%s: %s", title, msg), e);
-
-        StringWriter stringWriter = new StringWriter();
-        PrintWriter printWriter = new PrintWriter(stringWriter);
-        e.printStackTrace(printWriter);
-
-        final String trace = stringWriter.toString(); // stack trace as a string
-
-        List<Status> childStatuses = new ArrayList<>();
-
-        // Split output by OS-independent new-line
-        for (String line : trace.split(System.lineSeparator())) {
-            // build & add status
-            childStatuses.add(new Status(IStatus.ERROR, MIST.APP_NAME, line));
-        }
-
-        // convert to array of statuses
-        String localizedMessage = e.getLocalizedMessage() == null ? e.toString() : e.getLocalizedMessage();
-        MultiStatus ms = new MultiStatus(
-            MIST.APP_NAME,
-            IStatus.ERROR,
-            childStatuses.toArray(new Status[] {}),
-            localizedMessage,
-            e);
+    /**
+     * Reports information to the user via the current reporter. May be called from any thread.
+     * 
+     * @see #setReporter(Reporter)
+     */
+    public static void reportInfo(String title, String msg) {
+        reporter.reportInfo(title, msg);
+    }
 
-        Display.getDefault().syncExec(() -> ErrorDialog.openError(null, title, msg, ms));
+    /**
+     * Sets the reporter used to report errors and information to the user (by default, a {@link DialogReporter}).
+     * 
+     * @param reporter
+     *            the reporter to use
+     */
+    public static void setReporter(Reporter reporter) {
+        log.trace("setReporter({})", reporter);
+        Util.reporter = reporter;
     }
 
 }
@@ -0,0 +1,107 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util.ui;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.dialogs.ErrorDialog;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.MessageBox;
+
+import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.util.Reporter;
+
+/**
+ * Reports errors and information in dialogs. Errors are shown synchronously (on the UI thread); information is shown
+ * asynchronously.
+ */
+public class DialogReporter implements Reporter {
+    private static Logger log = LogManager.getLogger();
+
+    /**
+     * Shows JFace ErrorDialog but improved by constructing full stack trace in detail area.
+     *
+     * @see https://stackoverflow.com/a/9404081
+     */
+    @Override
+    public void reportError(String title, String msg, Throwable e) {
+
+        if (e == null) {
+            // First log the error
+            log.error(String.format("%s: %s", title, msg));
+            // No throwable, so use simple MessageBox rather than ErrorDialog
+            Display.getDefault().syncExec(() -> {
+                MessageBox msgBox = new MessageBox(Display.getDefault().getActiveShell(), SWT.ICON_ERROR | SWT.OK);
+                msgBox.setText(title);
+                msgBox.setMessage(msg);
+                msgBox.open();
+            });
+            return;
+        }
+
+        // First log the error
+        log.error(String.format("%s: %s", title, msg), e);
+
+        StringWriter stringWriter = new StringWriter();
+        PrintWriter printWriter = new PrintWriter(stringWriter);
+        e.printStackTrace(printWriter);
+
+        final String trace = stringWriter.toString(); // stack trace as a string
+
+        List<Status> childStatuses = new ArrayList<>();
+
+        // Split output by OS-independent new-line
+        for (String line : trace.split(System.lineSeparator())) {
+            // build & add status
+            childStatuses.add(new Status(IStatus.ERROR, MIST.APP_NAME, line));
+        }
+
+        // convert to array of statuses
+        String localizedMessage = e.getLocalizedMessage() == null ? e.toString() : e.getLocalizedMessage();
+        MultiStatus ms = new MultiStatus(
+            MIST.APP_NAME,
+            IStatus.ERROR,
+            childStatuses.toArray(new Status[] {}),
+            localizedMessage,
+            e);
+
+        Display.getDefault().syncExec(() -> ErrorDialog.openError(null, title, msg, ms));
+    }
+
+    @Override
+    public void reportInfo(String title, String msg) {
+        log.info(String.format("%s: %s", title, msg));
+        Display.getDefault().asyncExec(() -> {
+            MessageDialog.openInformation(MIST.getView().getShell(), title, msg);
+        });
+    }
+
+}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,12 +44,30 @@ import org.eclipse.swt.widgets.Composite;
  * <ul>
  * <li>auto-selecting of items as the user types in the text box</li>
  * <li>can return a templated item ({@link getSelectedItem()} ) instead of only indexes</i>
+ * <li>can show ranked suggestions from a searcher (see {@link #setSearcher(Function)}) instead of all of its items,
+ * for lists too long to scroll through</li>
  * </ul>
  */
 public class SmartCombo<T> extends Composite {
     private static Logger log = LogManager.getLogger();
 
+    /**
+     * The items in the combo box, and their values (lowercase, for matching what the user types)
+     */
     private List<T> items = new ArrayList<T>();
+    private List<String> lowerValues = new ArrayList<String>();
+
+    /**
+     * All items added, with their values; the combo box shows all of these unless it's showing suggestions
+     */
+    private List<T> allItems = new ArrayList<T>();
+    private Map<T, String> values = new HashMap<T, String>();
+    private boolean showingSuggestions = false;
+
+    /**
+     * Finds the items to suggest for the text the user has typed, best first; null if all items are always shown
+     */
+    private Function<String, List<T>> searcher = null;
 
     /**
      * The underlying combo box
@@ -93,14 +112,17 @@ public class SmartCombo<T> extends Composite {
     public boolean add(T item, String value) {
         // log.trace("add({},{})", item, value);
         // items must be unique
-        if (items.contains(item))
+        if (values.containsKey(item))
             return false;
 
-        if (items.add(item)) {
+        allItems.add(item);
+        values.put(item, value);
+        if (!showingSuggestions) {
+            items.add(item);
+            lowerValues.add(value.toLowerCase());
             combo.add(value);
-            return true;
         }
-        return false;
+        return true;
     }
 
     @Override
@@ -124,15 +146,26 @@ public class SmartCombo<T> extends Composite {
     public boolean autoComplete() {
         // log.trace("autoComplete()");
         // Get the lowercase version of the text
-        String lowerText = combo.getText().toLowerCase();
+        String text = combo.getText();
+        String lowerText = text.toLowerCase();
+
+        // Show what the searcher suggests (or everything, if nothing has been typed)
+        if (searcher != null) {
+            if (text.isBlank())
+                showItems(allItems, false);
+            else
+                showItems(searcher.apply(text), true);
+            combo.setText(text); // Changing the items may have changed it
+            combo.setSelection(new Point(text.length(), text.length()));
+        }
 
         // Search the list of items for the typed text
         for (int i = 0; i < items.size(); i++) {
-            if (combo.getItem(i).toLowerCase().startsWith(lowerText)) {
+            if (lowerValues.get(i).startsWith(lowerText)) {
                 // If found, select it from the list
                 combo.select(i);
                 // And highlight the rest of the text
-                combo.setSelection(new Point(lowerText.length(), combo.getItem(i).length()));
+                combo.setSelection(new Point(lowerText.length(), lowerValues.get(i).length()));
                 // Then break from the for loop
                 return true;
             }
@@ -147,10 +180,7 @@ public class SmartCombo<T> extends Composite {
 
     public Map<T, String> getItemsMap() {
         // log.trace("getItemsMap()");
-        Map<T, String> map = new HashMap<T, String>();
-        for (int i = 0; i < items.size(); i++)
-            map.put(items.get(i), combo.getItem(i));
-        return map;
+        return new HashMap<T, String>(values);
     }
 
     public int getSelectionIndex() {
@@ -185,6 +215,10 @@ public class SmartCombo<T> extends Composite {
     public void removeAll() {
         combo.removeAll();
         items = new ArrayList<T>();
+        lowerValues = new ArrayList<String>();
+        allItems = new ArrayList<T>();
+        values = new HashMap<T, String>();
+        showingSuggestions = false;
     }
 
     /**
@@ -196,6 +230,8 @@ public class SmartCombo<T> extends Composite {
      */
     public boolean select(T item) {
         log.trace("select([{}|{}])", getSelectionItem(), getSelectionValue());
+        if (showingSuggestions && !items.contains(item))
+            showItems(allItems, false);
         for (int i = 0; i < items.size(); i++) {
             // Special case of null item
             if (item == null && items.get(i) == null) {
@@ -216,6 +252,17 @@ public class SmartCombo<T> extends Composite {
         combo.setEnabled(enabled);
     }
 
+    /**
+     * Sets a searcher, so the combo box shows the items it suggests for the text the user types (best first) instead
+     * of all of its items.
+     *
+     * @param searcher
+     *            finds the items to suggest for the text typed, best first; only items that have been added are shown
+     */
+    public void setSearcher(Function<String, List<T>> searcher) {
+        this.searcher = searcher;
+    }
+
     public void setSelection(Point point) {
         combo.setSelection(point);
     }
@@ -225,6 +272,25 @@ public class SmartCombo<T> extends Composite {
         autoComplete();
     }
 
+    /**
+     * Replaces the items shown in the combo box (all at once, which is much faster than adding them one at a time).
+     */
+    private void showItems(List<T> shownItems, boolean suggestions) {
+        items = new ArrayList<T>(shownItems.size());
+        lowerValues = new ArrayList<String>(shownItems.size());
+        List<String> shownValues = new ArrayList<String>(shownItems.size());
+        for (T item : shownItems) {
+            String value = values.get(item);
+            if (value == null)
+                continue; // Not added
+            items.add(item);
+            lowerValues.add(value.toLowerCase());
+            shownValues.add(value);
+        }
+        combo.setItems(shownValues.toArray(new String[0]));
+        showingSuggestions = suggestions;
+    }
+
     /**
      * Handles the event that a key is pressed in the combo.
      * Performs a search as the user is typing, highlighting as it matches.
@@ -243,7 +309,9 @@ public class SmartCombo<T> extends Composite {
             if (e.character == '\b')
                 return;
 
-            autoComplete();
+            // Show the suggestions if none of them start with the text typed
+            if (!autoComplete() && showingSuggestions && !items.isEmpty())
+                combo.setListVisible(true);
         }
     }
 
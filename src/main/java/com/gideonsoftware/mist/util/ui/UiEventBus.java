@@ -0,0 +1,152 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util.ui;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+
+import com.gideonsoftware.mist.model.EmailModel;
+import com.gideonsoftware.mist.model.HistoryModel;
+import com.gideonsoftware.mist.model.MessageModel;
+import com.gideonsoftware.mist.model.MetricsModel;
+
+/**
+ * Delivers model changes (from HistoryModel, MessageModel, EmailModel and MetricsModel) to views on the UI thread, in
+ * batches at a bounded frame rate.
+ * <p>
+ * Models fire their changes on whichever thread made them (usually an import thread). The bus just queues them, so
+ * that thread never waits for the UI; at most once a frame, the queued changes are delivered to listeners in the order
+ * they were fired, followed by {@link #PROP_EVENTS_DELIVERED} (so views can redraw once per frame rather than once per
+ * change). Changes that only say "something has changed" (e.g. {@link MessageModel#PROP_MESSAGE_NEXT}) are coalesced:
+ * only the last one in each frame is delivered.
+ */
+public class UiEventBus {
+    private static Logger log = LogManager.getLogger();
+
+    // Property change values
+    private final static PropertyChangeSupport pcs = new PropertyChangeSupport(UiEventBus.class);
+    public final static String PROP_EVENTS_DELIVERED = "uieventbus.events.delivered";
+
+    /**
+     * Minimum time between deliveries
+     */
+    public final static int FRAME_MILLIS = 100;
+
+    /**
+     * Changes that listeners only use as a cue to refresh from the model, so only the latest in each frame is needed
+     */
+    private final static Set<String> LATEST_ONLY = Set.of(
+        MessageModel.PROP_MESSAGE_ADD,
+        MessageModel.PROP_MESSAGE_INIT,
+        MessageModel.PROP_MESSAGE_NEXT);
+
+    private final static Queue<PropertyChangeEvent> pendingEvents = new ConcurrentLinkedQueue<PropertyChangeEvent>();
+    private final static AtomicBoolean deliveryScheduled = new AtomicBoolean(false);
+
+    static {
+        PropertyChangeListener queueListener = UiEventBus::queueEvent;
+        HistoryModel.addPropertyChangeListener(queueListener);
+        MessageModel.addPropertyChangeListener(queueListener);
+        EmailModel.addPropertyChangeListener(queueListener);
+        MetricsModel.addPropertyChangeListener(queueListener);
+    }
+
+    /**
+     * No instantiation allowed!
+     */
+    private UiEventBus() {
+    }
+
+    /**
+     * Adds a listener for model changes, which are delivered on the UI thread.
+     */
+    public static void addPropertyChangeListener(PropertyChangeListener listener) {
+        log.trace("addPropertyChangeListener({})", listener);
+        pcs.addPropertyChangeListener(listener);
+    }
+
+    /**
+     * Delivers the queued changes (on the UI thread).
+     */
+    private static void deliverEvents() {
+        // Changes queued from here on are delivered in the next frame
+        deliveryScheduled.set(false);
+
+        List<PropertyChangeEvent> events = new ArrayList<PropertyChangeEvent>();
+        PropertyChangeEvent event;
+        while ((event = pendingEvents.poll()) != null)
+            events.add(event);
+        if (events.isEmpty())
+            return;
+
+        // Keep only the last of each "latest only" change (working backwards, so the order is otherwise unchanged)
+        List<PropertyChangeEvent> delivered = new ArrayList<PropertyChangeEvent>(events.size());
+        Set<String> latestSeen = new HashSet<String>();
+        for (int i = events.size() - 1; i >= 0; i--) {
+            String name = events.get(i).getPropertyName();
+            if (!LATEST_ONLY.contains(name) || latestSeen.add(name))
+                delivered.add(events.get(i));
+        }
+        Collections.reverse(delivered);
+        log.trace("deliverEvents() -- {} of {} event(s)", delivered.size(), events.size());
+
+        for (PropertyChangeEvent deliveredEvent : delivered)
+            pcs.firePropertyChange(deliveredEvent);
+        pcs.firePropertyChange(PROP_EVENTS_DELIVERED, null, delivered.size());
+    }
+
+    /**
+     * Queues a model change for delivery, scheduling a delivery if one isn't already due. Never blocks.
+     */
+    private static void queueEvent(PropertyChangeEvent event) {
+        pendingEvents.add(event);
+        if (!deliveryScheduled.compareAndSet(false, true))
+            return;
+
+        Display display = Display.getDefault();
+        try {
+            if (!display.isDisposed())
+                display.asyncExec(() -> display.timerExec(FRAME_MILLIS, UiEventBus::deliverEvents));
+        } catch (SWTException e) {
+            // The display was disposed in the meantime; there's no UI to update
+        }
+    }
+
+    public static void removePropertyChangeListener(PropertyChangeListener listener) {
+        log.trace("removePropertyChangeListener({})", listener);
+        pcs.removePropertyChangeListener(listener);
+    }
+
+}
@@ -44,6 +44,8 @@ import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.model.HistoryModel;
 import com.gideonsoftware.mist.tntapi.ContactManager;
 import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.entities.Contact;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
 import com.gideonsoftware.mist.util.Util;
@@ -68,6 +70,8 @@ public class ContactDetailsView extends Composite implements PropertyChangeListe
     private Label phaseLabel;
     private Label pledgeLabel;
     private Label lastGiftLabel;
+    private Button findEmailsButton;
+    private Contact contact = null;
 
     public ContactDetailsView(Composite parent) {
         super(parent, SWT.NONE);
@@ -138,15 +142,34 @@ public class ContactDetailsView extends Composite implements PropertyChangeListe
         new Label(knownContactView, SWT.NONE).setText("Last gift: ");
         lastGiftLabel = new Label(knownContactView, SWT.NONE);
 
+        // Find Older Emails button
+        findEmailsButton = new Button(knownContactView, SWT.PUSH);
+        findEmailsButton.setText("Find Older Emails");
+        findEmailsButton.setImage(Images.getImage(Images.ICON_IMPORT_START));
+        findEmailsButton.setToolTipText("Search your email servers for this contact's messages and import them");
+        findEmailsButton.setEnabled(false);
+        applyGridData(findEmailsButton).horizontalSpan(2);
+
         // Start with known contact view
         contactDetailsLayout.topControl = knownContactView;
         contactDetailsGroup.layout();
     }
 
+    /**
+     * Returns the selected contact, or null if no known contact is selected.
+     */
+    public Contact getContact() {
+        return contact;
+    }
+
     public ContactInfo getContactInfo() {
         return contactInfo;
     }
 
+    public Button getFindEmailsButton() {
+        return findEmailsButton;
+    }
+
     public Button getIgnoreContactButton() {
         return ignoreContactButton;
     }
@@ -164,6 +187,8 @@ public class ContactDetailsView extends Composite implements PropertyChangeListe
         if (ContactsView.PROP_CONTACT_SELECTED.equals(event.getPropertyName())) {
             // A new contact has been selected
             contactInfo = (ContactInfo) event.getNewValue();
+            contact = null;
+            findEmailsButton.setEnabled(false);
 
             if (contactInfo.getId() == null) {
                 // Unknown contact; show unknown contact view
@@ -177,13 +202,17 @@ public class ContactDetailsView extends Composite implements PropertyChangeListe
                 contactDetailsGroup.layout();
                 // Fill in data
                 try {
-                    Contact contact = ContactManager.get(contactInfo.getId());
-                    phaseLabel.setText(TntDb.getMpdPhaseDescription(contact.getMpdPhaseId()));
+                    int contactId = contactInfo.getId();
+                    contact = TntDbExecutor.callRead(Priority.INTERACTIVE, () -> ContactManager.get(contactId));
+                    int phaseId = contact.getMpdPhaseId();
+                    phaseLabel.setText(
+                        TntDbExecutor.callRead(Priority.INTERACTIVE, () -> TntDb.getMpdPhaseDescription(phaseId)));
                     pledgeLabel.setText(contact.getPledgeStr());
                     lastGiftLabel.setText(contact.getLastGiftStr());
                     phaseLabel.requestLayout();
                     lastGiftLabel.requestLayout();
                     pledgeLabel.requestLayout();
+                    findEmailsButton.setEnabled(contact.getEmails(true, true).length > 0);
                     contactDetailsGroup.layout();
                 } catch (TntDbException | SQLException e) {
                     Util.reportError("Database connection error", "Could not load contact", e);
@@ -197,6 +226,8 @@ public class ContactDetailsView extends Composite implements PropertyChangeListe
             contactDetailsLayout.topControl = knownContactView;
             contactDetailsGroup.layout();
             // Clear data
+            contact = null;
+            findEmailsButton.setEnabled(false);
             phaseLabel.setText("");
             pledgeLabel.setText("");
             lastGiftLabel.setText("");
@@ -26,7 +26,9 @@ import static com.gideonsoftware.mist.util.ui.GridLayoutUtil.applyGridLayout;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,14 +38,16 @@ import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Group;
-import org.eclipse.swt.widgets.List;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.model.HistoryModel;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
 import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.SortedList;
+import com.gideonsoftware.mist.util.ui.UiEventBus;
 
 public class ContactsView extends Composite implements PropertyChangeListener {
     private static Logger log = LogManager.getLogger();
@@ -60,25 +64,34 @@ public class ContactsView extends Composite implements PropertyChangeListener {
     private int unmatchedContactFound = 0;
 
     /**
-     * The list of contacts that have associated history.
+     * The list of contacts that have associated history (a virtual table; rows are filled in from contacts as they're
+     * shown).
      */
-    protected org.eclipse.swt.widgets.List contactList = null;
+    protected Table contactList = null;
 
     /**
-     * A list of all contacts who had history added to Tnt.
+     * All contacts who had history added to Tnt, in the order they're listed (natural string sort of their names, so
+     * unmatched contacts come first). These are copies, since a history's contact info can change (e.g. when the
+     * contact is matched).
      */
-    private java.util.List<ContactInfo> contacts = new ArrayList<ContactInfo>();
+    private SortedList<ContactInfo> contacts = new SortedList<ContactInfo>(
+        Comparator.comparing(ContactsView::getListName));
+
+    /**
+     * The listed contacts, by contact (so a contact's history can be found in the list whatever name it has)
+     */
+    private Map<ContactInfo, ContactInfo> listedContacts = new HashMap<ContactInfo, ContactInfo>();
 
     public ContactsView(Composite parent) {
         super(parent, SWT.NONE);
         log.trace("ContactsView({})", parent);
 
-        HistoryModel.addPropertyChangeListener(this);
+        UiEventBus.addPropertyChangeListener(this);
         addDisposeListener(new DisposeListener() {
             @Override
             public void widgetDisposed(DisposeEvent e) {
                 log.trace("ContactsView.widgetDisposed()");
-                HistoryModel.removePropertyChangeListener(ContactsView.this);
+                UiEventBus.removePropertyChangeListener(ContactsView.this);
             }
         });
 
@@ -91,9 +104,16 @@ public class ContactsView extends Composite implements PropertyChangeListener {
         contactsGroup.setText("Contacts");
 
         // Contact list
-        contactList = new List(contactsGroup, SWT.BORDER | SWT.SINGLE | SWT.V_SCROLL);
+        contactList = new Table(
+            contactsGroup,
+            SWT.BORDER | SWT.SINGLE | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.VIRTUAL);
         applyGridData(contactList).withFill();
         oldSelectionIndex = -1;
+        contactList.addListener(SWT.SetData, event -> {
+            // Fill in a row as it's shown
+            TableItem item = (TableItem) event.item;
+            item.setText(getListName(contacts.get(event.index)));
+        });
         contactList.addSelectionListener(new SelectionAdapter() {
             @Override
             public void widgetSelected(SelectionEvent event) {
@@ -112,85 +132,82 @@ public class ContactsView extends Composite implements PropertyChangeListener {
         });
     }
 
+    /**
+     * Returns the contact's name as shown in the list (with unmatched contacts marked with '[?]').
+     */
+    private static String getListName(ContactInfo ci) {
+        return ci.getId() == null ? " [?] " + ci.getName() : ci.getName();
+    }
+
     public void addPropertyChangeListener(PropertyChangeListener listener) {
         log.trace("addPropertyChangeListener({})", listener);
         pcs.addPropertyChangeListener(listener);
     }
 
+    /**
+     * Handles model changes (delivered on the UI thread by the UI event bus).
+     */
     @Override
     public void propertyChange(PropertyChangeEvent event) {
         log.trace("propertyChange({})", event);
 
-        if (Display.getDefault().isDisposed() || contactList.isDisposed())
+        if (contactList.isDisposed())
             return;
 
         if (HistoryModel.PROP_HISTORY_INIT.equals(event.getPropertyName())) {
-            Display.getDefault().asyncExec(() -> {
-                // Initialize the contact list
-                contacts = new ArrayList<ContactInfo>();
-                contactList.removeAll();
-                oldSelectionIndex = -1;
-
-                // Force UI update (needed on Mac)
-                contactList.update();
-            });
+            // Initialize the contact list
+            contacts.clear();
+            listedContacts.clear();
+            contactList.removeAll();
+            oldSelectionIndex = -1;
 
         } // PROP_HISTORY_INIT
 
         else if (HistoryModel.PROP_HISTORY_ADD.equals(event.getPropertyName())) {
-            Display.getDefault().asyncExec(() -> {
-                // Get the new history item
-                History history = (History) event.getNewValue();
-
-                ContactInfo ci = history.getContactInfo();
-                String originalName = ci.getName();
-                if (ci.getId() == null) {
-                    ci.setName(" [?] " + ci.getName());
-                    // Show tip if need be (max once per session)
-                    if (unmatchedContactFound++ == 0)
-                        showUnmatchedContactTip();
-                }
-
-                // If this history item contains a contact not already in the list...
-                if (!contacts.contains(ci)) {
-                    // Add to our UI list in sorted order (natural string sort)
-                    int pos = 0;
-                    while (pos < contactList.getItemCount() && contactList.getItem(pos).compareTo(ci.getName()) < 0)
-                        pos++;
-                    contactList.add(ci.getName(), pos);
-
-                    // Add it to the contacts list (but without any [?], etc.)
-                    ci.setName(originalName);
-                    contacts.add(pos, ci);
+            // Get the new history item
+            History history = (History) event.getNewValue();
+
+            ContactInfo ci = history.getContactInfo();
+            if (ci.getId() == null) {
+                // Show tip if need be (max once per session)
+                if (unmatchedContactFound++ == 0)
+                    showUnmatchedContactTip();
+            }
 
-                    // Force UI update (needed on Mac)
-                    contactList.update();
-                }
-            });
+            // If this history item contains a contact not already in the list...
+            if (!listedContacts.containsKey(ci)) {
+                // Add to the contacts list in sorted order, and a row for it (filled in when it's shown)
+                ContactInfo listed = new ContactInfo(ci);
+                listedContacts.put(listed, listed);
+                int pos = contacts.add(listed);
+                new TableItem(contactList, SWT.NONE, pos);
+
+                // The selected row (if any) moves down with its contact
+                if (oldSelectionIndex >= pos)
+                    oldSelectionIndex++;
+            }
         } // PROP_HISTORY_ADD
 
         else if (HistoryModel.PROP_CONTACT_REMOVE.equals(event.getPropertyName())) {
-            Display.getDefault().asyncExec(() -> {
-                // Get the removed contact
-                ContactInfo ci = (ContactInfo) event.getNewValue();
-                String name = ci.getName();
-                if (ci.getId() == null)
-                    ci.setName(String.format(" [?] %s", name));
-
-                // Remove the associated contact
-                int index = contacts.indexOf(ci);
-                if (index != -1) { // And if not, they were already removed!
-                    contacts.remove(index);
-                    contactList.remove(index);
-                }
-
-                oldSelectionIndex = -1;
+            // Get the removed contact
+            ContactInfo ci = (ContactInfo) event.getNewValue();
+
+            // Remove the associated contact
+            ContactInfo listed = listedContacts.remove(ci);
+            if (listed != null) { // And if not, they were already removed!
+                int index = contacts.indexOf(listed);
+                contacts.remove(index);
+                contactList.remove(index);
+            }
 
-                // Force UI update (needed on Mac)
-                contactList.update();
-            });
+            oldSelectionIndex = -1;
 
         } // PROP_CONTACT_REMOVE
+
+        else if (UiEventBus.PROP_EVENTS_DELIVERED.equals(event.getPropertyName())) {
+            // Force UI update (needed on Mac), once per batch of changes
+            contactList.update();
+        }
     }
 
     public void removePropertyChangeListener(PropertyChangeListener listener) {
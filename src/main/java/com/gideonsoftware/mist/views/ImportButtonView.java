@@ -20,6 +20,8 @@
 
 package com.gideonsoftware.mist.views;
 
+import static com.gideonsoftware.mist.util.ui.GridDataUtil.applyGridData;
+import static com.gideonsoftware.mist.util.ui.GridDataUtil.onGridData;
 import static com.gideonsoftware.mist.util.ui.GridLayoutUtil.applyGridLayout;
 
 import java.beans.PropertyChangeEvent;
@@ -43,6 +45,7 @@ public class ImportButtonView extends Composite implements PropertyChangeListene
     private static Logger log = LogManager.getLogger();
 
     private Button importButton;
+    private Button restartButton;
 
     public ImportButtonView(Composite parent) {
         super(parent, SWT.NONE);
@@ -63,6 +66,15 @@ public class ImportButtonView extends Composite implements PropertyChangeListene
 
         // Create import button
         importButton = new Button(this, SWT.PUSH | SWT.CENTER);
+
+        // Create restart checkbox (only shown if an earlier import was interrupted)
+        restartButton = new Button(this, SWT.CHECK);
+        restartButton.setText("Start over from the &first message");
+        restartButton.setToolTipText(
+            "The last import was interrupted. By default, MIST continues where it left off.");
+        restartButton.setVisible(false);
+        applyGridData(restartButton).exclude(true);
+
         configureImportButton(false);
     }
 
@@ -81,6 +93,16 @@ public class ImportButtonView extends Composite implements PropertyChangeListene
             importButton.setImage(Images.getImage(Images.ICON_IMPORT_START));
         }
 
+        // Only offer to start over if there's an interrupted import to resume
+        boolean showRestart = !importing && EmailModel.hasImportCheckpoint();
+        if (restartButton.getVisible() != showRestart) {
+            restartButton.setVisible(showRestart);
+            restartButton.setSelection(false);
+            onGridData(restartButton).exclude(!showRestart);
+            layout(true);
+            getParent().layout(true);
+        }
+
         // Force UI update (needed on Mac)
         importButton.update();
     }
@@ -89,6 +111,10 @@ public class ImportButtonView extends Composite implements PropertyChangeListene
         return importButton;
     }
 
+    public Button getRestartButton() {
+        return restartButton;
+    }
+
     @Override
     public void propertyChange(PropertyChangeEvent event) {
         log.trace("propertyChange({})", event);
@@ -73,6 +73,7 @@ public class MainWindowView extends ApplicationWindow implements PropertyChangeL
     private MainMenuView mainMenuView = null;
     private MessageDetailsView messageDetailsView = null;
     private ProgressBarView progressBarView = null;
+    private StatsView statsView = null;
     private TaskItemView taskItemView = null;
 
     private TipManager tipManager = null;
@@ -183,6 +184,8 @@ public class MainWindowView extends ApplicationWindow implements PropertyChangeL
         applyGridData(messagesView).withFill();
         messageDetailsView = new MessageDetailsView(rightVerticalSash);
         applyGridData(messageDetailsView).withFill();
+        statsView = new StatsView(rightVerticalSash);
+        applyGridData(statsView).withFill();
 
         messageDetailsView.addPropertyChangeListener(messagesView); // Needs to be added after instantiation
         messagesView.addDisposeListener(new DisposeListener() {
@@ -194,7 +197,7 @@ public class MainWindowView extends ApplicationWindow implements PropertyChangeL
         });
 
         setSashFormWeightPrefData(leftRightSash, PREF_SASH_LEFTRIGHT_WEIGHTS, new int[] { 1, 3 });
-        setSashFormWeightPrefData(rightVerticalSash, PREF_SASH_RIGHTVERT_WEIGHTS, new int[] { 2, 3 });
+        setSashFormWeightPrefData(rightVerticalSash, PREF_SASH_RIGHTVERT_WEIGHTS, new int[] { 2, 3, 1 });
 
         getShell().pack();
         return mainComposite;
@@ -245,6 +248,10 @@ public class MainWindowView extends ApplicationWindow implements PropertyChangeL
         return rightVerticalSash;
     }
 
+    public StatsView getStatsView() {
+        return statsView;
+    }
+
     public TaskItemView getTaskItemView() {
         return taskItemView;
     }
@@ -300,6 +307,8 @@ public class MainWindowView extends ApplicationWindow implements PropertyChangeL
         log.trace("setSashFormWeightPrefData({},{},{})", sashForm, prefName, defaultWeights);
         MIST.getPrefs().setDefault(prefName, defaultWeights);
         int[] weights = MIST.getPrefs().getInts(prefName);
+        if (weights.length != defaultWeights.length)
+            weights = defaultWeights; // Saved before a pane was added (or removed)
         sashForm.setWeights(weights);
         // Note: this listener is never called; gave up tying! 2019-07-02 TJH
         sashForm.addMouseListener(new MouseAdapter() {
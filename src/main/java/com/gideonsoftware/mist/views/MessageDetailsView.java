@@ -26,6 +26,7 @@ import static com.gideonsoftware.mist.util.ui.GridLayoutUtil.applyGridLayout;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.concurrent.CompletionException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -44,7 +45,11 @@ import org.eclipse.swt.widgets.Text;
 
 import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.model.HistoryModel;
+import com.gideonsoftware.mist.tntapi.HistoryManager;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.Util;
 import com.gideonsoftware.mist.util.ui.Images;
 
 public class MessageDetailsView extends Composite implements PropertyChangeListener {
@@ -66,6 +71,11 @@ public class MessageDetailsView extends Composite implements PropertyChangeListe
     private Button thankCheckBox;
     private Button massMailingCheckBox;
 
+    /**
+     * Whether the message text is being set by this view, rather than edited by the user
+     */
+    private boolean settingMessageText = false;
+
     public MessageDetailsView(Composite parent) {
         super(parent, SWT.NONE);
         log.trace("MessageDetailsView({})", parent);
@@ -145,7 +155,7 @@ public class MessageDetailsView extends Composite implements PropertyChangeListe
         infoTextLabel.setText("Select an email to see details");
         infoComp.pack(true);
         subjectText.setText("");
-        msgText.setText("");
+        setMessageText("");
         challengeCheckBox.setSelection(false);
         thankCheckBox.setSelection(false);
         massMailingCheckBox.setSelection(false);
@@ -175,6 +185,42 @@ public class MessageDetailsView extends Composite implements PropertyChangeListe
         return thankCheckBox;
     }
 
+    /**
+     * Returns whether the message text is being set by this view (e.g. to show a newly-selected history's body), so
+     * listeners can tell its changes apart from the user's edits.
+     */
+    public boolean isSettingMessageText() {
+        return settingMessageText;
+    }
+
+    /**
+     * Loads the history's body from Tnt (in the background), since it isn't kept in memory (see
+     * {@link History#compact()}), and shows it if the history is still selected. The message text is disabled until
+     * then (and stays disabled if the body can't be loaded), so an empty or half-loaded body can't be saved back to
+     * Tnt. Errors are reported on the UI thread rather than the database thread.
+     */
+    private void loadNotes(History history) {
+        log.trace("loadNotes({})", history);
+        setMessageText("");
+        msgText.setEnabled(false);
+        int historyId = history.getHistoryId();
+        TntDbExecutor.read(Priority.INTERACTIVE, () -> HistoryManager.getNotes(historyId)).whenComplete((notes, e) -> {
+            Display.getDefault().asyncExec(() -> {
+                if (e != null) {
+                    Util.reportError(
+                        "Database connection error",
+                        "Could not load email body",
+                        e instanceof CompletionException ? e.getCause() : e);
+                    return;
+                }
+                if (isDisposed() || this.history != history)
+                    return;
+                setMessageText(notes);
+                msgText.setEnabled(true);
+            });
+        });
+    }
+
     @Override
     public void propertyChange(PropertyChangeEvent event) {
         log.trace("propertyChange({})", event);
@@ -232,10 +278,13 @@ public class MessageDetailsView extends Composite implements PropertyChangeListe
             // Set message subject & body text
             if (history.getStatus() != History.STATUS_ERROR) {
                 subjectText.setText(history.getDescription());
-                msgText.setText(history.getNotes());
+                if (history.getNotes() != null)
+                    setMessageText(history.getNotes());
+                else
+                    loadNotes(history);
             } else {
                 subjectText.setText("");
-                msgText.setText(history.getStatusException().toString());
+                setMessageText(history.getStatusException().toString());
             }
 
             // Set checkbox stuff
@@ -275,4 +324,16 @@ public class MessageDetailsView extends Composite implements PropertyChangeListe
         thankCheckBox.setEnabled(enabled);
         massMailingCheckBox.setEnabled(enabled);
     }
+
+    /**
+     * Shows the text in the message text without it counting as an edit (see {@link #isSettingMessageText()}).
+     */
+    private void setMessageText(String text) {
+        settingMessageText = true;
+        try {
+            msgText.setText(text);
+        } finally {
+            settingMessageText = false;
+        }
+    }
 }
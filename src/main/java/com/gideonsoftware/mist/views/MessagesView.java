@@ -31,6 +31,8 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Month;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -45,7 +47,6 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Listener;
@@ -58,7 +59,9 @@ import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.model.HistoryModel;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
 import com.gideonsoftware.mist.tntapi.entities.History;
+import com.gideonsoftware.mist.util.SortedList;
 import com.gideonsoftware.mist.util.ui.Images;
+import com.gideonsoftware.mist.util.ui.UiEventBus;
 
 public class MessagesView extends Composite implements PropertyChangeListener {
     private static Logger log = LogManager.getLogger();
@@ -73,7 +76,6 @@ public class MessagesView extends Composite implements PropertyChangeListener {
     public final static int COL_RESULT = 3;
     public final static int COL_SUBJECT = 4;
 
-    public final static String DATA_DATE = "date";
     public final static String DATA_HISTORY = "history";
     public final static String DATA_COMPARATOR = "comparator";
 
@@ -81,7 +83,18 @@ public class MessagesView extends Composite implements PropertyChangeListener {
 
     private int oldSelectionIndex;
 
+    /**
+     * True if history has been added to the table since the UI event bus last delivered a batch of changes
+     */
+    private boolean historyAdded = false;
+
     private ContactInfo contactInfo = null;
+
+    /**
+     * The selected contact's history, in the order it's listed (by date); messagesTable is a virtual table whose rows
+     * are filled in from this as they're shown
+     */
+    private SortedList<History> histories = new SortedList<History>(Comparator.comparing(History::getHistoryDate));
     private Table messagesTable = null;
 
     public MessagesView(Composite parent) {
@@ -89,7 +102,7 @@ public class MessagesView extends Composite implements PropertyChangeListener {
         log.trace("MessagesView({})", parent);
 
         MIST.getView().getContactsView().addPropertyChangeListener(this);
-        HistoryModel.addPropertyChangeListener(this);
+        UiEventBus.addPropertyChangeListener(this);
         // This must also listen for MessageDetailsView, but that's not instantiated yet
         // It is added later in MainWindowView:createContents(Composite)
         addDisposeListener(new DisposeListener() {
@@ -97,7 +110,7 @@ public class MessagesView extends Composite implements PropertyChangeListener {
             public void widgetDisposed(DisposeEvent e) {
                 log.trace("MessagesView.widgetDisposed()");
                 MIST.getView().getContactsView().removePropertyChangeListener(MessagesView.this);
-                HistoryModel.removePropertyChangeListener(MessagesView.this);
+                UiEventBus.removePropertyChangeListener(MessagesView.this);
             }
         });
 
@@ -110,19 +123,27 @@ public class MessagesView extends Composite implements PropertyChangeListener {
         detailsGroup.setText("Emails");
 
         // Create messages table
-        messagesTable = new Table(detailsGroup, SWT.BORDER | SWT.FULL_SELECTION | SWT.SINGLE | SWT.FLAT);
+        messagesTable = new Table(
+            detailsGroup,
+            SWT.BORDER | SWT.FULL_SELECTION | SWT.SINGLE | SWT.FLAT | SWT.VIRTUAL);
         applyGridData(messagesTable).withFill();
         messagesTable.setHeaderVisible(true);
         messagesTable.setLinesVisible(true);
         messagesTable.setItemCount(0);
         oldSelectionIndex = -1;
+        messagesTable.addListener(SWT.SetData, event -> {
+            // Fill in a row as it's shown
+            fillTableItem((TableItem) event.item, histories.get(event.index));
+        });
         messagesTable.addSelectionListener(new SelectionAdapter() {
             @Override
             public void widgetSelected(SelectionEvent event) {
                 log.trace("messagesTable.widgetSelected({})", event);
                 super.widgetSelected(event);
                 int newSelectionIndex = messagesTable.getSelectionIndex();
-                History history = (History) messagesTable.getSelection()[0].getData(DATA_HISTORY);
+                if (newSelectionIndex == -1)
+                    return;
+                History history = histories.get(newSelectionIndex);
                 if (newSelectionIndex != oldSelectionIndex) {
                     oldSelectionIndex = newSelectionIndex;
                     pcs.firePropertyChange(PROP_MESSAGE_SELECTED, null, history);
@@ -217,9 +238,23 @@ public class MessagesView extends Composite implements PropertyChangeListener {
         pcs.addPropertyChangeListener(listener);
     }
 
+    /**
+     * Adds the history to the table in sorted order. Its row is filled in when it's shown.
+     */
     public void addTableItem(History history) {
         log.trace("addTableItem({})", history);
+        int index = histories.add(history);
+        new TableItem(messagesTable, SWT.NONE, index);
+
+        // The selected row (if any) moves down with its history
+        if (oldSelectionIndex >= index)
+            oldSelectionIndex++;
+    }
 
+    /**
+     * Fills in the table item's columns from the history.
+     */
+    private void fillTableItem(TableItem item, History history) {
         Image statusImage = Images.getStatusImage(history.getStatus());
         Image toFromImage = Images.getImage(
             history.getHistoryResultId() == History.RESULT_RECEIVED ? Images.ICON_MESSAGE_TO_ME
@@ -235,14 +270,6 @@ public class MessagesView extends Composite implements PropertyChangeListener {
         else
             dateStr = date.format(DateTimeFormatter.ofPattern("MMM d @ h:mma"));
 
-        // Add to the message list in sorted order (newest first)
-        int index = 0;
-        while (index < messagesTable.getItemCount()
-            && date.isAfter((LocalDateTime) messagesTable.getItem(index).getData(DATA_DATE)))
-            index++;
-
-        // Create table item
-        TableItem item = new TableItem(messagesTable, SWT.NONE, index);
         item.setText(COL_STATUS, "");
         item.setData(String.valueOf(COL_STATUS), statusImage);
         item.setText(COL_RESULT, "");
@@ -250,50 +277,60 @@ public class MessagesView extends Composite implements PropertyChangeListener {
         item.setText(COL_SOURCE, history.getMessageSource().getSourceName());
         item.setText(COL_DATE, dateStr);
         item.setText(COL_SUBJECT, history.getDescription());
-        item.setData(DATA_DATE, date); // Store original date for sorting
         item.setData(DATA_HISTORY, history); // Store history for lookup later
-
-        // Force UI update (needed on Mac?)
-        messagesTable.update();
     }
 
     public Table getMessagesTable() {
         return messagesTable;
     }
 
+    /**
+     * Handles selections in other views and model changes (delivered on the UI thread by the UI event bus).
+     */
     @Override
     public void propertyChange(PropertyChangeEvent event) {
         log.trace("propertyChange({})", event);
 
         if (ContactsView.PROP_CONTACT_SELECTED.equals(event.getPropertyName())) {
-            // A new contact has been selected; load all their messages into the table
+            // A new contact has been selected; load all their messages into the table (only the rows that are shown
+            // are filled in)
             messagesTable.removeAll();
             oldSelectionIndex = -1;
             contactInfo = (ContactInfo) event.getNewValue();
-            History[] hisArr = HistoryModel.getAllHistoryWithContactInfo(contactInfo);
-            for (History history : hisArr)
-                addTableItem(history);
+            histories.setAll(Arrays.asList(HistoryModel.getAllHistoryWithContactInfo(contactInfo)));
+            messagesTable.setItemCount(histories.size());
+            // Force UI update (needed on Mac?)
+            messagesTable.update();
 
         } else if (HistoryModel.PROP_HISTORY_ADD.equals(event.getPropertyName()) && contactInfo != null) {
             History his = (History) event.getNewValue();
-            if (contactInfo.equals(his.getContactInfo())) {
-                // New history is being added for our contact; add it to the table
-                Display.getDefault().asyncExec(new Runnable() {
-                    @Override
-                    public void run() {
-                        addTableItem(his);
-                        // Scroll to the bottom of the table as items are entered
-                        if (!messagesTable.isDisposed() && messagesTable.getSelectionIndex() == -1)
-                            messagesTable.setTopIndex(messagesTable.getItemCount() - 1);
-                        // Force UI update (needed on Mac?)
-                        messagesTable.update();
-                    }
-                });
+            if (contactInfo.equals(his.getContactInfo()) && !messagesTable.isDisposed() && !histories.contains(his)) {
+                // New history is being added for our contact; add it to the table (unless it was already loaded when
+                // the contact was selected, while this event was waiting to be delivered)
+                addTableItem(his);
+                historyAdded = true;
+            }
+
+        } else if (HistoryModel.PROP_HISTORY_REMOVE.equals(event.getPropertyName()) && contactInfo != null) {
+            // History has been removed (e.g. replaced when its message was processed again); remove it from the table
+            int index = histories.indexOf((History) event.getNewValue());
+            if (index != -1 && !messagesTable.isDisposed())
+                removeTableItem(index);
+
+        } else if (UiEventBus.PROP_EVENTS_DELIVERED.equals(event.getPropertyName()) && historyAdded) {
+            // Scroll to the bottom of the table as items are entered (once per batch of changes)
+            historyAdded = false;
+            if (!messagesTable.isDisposed()) {
+                if (messagesTable.getSelectionIndex() == -1)
+                    messagesTable.setTopIndex(messagesTable.getItemCount() - 1);
+                // Force UI update (needed on Mac?)
+                messagesTable.update();
             }
 
         } else if (HistoryModel.PROP_CONTACT_REMOVE.equals(event.getPropertyName())
             || HistoryModel.PROP_HISTORY_INIT.equals(event.getPropertyName())) {
             // The selected contact has been removed (or history is reinitialized); clear the table
+            histories.clear();
             messagesTable.removeAll();
             oldSelectionIndex = -1;
             contactInfo = null;
@@ -312,4 +349,19 @@ public class MessagesView extends Composite implements PropertyChangeListener {
         pcs.removePropertyChangeListener(listener);
     }
 
+    /**
+     * Removes the history at the specified index from the table.
+     */
+    private void removeTableItem(int index) {
+        log.trace("removeTableItem({})", index);
+        histories.remove(index);
+        messagesTable.remove(index);
+
+        // The selected row (if any) moves up with its history, or is gone
+        if (oldSelectionIndex == index)
+            oldSelectionIndex = -1;
+        else if (oldSelectionIndex > index)
+            oldSelectionIndex--;
+    }
+
 }
@@ -32,11 +32,11 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.ProgressBar;
 
 import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.MessageModel;
+import com.gideonsoftware.mist.util.ui.UiEventBus;
 
 public class ProgressBarView extends Composite implements PropertyChangeListener {
     private static Logger log = LogManager.getLogger();
@@ -47,14 +47,12 @@ public class ProgressBarView extends Composite implements PropertyChangeListener
         super(parent, SWT.NONE);
         log.trace("ProgressBarView({})", parent);
 
-        MessageModel.addPropertyChangeListener(this);
-        EmailModel.addPropertyChangeListener(this);
+        UiEventBus.addPropertyChangeListener(this);
         addDisposeListener(new DisposeListener() {
             @Override
             public void widgetDisposed(DisposeEvent e) {
                 log.trace("ProgressBarView.widgetDisposed()");
-                MessageModel.removePropertyChangeListener(ProgressBarView.this);
-                EmailModel.removePropertyChangeListener(ProgressBarView.this);
+                UiEventBus.removePropertyChangeListener(ProgressBarView.this);
             }
         });
 
@@ -90,45 +88,34 @@ public class ProgressBarView extends Composite implements PropertyChangeListener
         return progressBar;
     }
 
+    /**
+     * Handles model changes (delivered on the UI thread by the UI event bus).
+     */
     @Override
     public void propertyChange(PropertyChangeEvent event) {
         log.trace("propertyChange({})", event);
 
+        if (progressBar.isDisposed())
+            return;
+
         if (EmailModel.PROP_MESSAGES_LOADING.equals(event.getPropertyName())
             && !event.getNewValue().equals(event.getOldValue())) {
-            if (Display.getDefault().isDisposed())
-                return;
-            Display.getDefault().asyncExec(new Runnable() {
-                @Override
-                public void run() {
-                    if (!progressBar.isDisposed()) {
-                        boolean areMessagesLoading = (Boolean) event.getNewValue();
-                        createProgressBar(areMessagesLoading);
-                    }
-                }
-            });
+            boolean areMessagesLoading = (Boolean) event.getNewValue();
+            createProgressBar(areMessagesLoading);
         }
         if (MessageModel.PROP_MESSAGE_INIT.equals(event.getPropertyName())
             || MessageModel.PROP_MESSAGE_NEXT.equals(event.getPropertyName())) {
-            if (Display.getDefault().isDisposed())
-                return;
-            Display.getDefault().asyncExec(new Runnable() {
-                @Override
-                public void run() {
-                    if (!progressBar.isDisposed()) {
-                        int messageQueueLen = MessageModel.getMessageCount();
-                        int emailMsgTotal = EmailModel.getMessageCountTotal();
-                        int emailMsgCurrent = EmailModel.getCurrentMessageNumberTotal();
-                        int total = emailMsgTotal + messageQueueLen;
-                        int current = emailMsgCurrent;
-
-                        progressBar.setRedraw(false); // Try to update these values together
-                        progressBar.setSelection(Math.round(current));
-                        progressBar.setMaximum(total);
-                        progressBar.setRedraw(true);
-                    }
-                }
-            });
+            int messageQueueLen = MessageModel.getMessageCount();
+            int emailMsgTotal = EmailModel.getMessageCountTotal();
+            int emailMsgCurrent = EmailModel.getCurrentMessageNumberTotal();
+            int total = emailMsgTotal + messageQueueLen;
+            int current = emailMsgCurrent;
+
+            progressBar.setRedraw(false); // Try to update these values together
+            progressBar.setSelection(Math.round(current));
+            progressBar.setMaximum(total);
+            progressBar.setRedraw(true);
+            progressBar.setToolTipText(EmailModel.getProgressDescription());
         }
     }
 }
@@ -0,0 +1,206 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.views;
+
+import static com.gideonsoftware.mist.util.ui.GridDataUtil.applyGridData;
+import static com.gideonsoftware.mist.util.ui.GridLayoutUtil.applyGridLayout;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import com.gideonsoftware.mist.model.EmailModel;
+import com.gideonsoftware.mist.model.MetricsModel;
+import com.gideonsoftware.mist.model.MetricsModel.Count;
+import com.gideonsoftware.mist.model.MetricsModel.Metrics;
+import com.gideonsoftware.mist.model.MetricsModel.Stage;
+import com.gideonsoftware.mist.model.data.EmailServer;
+import com.gideonsoftware.mist.util.LatencyHistogram;
+import com.gideonsoftware.mist.util.ui.UiEventBus;
+
+/**
+ * Shows what has happened to the emails in the current (or last) import and how long each stage of importing them
+ * has taken, for all email accounts or for one of them. It's refreshed whenever the UI event bus delivers model
+ * changes, so it keeps up with an import without refreshing more than once a frame.
+ */
+public class StatsView extends Composite implements PropertyChangeListener {
+    private static Logger log = LogManager.getLogger();
+
+    // Table columns
+    public final static int COL_STAGE = 0;
+    public final static int COL_COUNT = 1;
+    public final static int COL_MEDIAN = 2;
+    public final static int COL_95TH = 3;
+    public final static int COL_99TH = 4;
+    public final static int COL_MAX = 5;
+
+    private Combo serverCombo;
+    private Label countsLabel;
+    private Table stagesTable;
+
+    public StatsView(Composite parent) {
+        super(parent, SWT.NONE);
+        log.trace("StatsView({})", parent);
+
+        UiEventBus.addPropertyChangeListener(this);
+        addDisposeListener(new DisposeListener() {
+            @Override
+            public void widgetDisposed(DisposeEvent e) {
+                log.trace("StatsView.widgetDisposed()");
+                UiEventBus.removePropertyChangeListener(StatsView.this);
+            }
+        });
+
+        applyGridLayout(this).numColumns(1);
+
+        // Create stats group
+        Group statsGroup = new Group(this, SWT.NONE);
+        applyGridLayout(statsGroup).numColumns(2);
+        applyGridData(statsGroup).withFill();
+        statsGroup.setText("Import Statistics");
+
+        // Email account
+        new Label(statsGroup, SWT.NONE).setText("Account: ");
+        serverCombo = new Combo(statsGroup, SWT.READ_ONLY);
+        serverCombo.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                log.trace("serverCombo.widgetSelected({})", event);
+                refresh();
+            }
+        });
+
+        // Counts
+        countsLabel = new Label(statsGroup, SWT.NONE);
+        applyGridData(countsLabel).withHorizontalFill().horizontalSpan(2);
+
+        // Stage latencies (one row per stage)
+        stagesTable = new Table(statsGroup, SWT.BORDER | SWT.FULL_SELECTION | SWT.SINGLE | SWT.FLAT);
+        applyGridData(stagesTable).withFill().horizontalSpan(2);
+        stagesTable.setHeaderVisible(true);
+        stagesTable.setLinesVisible(true);
+        addColumn("Stage", 120);
+        addColumn("Count", 70);
+        addColumn("Median", 70);
+        addColumn("95th %", 70);
+        addColumn("99th %", 70);
+        addColumn("Max", 70);
+        for (Stage stage : Stage.values())
+            new TableItem(stagesTable, SWT.NONE).setText(COL_STAGE, stage.getLabel());
+
+        loadServers();
+        refresh();
+    }
+
+    /**
+     * Formats a latency in microseconds for display.
+     */
+    private static String formatMicros(long micros) {
+        if (micros < 10000)
+            return String.format("%.2f ms", micros / 1000.0);
+        if (micros < 10000000)
+            return String.format("%d ms", micros / 1000);
+        return String.format("%.1f s", micros / 1000000.0);
+    }
+
+    private void addColumn(String text, int width) {
+        TableColumn column = new TableColumn(stagesTable, SWT.NONE);
+        column.setText(text);
+        column.setWidth(width);
+    }
+
+    /**
+     * Lists all email accounts, then each email account (by server ID), keeping the selected one if it's still there.
+     */
+    private void loadServers() {
+        int index = serverCombo.getSelectionIndex();
+        List<String> items = new ArrayList<String>();
+        items.add("All accounts");
+        for (int serverId = 0; serverId < EmailModel.getEmailServerCount(); serverId++) {
+            EmailServer server = EmailModel.getEmailServer(serverId);
+            items.add(server == null ? "" : server.getNickname());
+        }
+        serverCombo.setItems(items.toArray(new String[0]));
+        serverCombo.select(index > 0 && index < items.size() ? index : 0);
+        layout(true, true);
+    }
+
+    /**
+     * Handles model changes (delivered on the UI thread by the UI event bus).
+     */
+    @Override
+    public void propertyChange(PropertyChangeEvent event) {
+        if (isDisposed())
+            return;
+
+        if (EmailModel.PROP_EMAILSERVERS_INIT.equals(event.getPropertyName())
+            || EmailModel.PROP_EMAILSERVER_ADDED.equals(event.getPropertyName())
+            || EmailModel.PROP_EMAILSERVER_REMOVED.equals(event.getPropertyName())) {
+            loadServers();
+        } else if (UiEventBus.PROP_EVENTS_DELIVERED.equals(event.getPropertyName())) {
+            refresh();
+        }
+    }
+
+    /**
+     * Shows the selected email account's (or all accounts') metrics.
+     */
+    private void refresh() {
+        int index = serverCombo.getSelectionIndex();
+        Metrics metrics = index <= 0 ? MetricsModel.getMetrics() : MetricsModel.getMetrics(index - 1);
+
+        List<String> counts = new ArrayList<String>();
+        for (Count count : Count.values())
+            counts.add(String.format("%s: %d", count.getLabel(), metrics.getCount(count)));
+        countsLabel.setText(String.join("   ", counts));
+
+        for (Stage stage : Stage.values()) {
+            TableItem item = stagesTable.getItem(stage.ordinal());
+            LatencyHistogram latency = metrics.getLatency(stage);
+            item.setText(COL_COUNT, Long.toString(latency.getCount()));
+            if (latency.getCount() == 0) {
+                for (int col = COL_MEDIAN; col <= COL_MAX; col++)
+                    item.setText(col, "");
+                continue;
+            }
+            item.setText(COL_MEDIAN, formatMicros(latency.getValueAtPercentile(50)));
+            item.setText(COL_95TH, formatMicros(latency.getValueAtPercentile(95)));
+            item.setText(COL_99TH, formatMicros(latency.getValueAtPercentile(99)));
+            item.setText(COL_MAX, formatMicros(latency.getMax()));
+        }
+    }
+}
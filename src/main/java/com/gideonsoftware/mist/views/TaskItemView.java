@@ -29,13 +29,13 @@ import org.eclipse.jface.util.Util;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.DisposeListener;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.TaskBar;
 import org.eclipse.swt.widgets.TaskItem;
 
 import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.MessageModel;
+import com.gideonsoftware.mist.util.ui.UiEventBus;
 
 public class TaskItemView implements PropertyChangeListener {
     private static Logger log = LogManager.getLogger();
@@ -51,12 +51,12 @@ public class TaskItemView implements PropertyChangeListener {
         if (Util.isMac())
             return;
 
-        MessageModel.addPropertyChangeListener(this);
+        UiEventBus.addPropertyChangeListener(this);
         shell.addDisposeListener(new DisposeListener() { // Need to attach to shell
             @Override
             public void widgetDisposed(DisposeEvent e) {
                 log.trace("TaskItemView.widgetDisposed()");
-                MessageModel.removePropertyChangeListener(TaskItemView.this);
+                UiEventBus.removePropertyChangeListener(TaskItemView.this);
             }
         });
 
@@ -77,34 +77,30 @@ public class TaskItemView implements PropertyChangeListener {
         return taskItem;
     }
 
+    /**
+     * Handles model changes (delivered on the UI thread by the UI event bus).
+     */
     @Override
     public void propertyChange(PropertyChangeEvent event) {
         log.trace("propertyChange({})", event);
 
         if (MessageModel.PROP_MESSAGE_INIT.equals(event.getPropertyName())
             || MessageModel.PROP_MESSAGE_NEXT.equals(event.getPropertyName())) {
-            if (Display.getDefault().isDisposed())
-                return;
-            Display.getDefault().asyncExec(new Runnable() {
-                @Override
-                public void run() {
-                    if (taskItem != null && !taskItem.isDisposed()) {
-                        int messageQueueLen = MessageModel.getMessageCount();
-                        int emailMsgTotal = EmailModel.getMessageCountTotal();
-                        int emailMsgCurrent = EmailModel.getCurrentMessageNumberTotal();
-                        int total = emailMsgTotal + messageQueueLen;
-                        int current = emailMsgCurrent;
+            if (taskItem != null && !taskItem.isDisposed()) {
+                int messageQueueLen = MessageModel.getMessageCount();
+                int emailMsgTotal = EmailModel.getMessageCountTotal();
+                int emailMsgCurrent = EmailModel.getCurrentMessageNumberTotal();
+                int total = emailMsgTotal + messageQueueLen;
+                int current = emailMsgCurrent;
 
-                        if (current < total) {
-                            taskItem.setProgress(current * 100 / total);
-                            taskItem.setProgressState(SWT.NORMAL);
-                        } else {
-                            // Reset
-                            taskItem.setProgressState(SWT.DEFAULT);
-                        }
-                    }
+                if (current < total) {
+                    taskItem.setProgress(current * 100 / total);
+                    taskItem.setProgressState(SWT.NORMAL);
+                } else {
+                    // Reset
+                    taskItem.setProgressState(SWT.DEFAULT);
                 }
-            });
+            }
         }
     }
 }
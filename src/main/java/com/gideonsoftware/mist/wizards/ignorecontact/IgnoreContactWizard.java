@@ -38,6 +38,11 @@ public class IgnoreContactWizard extends Wizard {
     private ContactInfo contactInfo = null;
     private IgnoreSettingsPage ignoreSettingsPage;
 
+    // What was ignored (once finished)
+    private String ignoredEmail = null;
+    private boolean ignoredGlobally = false;
+    private int[] ignoredServerIds = new int[0];
+
     public IgnoreContactWizard(ContactInfo contactInfo) {
         log.trace("IgnoreContactWizard({})", contactInfo);
         this.contactInfo = contactInfo;
@@ -62,6 +67,29 @@ public class IgnoreContactWizard extends Wizard {
         return contactInfo;
     }
 
+    /**
+     * Returns the email address (or wildcard entry) that was added to the ignore list, or null if the wizard hasn't
+     * finished.
+     */
+    public String getIgnoredEmail() {
+        return ignoredEmail;
+    }
+
+    /**
+     * Returns the IDs of the email servers whose ignore lists the email address was added to (if it wasn't ignored
+     * globally).
+     */
+    public int[] getIgnoredServerIds() {
+        return ignoredServerIds;
+    }
+
+    /**
+     * Returns true if the email address was added to the global ignore list.
+     */
+    public boolean isIgnoredGlobally() {
+        return ignoredGlobally;
+    }
+
     @Override
     public boolean performFinish() {
         log.trace("performFinish()");
@@ -77,7 +105,10 @@ public class IgnoreContactWizard extends Wizard {
         } else {
             for (int id : ignoreSettingsPage.getSelectedServerIds())
                 EmailModel.getEmailServer(id).addIgnoreAddress(email);
+            ignoredServerIds = ignoreSettingsPage.getSelectedServerIds();
         }
+        ignoredEmail = email;
+        ignoredGlobally = ignoreSettingsPage.isGlobalCheckSelected();
 
         return true;
     }
@@ -29,6 +29,8 @@ import org.eclipse.jface.wizard.Wizard;
 
 import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.tntapi.ContactManager;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.entities.Contact;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
 import com.gideonsoftware.mist.util.Util;
@@ -112,11 +114,12 @@ public class MatchContactWizard extends Wizard {
             contact.setInitialNameFields(confirmNewContactPage.getFirstName(), confirmNewContactPage.getLastName());
             contact.setInitialEmailFields(contactInfo.getInfo());
             try {
-                contactId = ContactManager.create(contact);
+                contactId = TntDbExecutor.callWrite(Priority.INTERACTIVE, () -> ContactManager.create(contact));
             } catch (TntDbException | SQLException e) {
                 Util.reportError("Database error", "Could not create contact", e);
                 return false;
             }
+            contactInfo.setName(contact.getFileAs());
 
         } else {
             //
@@ -128,13 +131,18 @@ public class MatchContactWizard extends Wizard {
             boolean usePrimaryContact = !contact.hasSpouse() || selectContactSpousePage.isPrimaryContactSelected();
 
             try {
-                ContactManager.addNewEmailAddress(email, contactId, usePrimaryContact);
+                Integer matchedContactId = contactId;
+                TntDbExecutor.callWrite(Priority.INTERACTIVE, () -> {
+                    ContactManager.addNewEmailAddress(email, matchedContactId, usePrimaryContact);
+                    return null;
+                });
             } catch (SQLException | TntDbException e) {
                 Util.reportError("Database error", "Could not create contact", e);
                 return false;
             }
+            contactInfo.setName(contact.getFileAs());
         }
-        contactInfo.setId(contactId); // So the calling function can reference the matched contactId
+        contactInfo.setId(contactId); // So the calling function can reference the matched contact
         return true;
     }
 }
@@ -37,7 +37,11 @@ import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 
+import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.tntapi.ContactDirectory;
 import com.gideonsoftware.mist.tntapi.ContactManager;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.entities.Contact;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
 import com.gideonsoftware.mist.util.Util;
@@ -49,6 +53,11 @@ import com.gideonsoftware.mist.util.ui.SmartCombo;
 public class SelectContactPage extends WizardPage {
     private static Logger log = LogManager.getLogger();
 
+    /**
+     * Maximum number of contacts suggested for what the user types
+     */
+    private final static int MAX_SUGGESTIONS = 50;
+
     private Contact contact = null;
 
     private SmartCombo<Integer> contactCombo;
@@ -69,14 +78,19 @@ public class SelectContactPage extends WizardPage {
         Composite comp = new Composite(parent, SWT.NONE);
         applyGridLayout(comp).numColumns(2);
 
-        // Get contact list
+        // Get contact list (cached between wizards)
         try {
-            contactList = ContactManager.getContactList();
-        } catch (SQLException e) {
+            contactList = TntDbExecutor.callRead(Priority.INTERACTIVE, () -> ContactDirectory.getContactList());
+        } catch (TntDbException | SQLException e) {
             Util.reportError("Database connection error", "Could not load contact list", e);
         }
 
+        // Suggest contacts as the user types, ranking those with the email's last name or domain higher
+        MatchContactWizard wizard = ((MatchContactWizard) getWizard());
+        ContactInfo contactInfo = wizard.getContactInfo();
         contactCombo = new SmartCombo<Integer>(comp, SWT.DROP_DOWN);
+        contactCombo.setSearcher(
+            text -> ContactDirectory.search(text, MAX_SUGGESTIONS, contactInfo.guessLastName(), contactInfo.getInfo()));
         for (ContactInfo ci : contactList)
             contactCombo.add(ci.getId(), ci.getName());
         contactCombo.addModifyListener(new ModifyListener() {
@@ -100,8 +114,7 @@ public class SelectContactPage extends WizardPage {
             }
         });
         // Fill in last name by default
-        MatchContactWizard wizard = ((MatchContactWizard) getWizard());
-        contactCombo.setText(wizard.getContactInfo().guessLastName());
+        contactCombo.setText(contactInfo.guessLastName());
 
         newContactCheck = new Button(comp, SWT.CHECK);
         newContactCheck.setText("Create a new contact");
@@ -129,8 +142,8 @@ public class SelectContactPage extends WizardPage {
         } else {
             Contact contact = null;
             try {
-                contact = ContactManager.get(contactId);
-            } catch (SQLException e) {
+                contact = TntDbExecutor.callRead(Priority.INTERACTIVE, () -> ContactManager.get(contactId));
+            } catch (TntDbException | SQLException e) {
                 Util.reportError("Database connection error", "Could not load contact", e);
                 return null;
             }
@@ -148,8 +161,9 @@ public class SelectContactPage extends WizardPage {
 
         // We haven't yet loaded the contact; get it now
         try {
-            contact = ContactManager.get(getSelectedContactId());
-        } catch (SQLException e) {
+            Integer contactId = getSelectedContactId();
+            contact = TntDbExecutor.callRead(Priority.INTERACTIVE, () -> ContactManager.get(contactId));
+        } catch (TntDbException | SQLException e) {
             Util.reportError("Database connection error", "Could not load contact", e);
             return null;
         }
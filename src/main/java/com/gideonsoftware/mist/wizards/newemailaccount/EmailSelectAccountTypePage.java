@@ -37,6 +37,7 @@ public class EmailSelectAccountTypePage extends WizardPage {
 
     private Button typeImapRadio;
     private Button typeGmailRadio;
+    private Button typeLocalRadio;
 
     public EmailSelectAccountTypePage() {
         super("Add Email Account: Select Account Type");
@@ -56,6 +57,8 @@ public class EmailSelectAccountTypePage extends WizardPage {
         typeImapRadio.setText("IMAP: a common way to access your email across multiple devices");
         typeGmailRadio = new Button(comp, SWT.RADIO);
         typeGmailRadio.setText("Gmail: Google's email service");
+        typeLocalRadio = new Button(comp, SWT.RADIO);
+        typeLocalRadio.setText("Local files: archived email in mbox, Maildir or .eml files");
 
         typeImapRadio.setSelection(true); // Wizard defaults to IMAP
 
@@ -68,6 +71,8 @@ public class EmailSelectAccountTypePage extends WizardPage {
         NewEmailAccountWizard wizard = ((NewEmailAccountWizard) getWizard());
         if (isTypeImap())
             return wizard.getImapAccountConnectionPage();
+        else if (isTypeLocal())
+            return wizard.getLocalAccountPathPage();
         else
             return wizard.getGmailAccountConnectionPage();
     }
@@ -77,6 +82,8 @@ public class EmailSelectAccountTypePage extends WizardPage {
             return EmailServer.TYPE_IMAP;
         else if (isTypeGmail())
             return EmailServer.TYPE_GMAIL;
+        else if (isTypeLocal())
+            return EmailServer.TYPE_LOCAL;
         return null;
     }
 
@@ -88,4 +95,8 @@ public class EmailSelectAccountTypePage extends WizardPage {
         return typeImapRadio.getSelection();
     }
 
+    public boolean isTypeLocal() {
+        return typeLocalRadio.getSelection();
+    }
+
 }
@@ -35,8 +35,11 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.MessageBox;
 
+import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.tntapi.TntDb;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
 import com.gideonsoftware.mist.tntapi.UserManager;
 import com.gideonsoftware.mist.tntapi.entities.User;
 import com.gideonsoftware.mist.util.Util;
@@ -119,9 +122,9 @@ public class EmailSelectTntUserPage extends WizardPage {
             // Populate user list
             userCombo.removeAll();
             try {
-                for (User user : UserManager.getUserList())
+                for (User user : TntDbExecutor.callRead(Priority.INTERACTIVE, () -> UserManager.getUserList()))
                     userCombo.add(user.getId(), user.getUsername());
-            } catch (SQLException e) {
+            } catch (TntDbException | SQLException e) {
                 Util.reportError("Unable to load user list", "Unable to load user list", e);
             }
             if (oldKey != null)
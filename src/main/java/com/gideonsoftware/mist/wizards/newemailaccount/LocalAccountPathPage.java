@@ -0,0 +1,171 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.wizards.newemailaccount;
+
+import static com.gideonsoftware.mist.util.ui.GridDataUtil.applyGridData;
+import static com.gideonsoftware.mist.util.ui.GridLayoutUtil.applyGridLayout;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jface.wizard.IWizardPage;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
+
+import com.gideonsoftware.mist.exceptions.EmailServerException;
+import com.gideonsoftware.mist.model.EmailModel;
+import com.gideonsoftware.mist.model.data.LocalServer;
+import com.gideonsoftware.mist.util.Util;
+import com.gideonsoftware.mist.util.ui.SmartWizardPage;
+
+public class LocalAccountPathPage extends SmartWizardPage {
+    private static Logger log = LogManager.getLogger();
+
+    // Controls
+    private Text pathText = null;
+    private Text myAddressText = null;
+
+    // New local "server"
+    private LocalServer localServer = null;
+
+    public LocalAccountPathPage() {
+        super("Add Local Files: Select Mail File or Folder");
+        log.trace("LocalAccountPathPage()");
+        setTitle("Add Local Files: Select Mail File or Folder");
+        setDescription("Please select the archived email you want to import.");
+    }
+
+    @Override
+    public void createControl(Composite parent) {
+        log.trace("createControl({})", parent);
+
+        Composite comp = new Composite(parent, SWT.NONE);
+        applyGridLayout(comp).numColumns(2);
+
+        Label label = new Label(comp, SWT.NONE);
+        label.setText(
+            String.format(
+                "MIST can import an mbox file, a Maildir folder, a single .eml file,%n"
+                    + "or a folder containing any of these. Your files will not be changed."));
+        applyGridData(label).horizontalSpan(2);
+
+        // Path
+        (new Label(comp, SWT.NONE)).setText("Mail file or folder:");
+        pathText = new Text(comp, SWT.BORDER | SWT.SINGLE);
+        applyGridData(pathText).withHorizontalFill();
+        pathText.addModifyListener(e -> updatePageComplete());
+
+        new Label(comp, SWT.NONE);
+        Composite browseComp = new Composite(comp, SWT.NONE);
+        applyGridLayout(browseComp).numColumns(2).marginWidth(0).marginHeight(0);
+        Button browseFileButton = new Button(browseComp, SWT.PUSH);
+        browseFileButton.setText("Browse for &file...");
+        browseFileButton.addSelectionListener(SelectionListener.widgetSelectedAdapter(e -> {
+            log.trace("browseFileButton.widgetSelected({})", e);
+            FileDialog dialog = new FileDialog(getShell(), SWT.OPEN);
+            dialog.setText("Select mail file");
+            dialog.setFilterNames(new String[] { "All files", "Email messages (*.eml)", "Mailboxes (*.mbox)" });
+            dialog.setFilterExtensions(new String[] { "*", "*.eml", "*.mbox" });
+            String path = dialog.open();
+            if (path != null)
+                pathText.setText(path);
+        }));
+        Button browseFolderButton = new Button(browseComp, SWT.PUSH);
+        browseFolderButton.setText("Browse for f&older...");
+        browseFolderButton.addSelectionListener(SelectionListener.widgetSelectedAdapter(e -> {
+            log.trace("browseFolderButton.widgetSelected({})", e);
+            DirectoryDialog dialog = new DirectoryDialog(getShell());
+            dialog.setText("Select mail folder");
+            dialog.setMessage("Select a Maildir folder, or a folder containing mbox and .eml files");
+            String path = dialog.open();
+            if (path != null)
+                pathText.setText(path);
+        }));
+
+        // My address
+        (new Label(comp, SWT.NONE)).setText("Your email address:");
+        myAddressText = new Text(comp, SWT.BORDER | SWT.SINGLE);
+        applyGridData(myAddressText).withHorizontalFill();
+        myAddressText.addModifyListener(e -> updatePageComplete());
+        new Label(comp, SWT.NONE);
+        (new Label(comp, SWT.NONE)).setText("Used to tell messages you sent from messages you received");
+
+        setControl(comp); // Needed for page to work properly
+        setPageComplete(false);
+    }
+
+    public LocalServer getLocalServer() {
+        return localServer;
+    }
+
+    public String getMyAddress() {
+        return myAddressText.getText().trim();
+    }
+
+    @Override
+    public IWizardPage getNextPage() {
+        log.trace("getNextPage()");
+
+        NewEmailAccountWizard wizard = (NewEmailAccountWizard) getWizard();
+        if (wizard.getEmailSelectTntUserPage().getUserCombo().getItemsMap().size() == 1) {
+            // Skip the Tnt User Selection page entirely if there's only one TntDb user
+            wizard.getEmailSelectTntUserPage().setPageComplete(true);
+            return wizard.getPostEmailSetupPage();
+        } else
+            return wizard.getEmailSelectTntUserPage();
+    }
+
+    @Override
+    protected boolean nextPressed() {
+        log.trace("nextPressed()");
+
+        // Check that there's something to import
+        localServer = new LocalServer(EmailModel.getEmailServerCount());
+        localServer.setNickname(LocalServer.NEW_NICKNAME, true);
+        localServer.setPath(pathText.getText().trim());
+        Util.connectToEmailServer(localServer);
+        if (!localServer.isConnected())
+            return false;
+
+        try {
+            localServer.loadMessageList();
+        } catch (EmailServerException e) {
+            Util.reportError("Unable to scan for messages", e.getMessage(), e);
+            return false;
+        }
+        if (localServer.getTotalMessages() == 0) {
+            setErrorMessage("No email messages were found there.");
+            return false;
+        }
+        setErrorMessage(null);
+        return true;
+    }
+
+    private void updatePageComplete() {
+        setPageComplete(!pathText.getText().isBlank() && !myAddressText.getText().isBlank());
+    }
+
+}
@@ -33,6 +33,7 @@ import com.gideonsoftware.mist.model.EmailModel;
 import com.gideonsoftware.mist.model.data.EmailServer;
 import com.gideonsoftware.mist.model.data.GmailServer;
 import com.gideonsoftware.mist.model.data.ImapServer;
+import com.gideonsoftware.mist.model.data.LocalServer;
 import com.gideonsoftware.mist.util.Util;
 
 /**
@@ -46,6 +47,7 @@ public class NewEmailAccountWizard extends Wizard {
     protected ImapAccountFolderPage imapAccountFolderPage;
     protected GmailAccountConnectionPage gmailAccountConnectionPage;
     protected GmailAccountLabelPage gmailAccountLabelPage;
+    protected LocalAccountPathPage localAccountPathPage;
     protected EmailSelectTntUserPage emailSelectTntUserPage;
 
     @Override
@@ -57,6 +59,7 @@ public class NewEmailAccountWizard extends Wizard {
         imapAccountFolderPage = new ImapAccountFolderPage();
         gmailAccountConnectionPage = new GmailAccountConnectionPage();
         gmailAccountLabelPage = new GmailAccountLabelPage();
+        localAccountPathPage = new LocalAccountPathPage();
         emailSelectTntUserPage = new EmailSelectTntUserPage();
 
         insertPagesBefore();
@@ -66,6 +69,7 @@ public class NewEmailAccountWizard extends Wizard {
         addPage(imapAccountFolderPage);
         addPage(gmailAccountConnectionPage);
         addPage(gmailAccountLabelPage);
+        addPage(localAccountPathPage);
         addPage(emailSelectTntUserPage);
 
         insertPagesAfter();
@@ -74,7 +78,9 @@ public class NewEmailAccountWizard extends Wizard {
     @Override
     public boolean canFinish() {
         log.trace("canFinish()");
-        return (imapAccountFolderPage.isPageComplete() || gmailAccountLabelPage.isPageComplete())
+        return (imapAccountFolderPage.isPageComplete()
+            || gmailAccountLabelPage.isPageComplete()
+            || localAccountPathPage.isPageComplete())
             && emailSelectTntUserPage.isPageComplete();
     }
 
@@ -102,6 +108,10 @@ public class NewEmailAccountWizard extends Wizard {
         return imapAccountFolderPage;
     }
 
+    public LocalAccountPathPage getLocalAccountPathPage() {
+        return localAccountPathPage;
+    }
+
     public WizardPage getPostEmailSetupPage() {
         return null;
     }
@@ -133,6 +143,10 @@ public class NewEmailAccountWizard extends Wizard {
             gmailServer.setLabelRemoveAfterImport(getGmailAccountLabelPage().isRemoveLabelChecked());
             gmailServer.addMyAddress(gmailServer.getUsername());
             emailServer = gmailServer;
+        } else if (emailSelectAccountTypePage.isTypeLocal()) {
+            LocalServer localServer = getLocalAccountPathPage().getLocalServer();
+            localServer.addMyAddress(getLocalAccountPathPage().getMyAddress());
+            emailServer = localServer;
         } else {
             Util.reportError("Unknown email account type", "Unknown email account type");
             return false;
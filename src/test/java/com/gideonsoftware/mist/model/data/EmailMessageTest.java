@@ -21,6 +21,9 @@
 package com.gideonsoftware.mist.model.data;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.LocalDateTime;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -34,6 +37,44 @@ public class EmailMessageTest {
         MIST.configureLogging(EmailMessageTest.class);
     }
 
+    @Test
+    public void testGetIdentity() {
+        LocalDateTime date = LocalDateTime.of(1977, 5, 25, 12, 0);
+
+        // The same message from two accounts, received at different times
+        MessageSource gmailCopy = new MessageSource();
+        gmailCopy.setSourceId(0);
+        gmailCopy.setFromId("luke@rebellion.org");
+        gmailCopy.setDate(date);
+        gmailCopy.setMessageId("<1234.5678@rebellion.org>");
+        MessageSource imapCopy = new MessageSource();
+        imapCopy.setSourceId(1);
+        imapCopy.setFromId("luke@rebellion.org");
+        imapCopy.setDate(date.plusMinutes(5));
+        imapCopy.setMessageId(" 1234.5678@rebellion.org ");
+        assertEquals("1234.5678@rebellion.org", gmailCopy.getMessageId());
+        assertEquals(gmailCopy.getIdentity(), imapCopy.getIdentity());
+        assertNotEquals(gmailCopy.getUniqueId(), imapCopy.getUniqueId());
+
+        // Without a Message-ID, identity is based on content
+        MessageSource first = new MessageSource();
+        first.setFromId("han@falcon.net");
+        first.setDate(date);
+        first.setSubject("Kessel Run");
+        first.setBody("Less than twelve parsecs.");
+        MessageSource second = first.cloneObject();
+        second.setSourceId(1);
+        assertEquals(null, first.getMessageId());
+        assertEquals(first.getIdentity(), second.getIdentity());
+        second.setBody("Fourteen parsecs.");
+        assertNotEquals(first.getIdentity(), second.getIdentity());
+
+        // Blank Message-IDs fall back to content
+        second.setBody(first.getBody());
+        second.setMessageId("<>");
+        assertEquals(first.getIdentity(), second.getIdentity());
+    }
+
     @Test
     public void testGuessFromName() {
         String[][] tests = {
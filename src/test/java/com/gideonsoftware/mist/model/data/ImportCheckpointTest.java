@@ -0,0 +1,87 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.gideonsoftware.mist.MIST;
+
+public class ImportCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(ImportCheckpointTest.class);
+    }
+
+    @Test
+    public void testCheckpoint() {
+        Path file = tempDir.resolve("checkpoint.txt");
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+        checkpoint.start();
+        assertNull(checkpoint.get());
+
+        // Commits out of order only advance the checkpoint past contiguous messages
+        for (int i = 1; i <= 5; i++)
+            checkpoint.dispatch("uid" + i);
+        checkpoint.commit("uid2");
+        assertNull(checkpoint.get());
+        checkpoint.commit("uid1");
+        assertEquals("uid2", checkpoint.get());
+        checkpoint.commit("uid5");
+        checkpoint.commit("uid4");
+        assertEquals("uid2", checkpoint.get()); // uid3 (e.g. an error) holds it back
+        checkpoint.commit("unknown");
+        assertEquals("uid2", checkpoint.get());
+
+        // Stopped part way: the checkpoint is saved when every dispatched message has been committed
+        checkpoint.commit("uid3");
+        assertEquals("uid5", checkpoint.get());
+        assertEquals("uid5", new ImportCheckpoint(file).get());
+
+        // Resume & finish: the checkpoint is cleared once every message has been committed
+        checkpoint = new ImportCheckpoint(file);
+        checkpoint.start();
+        assertEquals("uid5", checkpoint.get());
+        checkpoint.dispatch("uid6");
+        AtomicBoolean complete = new AtomicBoolean(false);
+        checkpoint.finish(() -> complete.set(true));
+        assertEquals("uid5", checkpoint.get());
+        assertFalse(complete.get());
+        checkpoint.commit("uid6");
+        assertNull(checkpoint.get());
+        assertFalse(Files.exists(file));
+        assertTrue(complete.get());
+    }
+}
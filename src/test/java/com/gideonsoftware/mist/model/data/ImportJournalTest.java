@@ -0,0 +1,111 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.gideonsoftware.mist.MIST;
+
+public class ImportJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(ImportJournalTest.class);
+    }
+
+    private static MessageSource getMessage(int i) {
+        MessageSource message = new MessageSource();
+        message.setSourceName("Rebellion");
+        message.setDate(LocalDateTime.of(2023, 5, 4, 12, 0, i));
+        message.setFromId("luke@rebellion.org");
+        message.setFromName("Luke Skywalker");
+        message.addRecipients(new Object[] { "leia@rebellion.org", "\"Han Solo\" <han@falcon.net>" });
+        message.setSubject("Message " + i);
+        message.setBody("Use the Force\n\u2014 Ben");
+        message.setMessageId(i % 2 == 0 ? String.format("<%d@rebellion.org>", i) : null);
+        message.setAddExistingHistory(i % 3 != 0);
+        return message;
+    }
+
+    @Test
+    public void testJournal() throws IOException {
+        Path file = tempDir.resolve("journal.dat");
+        ImportJournal journal = new ImportJournal(file);
+        assertTrue(journal.isEmpty());
+        assertTrue(journal.read().isEmpty());
+
+        // Append; the first record isn't forced to disk until a batch is due
+        for (int i = 0; i < 10; i++)
+            journal.append("ledger" + (i % 2), getMessage(i));
+        assertFalse(journal.flush(false));
+        assertTrue(journal.flush(true));
+        journal.close();
+        assertFalse(journal.isEmpty());
+
+        // Read back, including after a partly-written record
+        Files.write(file, new byte[] { 0, 0, 1, 0, 42 }, StandardOpenOption.APPEND);
+        List<ImportJournal.Entry> entries = journal.read();
+        assertEquals(10, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            MessageSource expected = getMessage(i);
+            MessageSource actual = entries.get(i).getMessage();
+            assertEquals("ledger" + (i % 2), entries.get(i).getLedgerId());
+            assertEquals(expected.getSourceName(), actual.getSourceName());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getFromId(), actual.getFromId());
+            assertEquals(expected.getFromName(), actual.getFromName());
+            assertArrayEquals(expected.getRecipients(), actual.getRecipients());
+            assertEquals(expected.getSubject(), actual.getSubject());
+            assertEquals(expected.getBody(), actual.getBody());
+            assertEquals(expected.getMessageId(), actual.getMessageId());
+            assertEquals(expected.isAddExistingHistory(), actual.isAddExistingHistory());
+            assertEquals(expected.getIdentity(), actual.getIdentity());
+        }
+
+        // Rewrite with the messages that still need replaying
+        journal.rewrite(entries.subList(8, 10));
+        entries = new ImportJournal(file).read();
+        assertEquals(2, entries.size());
+        assertEquals("Message 8", entries.get(0).getMessage().getSubject());
+
+        // Rewrite with nothing left
+        journal.rewrite(List.of());
+        assertTrue(journal.isEmpty());
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.gideonsoftware.mist.MIST;
+
+public class ImportLedgerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(ImportLedgerTest.class);
+    }
+
+    @Test
+    public void testLedger() throws IOException {
+        Path file = tempDir.resolve("ledger.dat");
+        UUID[] ids = new UUID[100];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = MessageSource.getIdentity(String.format("<%d@rebellion.org>", i));
+
+        ImportLedger ledger = new ImportLedger(file);
+        assertEquals(0, ledger.size());
+        assertFalse(ledger.contains(ids[0]));
+        assertFalse(ledger.contains(null));
+
+        // Add (with a duplicate)
+        for (int i = 0; i < ids.length / 2; i++)
+            ledger.add(ids[i]);
+        ledger.add(ids[0]);
+        assertEquals(ids.length / 2, ledger.size());
+        assertEquals(ids.length / 2 * 16, Files.size(file));
+
+        // Reload (sorted, from disk) and add the rest
+        ledger = new ImportLedger(file);
+        assertEquals(ids.length / 2, ledger.size());
+        for (int i = ids.length / 2; i < ids.length; i++)
+            ledger.add(ids[i]);
+        for (UUID id : ids)
+            assertTrue(ledger.contains(id), id.toString());
+        assertFalse(ledger.contains(MessageSource.getIdentity("<vader@empire.gov>")));
+
+        // Reload again (merging appended records)
+        ledger = new ImportLedger(file);
+        assertEquals(ids.length, ledger.size());
+        for (UUID id : ids)
+            assertTrue(ledger.contains(id), id.toString());
+        assertEquals(ids.length * 16, Files.size(file));
+
+        // Clear
+        ledger.clear();
+        assertEquals(0, ledger.size());
+        assertFalse(Files.exists(file));
+        assertFalse(new ImportLedger(file).contains(ids[0]));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.gideonsoftware.mist.MIST;
+
+public class MboxScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(MboxScannerTest.class);
+    }
+
+    @Test
+    public void testFindMessages() throws IOException {
+        String message1 = "Subject: One\n\nHelp me, Obi-Wan Kenobi.\n>From here it's only a short hop.\n\n";
+        String message2 = "Subject: Two\n\nThat's no moon.\n";
+        Path file = tempDir.resolve("archive.mbox");
+        Files.writeString(
+            file,
+            "From luke@rebellion.org Mon Jan  1 00:00:00 2024\n"
+                + message1
+                + "From vader@empire.gov Tue Jan  2 00:00:00 2024\n"
+                + message2);
+
+        assertTrue(MboxScanner.isMbox(file));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> ranges = MboxScanner.findMessages(channel);
+            assertEquals(2, ranges.size());
+            try (InputStream in = MboxScanner.openMessage(channel, ranges.get(0))) {
+                assertEquals(message1.replace(">From", "From"), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try (InputStream in = MboxScanner.openMessage(channel, ranges.get(1))) {
+                assertEquals(message2, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try (InputStream in = MboxScanner.openHeaders(channel, ranges.get(1))) {
+                assertEquals("Subject: Two\n\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        Path eml = tempDir.resolve("message.eml");
+        Files.writeString(eml, message2);
+        assertFalse(MboxScanner.isMbox(eml));
+    }
+
+    @Test
+    public void testUnescape() {
+        Object[][] tests = {
+            { "", "" },
+            { "From here", "From here" }, // Not at the start of an escaped line
+            { ">From here\n", "From here\n" },
+            { "a\n>>From here\n", "a\n>From here\n" },
+            { "a\n>Fromage\n", "a\n>Fromage\n" },
+            { "a >From here\n", "a >From here\n" } };
+
+        for (Object[] test : tests) {
+            byte[] message = ((String) test[0]).getBytes(StandardCharsets.US_ASCII);
+            byte[] expected = ((String) test[1]).getBytes(StandardCharsets.US_ASCII);
+            assertArrayEquals(expected, MboxScanner.unescape(message), (String) test[0]);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.model.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.gideonsoftware.mist.MIST;
+
+public class MessageCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(MessageCacheTest.class);
+    }
+
+    private static byte[] message(String text) {
+        return String.format("Subject: %-10s\n\nHello there\n", text).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testCache() {
+        Path dir = tempDir.resolve("cache");
+        int size = message("luke").length;
+        MessageCache cache = new MessageCache(dir, size * 3);
+        assertNull(cache.get("server/1"));
+        assertEquals(0, cache.getTotalBytes());
+
+        // Add & replace
+        cache.put("server/1", message("luke"));
+        cache.put("server/2", message("leia"));
+        cache.put("server/2", message("leia"));
+        assertEquals(size * 2, cache.getTotalBytes());
+        assertArrayEquals(message("luke"), cache.get("server/1"));
+        assertArrayEquals(message("leia"), cache.get("server/2"));
+        assertNull(cache.get("other/1"));
+
+        // Evict the least recently used message (2 was used after 1)
+        cache.get("server/1");
+        cache.put("server/3", message("han"));
+        cache.put("server/4", message("chewie"));
+        assertEquals(size * 3, cache.getTotalBytes());
+        assertNull(cache.get("server/2"));
+        assertArrayEquals(message("luke"), cache.get("server/1"));
+
+        // Reload from disk
+        cache = new MessageCache(dir, size * 3);
+        assertEquals(size * 3, cache.getTotalBytes());
+        assertArrayEquals(message("han"), cache.get("server/3"));
+
+        // Shrink, then clear
+        cache.setMaxBytes(size);
+        assertEquals(size, cache.getTotalBytes());
+        cache.put("server/5", new byte[size + 1]); // Too large to cache
+        assertNull(cache.get("server/5"));
+        cache.clear();
+        assertEquals(0, cache.getTotalBytes());
+        assertNull(new MessageCache(dir, size * 3).get("server/3"));
+    }
+}
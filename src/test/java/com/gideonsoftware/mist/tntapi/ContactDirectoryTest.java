@@ -0,0 +1,102 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
+import com.gideonsoftware.mist.tntapi.entities.ContactMatch;
+
+public class ContactDirectoryTest {
+
+    private static Integer DONALDDUCK_CONTACTID = Integer.valueOf(608241759);
+    private static Integer MRINCREDIBLE_CONTACTID = Integer.valueOf(1);
+
+    @BeforeAll
+    public static void setup() {
+        MIST.configureLogging(ContactDirectoryTest.class);
+        TntDbTest.setupTntDb();
+    }
+
+    @AfterAll
+    public static void teardown() {
+        TntDbTest.teardownTntDb();
+    }
+
+    @AfterEach
+    public void rollback() throws TntDbException {
+        TntDb.rollback();
+        ContactDirectory.clear();
+    }
+
+    /**
+     * Tests that the cached contact list matches the database's
+     */
+    @Test
+    public void getContactList() throws SQLException {
+        ContactInfo[] contactList = ContactDirectory.getContactList();
+        assertEquals(ContactManager.getContactList().length, contactList.length);
+        for (int i = 1; i < contactList.length; i++)
+            assertEquals(true, contactList[i - 1].getName().compareToIgnoreCase(contactList[i].getName()) <= 0);
+    }
+
+    /**
+     * Tests looking up email addresses in the cache, including after MIST has added one
+     */
+    @Test
+    public void resolveEmails() throws TntDbException, SQLException {
+        Map<String, ContactMatch> matches = ContactDirectory.resolveEmails(
+            Arrays.asList("dduck@disney.org", "nobody@nowhere.nope", null));
+        assertEquals(3, matches.size());
+        assertEquals(DONALDDUCK_CONTACTID, matches.get("dduck@disney.org").getContactId());
+        assertEquals("Duck, Donald and Daisy", matches.get("dduck@disney.org").getFileAs());
+        assertEquals(0, matches.get("nobody@nowhere.nope").getMatchCount());
+        assertEquals(0, matches.get(null).getMatchCount());
+
+        // The new address is picked up although the database file hasn't changed (since nothing is committed)
+        ContactManager.addNewEmailAddress("incredible@nowhere.nope", MRINCREDIBLE_CONTACTID, true);
+        ContactMatch match = ContactDirectory.resolveEmails(Arrays.asList("incredible@nowhere.nope")).get(
+            "incredible@nowhere.nope");
+        assertEquals(MRINCREDIBLE_CONTACTID, match.getContactId());
+    }
+
+    /**
+     * Tests searching the cache by name and email address
+     */
+    @Test
+    public void search() throws SQLException {
+        ContactDirectory.getContactList(); // Loads the cache
+        assertEquals(DONALDDUCK_CONTACTID, ContactDirectory.search("donald du", 10, null, null).get(0));
+        assertEquals(DONALDDUCK_CONTACTID, ContactDirectory.search("dduck", 10, null, null).get(0));
+        assertEquals(DONALDDUCK_CONTACTID, ContactDirectory.search("Donlad", 10, null, null).get(0)); // Typo
+    }
+}
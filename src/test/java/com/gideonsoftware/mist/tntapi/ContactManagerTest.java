@@ -26,6 +26,8 @@ import static org.junit.jupiter.api.Assertions.fail;
 import java.lang.reflect.Field;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -36,6 +38,7 @@ import com.gideonsoftware.mist.MIST;
 import com.gideonsoftware.mist.exceptions.TntDbException;
 import com.gideonsoftware.mist.tntapi.entities.Contact;
 import com.gideonsoftware.mist.tntapi.entities.ContactInfo;
+import com.gideonsoftware.mist.tntapi.entities.ContactMatch;
 import com.gideonsoftware.mist.tntapi.entities.History;
 import com.gideonsoftware.mist.tntapi.entities.TaskType;
 
@@ -266,6 +269,26 @@ public class ContactManagerTest {
 
     }
 
+    /**
+     * Tests that cached contacts are copies, and are loaded again once they've been changed
+     */
+    @Test
+    public void getCachedContact() throws TntDbException, SQLException {
+        Contact contact = ContactManager.get(MRINCREDIBLE_CONTACTID);
+        contact.setFileAs("Changed");
+        assertEquals(MRINCREDIBLE_FILEAS, ContactManager.get(MRINCREDIBLE_CONTACTID).getFileAs());
+
+        // A calculated field (which doesn't change LastEdit)
+        ContactManager.updateLastLetterDate(MRINCREDIBLE_CONTACTID, NEWDATE);
+        assertEquals(NEWDATE.toLocalDate(), ContactManager.get(MRINCREDIBLE_CONTACTID).getLastLetter().toLocalDate());
+
+        // A change made by something other than MIST (which changes LastEdit)
+        TntDb.getConnection().createStatement().executeUpdate(
+            "UPDATE [Contact] SET [FileAs] = 'Parr, Robert', [LastEdit] = #2030-01-01# WHERE [ContactID] = "
+                + MRINCREDIBLE_CONTACTID);
+        assertEquals("Parr, Robert", ContactManager.get(MRINCREDIBLE_CONTACTID).getFileAs());
+    }
+
     /**
      * Tests getting the challenges since a contact's last gift.
      */
@@ -720,6 +743,35 @@ public class ContactManagerTest {
         assertEquals(null, ContactManager.getLastPreCallDate(GEORGEJETSON_CONTACTID));
     }
 
+    /**
+     * Tests resolving several email addresses at once
+     */
+    @Test
+    public void resolveEmails() throws TntDbException, SQLException {
+        Map<String, ContactMatch> matches = ContactManager.resolveEmails(
+            Arrays.asList("dduck@disney.org", "nobody@nowhere.nope", "duck@disney.org", null));
+        assertEquals(4, matches.size());
+
+        ContactMatch match = matches.get("dduck@disney.org");
+        assertEquals(1, match.getMatchCount());
+        assertEquals(DONALDDUCK_CONTACTID, match.getContactId());
+        assertEquals("Duck, Donald and Daisy", match.getFileAs());
+
+        assertEquals(0, matches.get("nobody@nowhere.nope").getMatchCount());
+        assertEquals(null, matches.get("nobody@nowhere.nope").getContactId());
+        assertEquals(0, matches.get("duck@disney.org").getMatchCount()); // dduck@disney.org exists
+        assertEquals(0, matches.get(null).getMatchCount());
+
+        // Add duplicate email address to primary contact
+        TntDb.getConnection().createStatement().executeUpdate(
+            "UPDATE [Contact] SET [Email3] = 'dduck@disney.org' WHERE [ContactID] = " + MRINCREDIBLE_CONTACTID);
+
+        match = ContactManager.resolveEmails(Arrays.asList("dduck@disney.org")).get("dduck@disney.org");
+        assertEquals(2, match.getMatchCount());
+        assertEquals(null, match.getContactId());
+        assertEquals(null, match.getFileAs());
+    }
+
     @AfterEach
     public void rollback() throws TntDbException {
         TntDb.rollback();
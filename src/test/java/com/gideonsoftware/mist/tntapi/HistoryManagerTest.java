@@ -275,6 +275,20 @@ public class HistoryManagerTest {
         assertEquals(history.getNotes(), addedHistorySpecialChars.getNotes());
     }
 
+    /**
+     * Tests dropping history notes from memory once the history is in Tnt, and reading them back
+     */
+    @Test
+    public void compactHistory() throws TntDbException, SQLException {
+        History history = new History(MRINCREDIBLE_HISTORY);
+        assertEquals(false, history.compact()); // Not in Tnt yet
+        HistoryManager.create(history);
+        assertEquals(true, history.compact());
+        assertEquals(null, history.getNotes());
+        assertEquals(MRINCREDIBLE_HISTORY.getNotes(), HistoryManager.getNotes(history.getHistoryId()));
+        assertEquals(BAMBIDEER_HISTORY_NOTES, HistoryManager.getNotes(BAMBIDEER_HISTORYID));
+    }
+
     /**
      * Tests getting existing email in sample Tnt DB
      */
@@ -0,0 +1,115 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.tntapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.gideonsoftware.mist.MIST;
+import com.gideonsoftware.mist.exceptions.TntDbException;
+import com.gideonsoftware.mist.tntapi.TntDbExecutor.Priority;
+
+public class TntDbExecutorTest {
+
+    private static Integer BAMBIDEER_HISTORYID = Integer.valueOf(537624034);
+    private static String BAMBIDEER_HISTORY_DESCRIPTION = "Email tasks this color (BLACK)";
+
+    @BeforeAll
+    public static void setup() {
+        MIST.configureLogging(TntDbExecutorTest.class);
+        TntDbTest.setupTntDb();
+    }
+
+    @AfterAll
+    public static void teardown() {
+        TntDbTest.teardownTntDb();
+    }
+
+    /**
+     * Tests that work submitted from the database thread runs as part of the work that's running
+     */
+    @Test
+    public void nestedWork() throws TntDbException, SQLException {
+        boolean nestedOnDbThread = TntDbExecutor.callWrite(
+            Priority.BACKGROUND,
+            () -> TntDbExecutor.callRead(Priority.INTERACTIVE, () -> TntDbExecutor.isDbThread()));
+        assertTrue(nestedOnDbThread);
+    }
+
+    /**
+     * Tests that interactive work runs before background work that was submitted first
+     */
+    @Test
+    public void priority() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<String>();
+
+        // Keep the database thread busy while the other work is submitted
+        CompletableFuture<Boolean> busy = TntDbExecutor.read(
+            Priority.BACKGROUND,
+            () -> {
+                try {
+                    return latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            });
+        CompletableFuture<Boolean> background = TntDbExecutor.read(Priority.BACKGROUND, () -> order.add("background"));
+        CompletableFuture<Boolean> interactive = TntDbExecutor.read(
+            Priority.INTERACTIVE,
+            () -> order.add("interactive"));
+        latch.countDown();
+
+        CompletableFuture.allOf(busy, background, interactive).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("interactive", "background"), order);
+    }
+
+    /**
+     * Tests that a write that fails is rolled back as a whole
+     */
+    @Test
+    public void writeRollback() throws TntDbException, SQLException {
+        CompletableFuture<Void> future = TntDbExecutor.write(Priority.INTERACTIVE, () -> {
+            HistoryManager.updateDescription(BAMBIDEER_HISTORYID, "Changed");
+            throw new SQLException("Failed after update");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof SQLException);
+
+        String description = TntDbExecutor.callRead(
+            Priority.INTERACTIVE,
+            () -> HistoryManager.get(BAMBIDEER_HISTORYID).getDescription());
+        assertEquals(BAMBIDEER_HISTORY_DESCRIPTION, description);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.gideonsoftware.mist.MIST;
+
+public class EmailAddressMatcherTest {
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(EmailAddressMatcherTest.class);
+    }
+
+    @Test
+    public void testMatches() {
+        EmailAddressMatcher matcher = new EmailAddressMatcher(
+            new String[] {
+                "luke@rebellion.org",
+                "*@empire.gov",
+                "mailer-daemon@*",
+                "r2d?@droids.com",
+                "han+solo@*.net",
+                "" });
+
+        Object[][] tests = {
+            { null, false },
+            { "", false },
+            { "luke@rebellion.org", true },
+            { "LUKE@Rebellion.org", true },
+            { "leia@rebellion.org", false },
+            { "vader@empire.gov", true },
+            { "vader@EMPIRE.GOV", true },
+            { "vader@empire.gov.uk", false },
+            { "vader@deathstar.empire.gov", false },
+            { "mailer-daemon@anywhere.com", true },
+            { "r2d2@droids.com", true },
+            { "r2d22@droids.com", false },
+            { "han+solo@falcon.net", true },
+            { "hannsolo@falcon.net", false }, // '+' is not a regex operator
+            { "luke@rebellionxorg", false } }; // '.' is not a regex operator
+
+        for (int i = 0; i < tests.length; i++) {
+            assertEquals(tests[i][1], matcher.matches((String) tests[i][0]), String.valueOf(tests[i][0]));
+        }
+
+        assertEquals(false, EmailAddressMatcher.EMPTY.matches("luke@rebellion.org"));
+        assertEquals(false, new EmailAddressMatcher(null).matches("luke@rebellion.org"));
+    }
+}
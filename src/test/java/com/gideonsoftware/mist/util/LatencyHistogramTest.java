@@ -0,0 +1,66 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.gideonsoftware.mist.MIST;
+
+public class LatencyHistogramTest {
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(LatencyHistogramTest.class);
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        // Small values are counted exactly
+        for (int value = 1; value <= 50; value++)
+            histogram.record(value);
+        assertEquals(25, histogram.getValueAtPercentile(50));
+        assertEquals(50, histogram.getValueAtPercentile(100));
+        assertEquals(25.5, histogram.getMean());
+
+        // Large values are counted to within a few percent (but never above the largest value)
+        for (int i = 0; i < 50; i++)
+            histogram.record(1000000 + i);
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000049, histogram.getMax());
+        long p75 = histogram.getValueAtPercentile(75);
+        assertTrue(p75 >= 1000000 && p75 <= 1000049, Long.toString(p75));
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+
+        // Out-of-range values are clamped
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+    }
+}
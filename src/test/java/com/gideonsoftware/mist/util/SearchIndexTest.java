@@ -0,0 +1,63 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.gideonsoftware.mist.MIST;
+
+public class SearchIndexTest {
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(SearchIndexTest.class);
+    }
+
+    @Test
+    public void testSearchIndex() {
+        SearchIndex<Integer> index = new SearchIndex<Integer>();
+        index.add(1, "Deer, Bambi", 1);
+        index.add(1, "bambi@forest.org", 0.5f);
+        index.add(2, "Duck, Donald and Daisy", 1);
+        index.add(2, "dduck@disney.org", 0.5f);
+        index.add(3, "Duckworth, Ann", 1);
+        assertEquals(3, index.size());
+
+        assertEquals(List.of(2, 3), index.search("duck", 10, null)); // Exact match before prefix match
+        assertEquals(List.of(2), index.search("don du", 10, null)); // Every word has to match
+        assertEquals(List.of(1), index.search("Bamby", 10, null)); // Approximate match
+        assertEquals(List.of(2), index.search("Dnoald", 10, null)); // Swapped letters
+        assertEquals(List.of(), index.search("Dabmo", 10, null)); // Too many typos
+        assertEquals(List.of(2), index.search("disney", 10, null)); // Email address
+        assertEquals(List.of(3, 2), index.search("duck", 10, id -> id == 3 ? 2 : 0)); // Boosted
+        assertEquals(List.of(1), index.search("d", 1, null)); // Ties in the order added
+        assertEquals(List.of(), index.search(" ,", 10, null));
+
+        // Items added after searching are found too
+        index.add(4, "Duck, Scrooge", 1);
+        assertEquals(List.of(2, 4, 3), index.search("duck", 10, null));
+    }
+}
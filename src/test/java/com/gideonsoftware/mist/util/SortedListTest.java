@@ -0,0 +1,78 @@
+/**
+ * MIST: eMail Import System for TntConnect
+ * Copyright (C) 2023 Gideon Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, visit https://www.gideonsoftware.com
+ */
+
+package com.gideonsoftware.mist.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.gideonsoftware.mist.MIST;
+
+public class SortedListTest {
+
+    @BeforeAll
+    public static void globalSetUp() {
+        MIST.configureLogging(SortedListTest.class);
+    }
+
+    @Test
+    public void testSortedList() {
+        // Sort by length only, so different strings can sort the same
+        SortedList<String> list = new SortedList<String>(Comparator.comparingInt(String::length));
+        assertEquals(0, list.size());
+        assertEquals(-1, list.indexOf("luke"));
+
+        assertEquals(0, list.add("leia"));
+        assertEquals(0, list.add("han"));
+        assertEquals(2, list.add("chewie"));
+        assertEquals(2, list.add("luke")); // After its equal ("leia")
+        assertEquals(4, list.add("obi-wan"));
+        assertEquals(5, list.size());
+        assertEquals("han", list.get(0));
+        assertEquals("leia", list.get(1));
+        assertEquals("luke", list.get(2));
+        assertEquals("chewie", list.get(3));
+        assertEquals("obi-wan", list.get(4));
+
+        assertEquals(2, list.indexOf("luke"));
+        assertTrue(list.contains("leia"));
+        assertFalse(list.contains("yoda")); // Sorts the same as "luke" & "leia", but not in the list
+
+        assertEquals("leia", list.remove(1));
+        assertEquals(1, list.indexOf("luke"));
+
+        list.setAll(Arrays.asList("vader", "r2", "c-3po")); // Equals stay in the order given, as add() keeps them
+        assertEquals(3, list.size());
+        assertEquals("r2", list.get(0));
+        assertEquals(1, list.indexOf("vader"));
+        assertEquals(2, list.indexOf("c-3po"));
+        assertEquals(3, list.add("wedge"));
+
+        list.clear();
+        assertEquals(0, list.size());
+    }
+}